@@ -1,10 +1,13 @@
 package de.tum.bgu.msm;
 
 import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.io.input.InputDelta;
 import de.tum.bgu.msm.io.input.InputFeed;
 import de.tum.bgu.msm.io.input.InputManager;
 import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.resources.ScenarioContext;
 import de.tum.bgu.msm.util.MitoUtil;
+import de.tum.bgu.msm.util.metrics.MetricsServer;
 import org.apache.log4j.Logger;
 
 import java.util.Random;
@@ -33,7 +36,6 @@ import java.util.ResourceBundle;
 public class MitoModel {
 
     private static final Logger logger = Logger.getLogger(MitoModel.class);
-    private static String scenarioName;
 
     private final InputManager manager;
     private final DataSet dataSet;
@@ -45,6 +47,7 @@ public class MitoModel {
         this.manager = new InputManager(dataSet);
         Resources.INSTANCE.setResources(resources);
         MitoUtil.initializeRandomNumber();
+        MetricsServer.startIfConfigured();
     }
 
     public void feedData(InputFeed feed) {
@@ -55,11 +58,26 @@ public class MitoModel {
         }
     }
 
+    /**
+     * Applies the changes since the last feed. The next model run only regenerates trips of
+     * added and changed households, and redistributes all trips only if zones or travel times
+     * have changed. If the number of households of a zone changes, the trips that have this zone
+     * among their candidate destinations are redistributed as well. Without a choice set cutoff,
+     * see {@link de.tum.bgu.msm.resources.Properties#CHOICE_SET_MAX_TRAVEL_TIME}, every zone is a
+     * candidate of every trip, so such a change redistributes all trips.
+     */
+    public void feedDelta(InputDelta delta) {
+        if (!initialised) {
+            throw new IllegalStateException("MITO has to be fed with complete data before a delta can be applied.");
+        }
+        manager.applyDelta(delta);
+    }
+
     public void initializeStandAlone() {
         // Read data if MITO is used as a stand-alone program and data are not fed from other program
         logger.info("  Reading input data for MITO");
-        manager.readAsStandAlone();
-        manager.readAdditionalData();
+        manager.readAllAsStandAlone();
+        initialised = true;
     }
 
     public void runModel() {
@@ -68,6 +86,7 @@ public class MitoModel {
 
         TravelDemandGenerator ttd = new TravelDemandGenerator(dataSet);
         ttd.generateTravelDemand();
+        dataSet.completeRun();
 
         printOutline(startTime);
     }
@@ -91,11 +110,11 @@ public class MitoModel {
     }
 
     public static String getScenarioName() {
-        return scenarioName;
+        return ScenarioContext.current().getScenarioName();
     }
 
     public static void setScenarioName(String scenarioName) {
-        scenarioName = scenarioName;
+        ScenarioContext.current().setScenarioName(scenarioName);
     }
 
     public void setRandomNumberGenerator(Random random) {
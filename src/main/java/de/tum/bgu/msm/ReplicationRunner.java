@@ -0,0 +1,130 @@
+package de.tum.bgu.msm;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.MitoTrip;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.util.MitoUtil;
+import de.tum.bgu.msm.util.RunningStatistics;
+import org.apache.log4j.Logger;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.ResourceBundle;
+
+/**
+ * Runs the model repeatedly with different random seeds over shared inputs to measure the
+ * variation of the results caused by the simulation. For every replication, trips by purpose and
+ * origin zone and by purpose and destination zone are added to running statistics, and the trips
+ * themselves are discarded, so memory does not grow with the number of replications. Confidence
+ * intervals are based on Student's t distribution, as replications are usually few.
+ */
+public class ReplicationRunner {
+
+    private static final Logger logger = Logger.getLogger(ReplicationRunner.class);
+
+    private static final double CONFIDENCE_LEVEL = 0.95;
+
+    private final ResourceBundle resources;
+    private final String baseDirectory;
+    private final int replications;
+    private final long firstSeed;
+
+    private Zone[] zones;
+    private RunningStatistics tripsByPurpose;
+    private RunningStatistics tripsByPurposeAndZone;
+
+    public ReplicationRunner(ResourceBundle resources, String baseDirectory, int replications, long firstSeed) {
+        this.resources = resources;
+        this.baseDirectory = baseDirectory;
+        this.replications = replications;
+        this.firstSeed = firstSeed;
+    }
+
+    public void run(int numberOfThreads) {
+        ScenarioBatchRunner batchRunner = new ScenarioBatchRunner(resources, baseDirectory);
+        for (int replication = 0; replication < replications; replication++) {
+            batchRunner.addScenario("replication" + replication,
+                    Collections.singletonMap(Properties.RANDOM_SEED, String.valueOf(firstSeed + replication)));
+        }
+        batchRunner.run(numberOfThreads, false, (name, dataSet) -> addReplication(dataSet));
+        logResults();
+    }
+
+    private void addReplication(DataSet dataSet) {
+        synchronized (this) {
+            if (zones == null) {
+                zones = new Zone[dataSet.getZoneIndexBound()];
+                for (Zone zone : dataSet.getZones().values()) {
+                    zones[zone.getIndex()] = zone;
+                }
+                tripsByPurpose = new RunningStatistics(Purpose.values().length);
+                tripsByPurposeAndZone = new RunningStatistics(2 * Purpose.values().length * zones.length);
+            }
+        }
+        double[] totals = new double[Purpose.values().length];
+        double[] byZone = new double[2 * Purpose.values().length * zones.length];
+        for (MitoTrip trip : dataSet.getTrips().values()) {
+            int purpose = trip.getTripPurpose().ordinal();
+            totals[purpose]++;
+            if (trip.getTripOrigin() != null) {
+                byZone[index(0, purpose, trip.getTripOrigin().getIndex())]++;
+            }
+            if (trip.getTripDestination() != null) {
+                byZone[index(1, purpose, trip.getTripDestination().getIndex())]++;
+            }
+        }
+        tripsByPurpose.add(totals);
+        tripsByPurposeAndZone.add(byZone);
+    }
+
+    private int index(int direction, int purpose, int zoneIndex) {
+        return (direction * Purpose.values().length + purpose) * zones.length + zoneIndex;
+    }
+
+    private void logResults() {
+        logger.info("Results of " + tripsByPurpose.getCount() + " replications (95% confidence intervals):");
+        for (Purpose purpose : Purpose.values()) {
+            int i = purpose.ordinal();
+            logger.info("  " + purpose + ": " + MitoUtil.customFormat("###,###.0", tripsByPurpose.getMean(i))
+                    + " +/- " + MitoUtil.customFormat("###,###.0", tripsByPurpose.getConfidenceHalfWidth(i, CONFIDENCE_LEVEL))
+                    + " trips, " + tripsByPurpose.getRequiredCount(i, CONFIDENCE_LEVEL, 0.01)
+                    + " replications needed for +/-1% precision.");
+        }
+    }
+
+    /**
+     * Writes mean, standard deviation and 95% confidence interval of the trips by purpose and zone,
+     * and the number of replications needed to estimate each mean within the given relative error.
+     */
+    public void writeResults(String fileName, double relativeError) {
+        if (tripsByPurposeAndZone == null) {
+            logger.warn("No replications to write.");
+            return;
+        }
+        PrintWriter pw = MitoUtil.openFileForSequentialWriting(fileName, false);
+        pw.println("zone,purpose,direction,mean,standardDeviation,ciLower,ciUpper,requiredReplications");
+        for (int direction = 0; direction < 2; direction++) {
+            for (Purpose purpose : Purpose.values()) {
+                for (Zone zone : zones) {
+                    if (zone == null) {
+                        continue;
+                    }
+                    int i = index(direction, purpose.ordinal(), zone.getIndex());
+                    double mean = tripsByPurposeAndZone.getMean(i);
+                    double halfWidth = tripsByPurposeAndZone.getConfidenceHalfWidth(i, CONFIDENCE_LEVEL);
+                    pw.println(zone.getZoneId() + "," + purpose + "," + (direction == 0 ? "origin" : "destination")
+                            + "," + mean + "," + tripsByPurposeAndZone.getStandardDeviation(i)
+                            + "," + (mean - halfWidth) + "," + (mean + halfWidth)
+                            + "," + tripsByPurposeAndZone.getRequiredCount(i, CONFIDENCE_LEVEL, relativeError));
+                }
+            }
+        }
+        pw.close();
+    }
+
+    public RunningStatistics getTripsByPurpose() {
+        return tripsByPurpose;
+    }
+}
@@ -0,0 +1,204 @@
+package de.tum.bgu.msm;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.MitoPerson;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.data.travelTimes.TravelTimes;
+import de.tum.bgu.msm.modules.personTripAssignment.TripAssignmentFactory;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.resources.ScenarioContext;
+import de.tum.bgu.msm.util.MitoUtil;
+import de.tum.bgu.msm.util.concurrent.ModuleExecutor;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Runs several variants of a scenario in one JVM. Zones, travel times, the travel survey and the
+ * synthetic population are read once. Every variant then runs in its own {@link ScenarioContext}
+ * with its own configuration (the base configuration plus the overridden properties), random
+ * number generator, scenario name and trip assignment factory, and on its own copy of the zones and
+ * the population, while travel times and the survey are shared read-only.
+ */
+public class ScenarioBatchRunner {
+
+    private static final Logger logger = Logger.getLogger(ScenarioBatchRunner.class);
+
+    private final ResourceBundle baseResources;
+    private final String baseDirectory;
+    private final Map<String, Map<String, String>> scenarios = new LinkedHashMap<>();
+
+    public ScenarioBatchRunner(ResourceBundle baseResources, String baseDirectory) {
+        this.baseResources = baseResources;
+        this.baseDirectory = baseDirectory;
+    }
+
+    /**
+     * Adds a variant with the given name, which also names its output directory, and the
+     * properties in which it differs from the base configuration.
+     */
+    public void addScenario(String name, Map<String, String> overriddenProperties) {
+        if (scenarios.containsKey(name)) {
+            throw new IllegalArgumentException("Scenario " + name + " was already added.");
+        }
+        scenarios.put(name, new LinkedHashMap<>(overriddenProperties));
+    }
+
+    /**
+     * Reads the inputs and runs all variants on the given number of threads. Returns the data set
+     * with the resulting travel demand of each variant by scenario name.
+     */
+    public Map<String, DataSet> run(int numberOfThreads) {
+        Map<String, DataSet> unorderedResults = new ConcurrentHashMap<>();
+        run(numberOfThreads, true, unorderedResults::put);
+        Map<String, DataSet> results = new LinkedHashMap<>();
+        for (String name : scenarios.keySet()) {
+            results.put(name, unorderedResults.get(name));
+        }
+        return results;
+    }
+
+    /**
+     * Reads the inputs and runs all variants on the given number of threads. The result of each
+     * variant is handed to the result handler, on the thread that ran the variant, as soon as the
+     * variant is done, so that results do not have to be kept in memory until all variants are done.
+     */
+    public void run(int numberOfThreads, boolean writeOutput, BiConsumer<String, DataSet> resultHandler) {
+        DataSet baseDataSet = readInputs();
+        runVariants(baseDataSet, numberOfThreads, dataSet -> {
+            TravelDemandGenerator generator = new TravelDemandGenerator(dataSet);
+            generator.runModules();
+            if (writeOutput) {
+                generator.writeOutput();
+            }
+        }, resultHandler);
+    }
+
+    /**
+     * Runs the given model on a copy of the base data set for every variant, each within the
+     * context of its variant.
+     */
+    void runVariants(DataSet baseDataSet, int numberOfThreads, Consumer<DataSet> model,
+                     BiConsumer<String, DataSet> resultHandler) {
+        TripAssignmentFactory tripAssignmentFactory = Resources.INSTANCE.getTripAssignmentFactory();
+        ModuleExecutor executor = new ModuleExecutor("Scenario batch", Math.max(1, numberOfThreads));
+        for (Map.Entry<String, Map<String, String>> scenario : scenarios.entrySet()) {
+            executor.addTask(scenario.getKey(), () -> {
+                DataSet dataSet = runScenario(baseDataSet, scenario.getKey(), scenario.getValue(), tripAssignmentFactory, model);
+                resultHandler.accept(scenario.getKey(), dataSet);
+            });
+        }
+        executor.execute();
+    }
+
+    private DataSet readInputs() {
+        ScenarioContext previous = ScenarioContext.set(new ScenarioContext(baseResources));
+        try {
+            logger.info("Reading shared input data for " + scenarios.size() + " scenarios");
+            MitoUtil.setBaseDirectory(baseDirectory);
+            MitoModel model = new MitoModel(baseResources);
+            model.initializeStandAlone();
+            return model.getTravelDemand();
+        } finally {
+            ScenarioContext.set(previous);
+        }
+    }
+
+    private DataSet runScenario(DataSet baseDataSet, String name, Map<String, String> overriddenProperties,
+                                TripAssignmentFactory tripAssignmentFactory, Consumer<DataSet> model) {
+        ScenarioContext context = new ScenarioContext(new OverridingResourceBundle(baseResources, overriddenProperties));
+        context.setBaseDirectory(baseDirectory);
+        context.setScenarioName(name);
+        context.setTripAssignmentFactory(tripAssignmentFactory);
+        ScenarioContext previous = ScenarioContext.set(context);
+        try {
+            long startTime = System.currentTimeMillis();
+            logger.info("Started scenario " + name);
+            MitoUtil.initializeRandomNumber();
+            DataSet dataSet = copyInputs(baseDataSet);
+            model.accept(dataSet);
+            dataSet.completeRun();
+            logger.info("Completed scenario " + name + " with " + dataSet.getTrips().size() + " trips in "
+                    + (System.currentTimeMillis() - startTime) / 1000 + " seconds.");
+            return dataSet;
+        } finally {
+            ScenarioContext.set(previous);
+        }
+    }
+
+    /**
+     * Returns a data set that shares travel times, survey, trip frequencies and attraction rates with the
+     * base data set, but holds its own copy of all zones, households and persons.
+     */
+    static DataSet copyInputs(DataSet baseDataSet) {
+        DataSet dataSet = new DataSet();
+        synchronized (baseDataSet) {
+            dataSet.copyZonesFrom(baseDataSet);
+            Map<Integer, Zone> zones = dataSet.getZones();
+            for (String mode : baseDataSet.getTravelTimeModes()) {
+                TravelTimes travelTimes = baseDataSet.getTravelTimes(mode);
+                dataSet.addTravelTimeForMode(mode, travelTimes);
+            }
+            dataSet.setSurvey(baseDataSet.getSurvey());
+            dataSet.setTripFrequencyModel(baseDataSet.getTripFrequencyModel());
+            dataSet.setTripAttractionRates(baseDataSet.getTripAttractionRates());
+            for (MitoHousehold baseHousehold : baseDataSet.getHouseholds().values()) {
+                MitoHousehold household = new MitoHousehold(baseHousehold.getHhId(), baseHousehold.getIncome(),
+                        baseHousehold.getAutos(), copyOf(zones, baseHousehold.getHomeZone()));
+                for (MitoPerson basePerson : baseHousehold.getPersonList()) {
+                    MitoPerson person = new MitoPerson(basePerson.getId(), basePerson.getOccupation(), basePerson.getWorkplace(),
+                            basePerson.getAge(), basePerson.getGender(), basePerson.hasDriversLicense());
+                    person.setWorkzone(copyOf(zones, basePerson.getWorkzone()));
+                    household.addPerson(person);
+                    dataSet.addPerson(person);
+                }
+                dataSet.addHousehold(household);
+            }
+        }
+        return dataSet;
+    }
+
+    private static Zone copyOf(Map<Integer, Zone> zones, Zone baseZone) {
+        return baseZone == null ? null : zones.get(baseZone.getZoneId());
+    }
+
+    /**
+     * A configuration that returns the overridden properties of a scenario and falls back to the
+     * base configuration for all others.
+     */
+    private static final class OverridingResourceBundle extends ResourceBundle {
+
+        private final Map<String, String> overriddenProperties;
+
+        private OverridingResourceBundle(ResourceBundle base, Map<String, String> overriddenProperties) {
+            this.overriddenProperties = Collections.unmodifiableMap(new LinkedHashMap<>(overriddenProperties));
+            setParent(base);
+        }
+
+        @Override
+        protected Object handleGetObject(String key) {
+            return overriddenProperties.get(key);
+        }
+
+        @Override
+        public Enumeration<String> getKeys() {
+            Set<String> keys = new HashSet<>(overriddenProperties.keySet());
+            keys.addAll(Collections.list(parent.getKeys()));
+            List<String> sortedKeys = new ArrayList<>(keys);
+            Collections.sort(sortedKeys);
+            return Collections.enumeration(sortedKeys);
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package de.tum.bgu.msm;
 
 import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.io.output.DestinationChoiceLogsumWriter;
 import de.tum.bgu.msm.io.output.SummarizeData;
 import de.tum.bgu.msm.io.output.TripGenerationWriter;
 import de.tum.bgu.msm.modules.personTripAssignment.PersonTripAssignment;
 import de.tum.bgu.msm.modules.travelTimeBudget.TravelTimeBudget;
 import de.tum.bgu.msm.modules.tripDistribution.TripDistribution;
 import de.tum.bgu.msm.modules.tripGeneration.TripGeneration;
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.util.MitoUtil;
+import de.tum.bgu.msm.util.concurrent.ModuleExecutor;
+import de.tum.bgu.msm.util.js.UtilityTracer;
+import de.tum.bgu.msm.util.profiling.MitoEvents;
+import de.tum.bgu.msm.util.profiling.ProfilingEvent;
 import org.apache.log4j.Logger;
 
 /**
@@ -26,21 +34,56 @@ public class TravelDemandGenerator {
     }
 
     public void generateTravelDemand () {
+        runModules();
+        writeOutput();
+    }
+
+    /**
+     * Runs all model steps without writing any output. Utility calculations selected by the trace
+     * properties are traced by a tracer that belongs to this run and is closed at its end.
+     */
+    public void runModules() {
+        UtilityTracer tracer = UtilityTracer.fromProperties();
+        dataSet.setUtilityTracer(tracer);
+        try {
+            runModule("Microscopic Trip Generation", "tripGeneration", () -> new TripGeneration(dataSet).run());
+            runModule("Travel Time Budget Calculation", "travelTimeBudget", () -> new TravelTimeBudget(dataSet).run());
+            runModule("Person to Trip Assignment", "personTripAssignment", () -> new PersonTripAssignment(dataSet).run());
+            runModule("Microscopic Trip Distribution", "tripDistribution", () -> new TripDistribution(dataSet).run());
+        } finally {
+            tracer.close();
+            dataSet.setUtilityTracer(UtilityTracer.disabled());
+        }
+    }
+
+    /**
+     * Runs one model step. Lazily loaded travel times are held for the whole step, so that they
+     * are not evicted and loaded again halfway through it.
+     */
+    private void runModule(String description, String name, Runnable module) {
+        logger.info("Running Module: " + description);
+        ProfilingEvent event = MitoEvents.beginModule(name);
+        dataSet.holdTravelTimes();
+        try {
+            module.run();
+        } finally {
+            dataSet.releaseTravelTimes();
+            event.commit();
+        }
+    }
 
-        logger.info("Running Module: Microscopic Trip Generation");
-        TripGeneration tg = new TripGeneration(dataSet);
-        tg.run();
-        logger.info("Running Module: Travel Time Budget Calculation");
-        TravelTimeBudget ttb = new TravelTimeBudget(dataSet);
-        ttb.run();
-        logger.info("Running Module: Person to Trip Assignment");
-        PersonTripAssignment personTripAssignment = new PersonTripAssignment(dataSet);
-        personTripAssignment.run();
-        logger.info("Running Module: Microscopic Trip Distribution");
-        TripDistribution distribution = new TripDistribution(dataSet);
-        distribution.run();
-
-        TripGenerationWriter.writeTripsByPurposeAndZone(dataSet);
-        SummarizeData.writeOutSyntheticPopulationWithTrips(dataSet);
+    /**
+     * Writes all output files. The writers only read the data set, so they run in parallel.
+     */
+    public void writeOutput() {
+        ModuleExecutor executor = new ModuleExecutor("Writing output");
+        executor.addTask("trips by purpose and zone", () -> TripGenerationWriter.writeTripsByPurposeAndZone(dataSet));
+        executor.addTask("synthetic population", () -> SummarizeData.writeOutSyntheticPopulationWithTrips(dataSet));
+        String logsumFile = Resources.INSTANCE.getString(Properties.DESTINATION_CHOICE_LOGSUM_OUTPUT, null);
+        if (logsumFile != null) {
+            executor.addTask("destination choice logsums",
+                    () -> DestinationChoiceLogsumWriter.writeLogsums(dataSet, MitoUtil.getScenarioOutputFileName(logsumFile)));
+        }
+        executor.execute();
     }
 }
@@ -3,12 +3,27 @@ package de.tum.bgu.msm.data;
 import com.pb.common.datafile.TableDataSet;
 import de.tum.bgu.msm.data.survey.SurveyRecord;
 import de.tum.bgu.msm.data.survey.TravelSurvey;
+import de.tum.bgu.msm.data.travelTimes.LazyTravelTimes;
+import de.tum.bgu.msm.data.travelTimes.SparseChoiceSet;
 import de.tum.bgu.msm.data.travelTimes.TravelTimes;
+import de.tum.bgu.msm.modules.tripGeneration.TripFrequencyModel;
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.util.js.UtilityTracer;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 public class DataSet {
 
@@ -17,13 +32,28 @@ public class DataSet {
     private TableDataSet tripAttractionRates;
 
     private final Map<String, TravelTimes> travelTimes = new LinkedHashMap<>();
+    private final Deque<List<LazyTravelTimes>> heldTravelTimes = new ArrayDeque<>();
+    private final Map<String, SparseChoiceSet> choiceSets = new HashMap<>();
+    private final Map<String, Double> choiceSetCutoffs = new HashMap<>();
 
     private TravelSurvey<? extends SurveyRecord> survey;
+    private TripFrequencyModel tripFrequencyModel;
+    private HouseholdShard householdShard;
+    private DestinationChoiceLogsums destinationChoiceLogsums;
+    private UtilityTracer utilityTracer = UtilityTracer.disabled();
 
     private final Map<Integer, Zone> zones= new LinkedHashMap<>();
+    private final List<Zone> zonesByIndex = new ArrayList<>();
+    private final Map<String, float[]> zoneAttributes = new LinkedHashMap<>();
     private final Map<Integer, MitoHousehold> households = new LinkedHashMap<>();
     private final Map<Integer, MitoPerson> persons = new LinkedHashMap<>();
     private final Map<Integer, MitoTrip> trips = new LinkedHashMap<>();
+    private final int[] tripsByPurpose = new int[Purpose.values().length];
+
+    private final Set<Integer> changedHouseholds = new LinkedHashSet<>();
+    private final Set<Zone> zonesWithChangedHouseholds = new LinkedHashSet<>();
+    private boolean completedRun = false;
+    private boolean zonesOrTravelTimesChanged = false;
 
 
     public TravelSurvey<? extends SurveyRecord> getSurvey() {
@@ -34,6 +64,30 @@ public class DataSet {
         this.survey = survey;
     }
 
+    public TripFrequencyModel getTripFrequencyModel() {
+        return tripFrequencyModel;
+    }
+
+    public void setTripFrequencyModel(TripFrequencyModel tripFrequencyModel) {
+        this.tripFrequencyModel = tripFrequencyModel;
+    }
+
+    /**
+     * Returns the shard of households this data set is restricted to, or null if it holds the
+     * whole population.
+     */
+    public HouseholdShard getHouseholdShard() {
+        return householdShard;
+    }
+
+    /**
+     * Restricts the households read into this data set to the given shard. Has to be set before
+     * the households are read.
+     */
+    public void setHouseholdShard(HouseholdShard householdShard) {
+        this.householdShard = householdShard;
+    }
+
     public TableDataSet getTripAttractionRates() {
         return tripAttractionRates;
     }
@@ -46,11 +100,93 @@ public class DataSet {
         return this.travelTimes.get(mode);
     }
 
+    public Set<String> getTravelTimeModes() {
+        return Collections.unmodifiableSet(travelTimes.keySet());
+    }
+
     public TravelTimes addTravelTimeForMode(String mode, TravelTimes travelTimes) {
+        synchronized (choiceSets) {
+            choiceSets.remove(mode);
+        }
+        zonesOrTravelTimesChanged = true;
         return this.travelTimes.put(mode, travelTimes);
     }
 
+    /**
+     * Registers travel times that are only loaded by the given provider when they are first looked
+     * up, and that may be evicted and loaded again when memory runs short.
+     */
+    public TravelTimes addTravelTimeProviderForMode(String mode, Supplier<? extends TravelTimes> provider) {
+        return addTravelTimeForMode(mode, new LazyTravelTimes(mode, provider));
+    }
+
+    /**
+     * Keeps all lazily loaded travel times in memory until {@link #releaseTravelTimes()}, so that
+     * they are not evicted and loaded again in the middle of a model step.
+     */
+    public synchronized void holdTravelTimes() {
+        List<LazyTravelTimes> held = new ArrayList<>();
+        for (TravelTimes modeTravelTimes : travelTimes.values()) {
+            if (modeTravelTimes instanceof LazyTravelTimes) {
+                ((LazyTravelTimes) modeTravelTimes).hold();
+                held.add((LazyTravelTimes) modeTravelTimes);
+            }
+        }
+        heldTravelTimes.push(held);
+    }
+
+    /**
+     * Releases the travel times held by the last call of {@link #holdTravelTimes()}, even if they
+     * have been replaced in the meantime.
+     */
+    public synchronized void releaseTravelTimes() {
+        for (LazyTravelTimes held : heldTravelTimes.pop()) {
+            held.release();
+        }
+    }
+
+    /**
+     * Returns the destination choice set for the given mode, i.e. all zones that can be reached
+     * within maxTravelTime minutes from each origin. The set is built once from the travel times
+     * of the mode and reused until zones or travel times change. A cutoff of 0 or less returns
+     * all zones for every origin.
+     */
+    public SparseChoiceSet getChoiceSet(String mode, double maxTravelTime) {
+        synchronized (choiceSets) {
+            SparseChoiceSet choiceSet = choiceSets.get(mode);
+            Double cutoff = choiceSetCutoffs.get(mode);
+            if (choiceSet == null || cutoff == null || cutoff != maxTravelTime) {
+                choiceSet = SparseChoiceSet.build(zones.values(), getTravelTimes(mode), maxTravelTime);
+                choiceSets.put(mode, choiceSet);
+                choiceSetCutoffs.put(mode, maxTravelTime);
+            }
+            return choiceSet;
+        }
+    }
+
+    /**
+     * Returns the destination choice logsums of the last trip distribution run, or null if trip
+     * distribution has not run yet.
+     */
+    public DestinationChoiceLogsums getDestinationChoiceLogsums() {
+        return destinationChoiceLogsums;
+    }
+
+    /**
+     * Returns the tracer of the utility calculations of the current model run, which traces
+     * nothing unless the run has set one up.
+     */
+    public UtilityTracer getUtilityTracer() {
+        return utilityTracer;
+    }
+
+    public void setUtilityTracer(UtilityTracer utilityTracer) {
+        this.utilityTracer = utilityTracer;
+    }
 
+    public void setDestinationChoiceLogsums(DestinationChoiceLogsums destinationChoiceLogsums) {
+        this.destinationChoiceLogsums = destinationChoiceLogsums;
+    }
 
     public Map<Integer, MitoPerson> getPersons() {
         return Collections.unmodifiableMap(persons);
@@ -60,6 +196,70 @@ public class DataSet {
         return Collections.unmodifiableMap(zones);
     }
 
+    public int getNumberOfZones() {
+        return zones.size();
+    }
+
+    /**
+     * Returns one more than the largest index any zone of this data set ever had, i.e. the size of
+     * arrays that hold values by zone index. Indices of removed zones are not reused, so arrays
+     * built before a zone was removed stay valid for the remaining zones.
+     */
+    public int getZoneIndexBound() {
+        return zonesByIndex.size();
+    }
+
+    /**
+     * Returns the zone with the given index, or null if that zone has been removed.
+     */
+    public Zone getZoneByIndex(int index) {
+        return zonesByIndex.get(index);
+    }
+
+    /**
+     * Returns the index of the zone with the given id, or -1 if there is no such zone.
+     */
+    public int getZoneIndex(int zoneId) {
+        Zone zone = zones.get(zoneId);
+        return zone == null ? -1 : zone.getIndex();
+    }
+
+    /**
+     * Returns an additional, project-specific attribute of the given zone, or NaN if it is not
+     * defined for that zone.
+     */
+    public float getZoneAttribute(String name, Zone zone) {
+        float[] column = zoneAttributes.get(name);
+        int index = zone.getIndex();
+        return column == null || index < 0 || index >= column.length ? Float.NaN : column[index];
+    }
+
+    /**
+     * Returns the values of an additional zonal attribute by zone index, or null if the attribute
+     * is not defined. Zones added after the attribute was set may lie beyond the end of the array.
+     */
+    public float[] getZoneAttributeColumn(String name) {
+        return zoneAttributes.get(name);
+    }
+
+    public Set<String> getZoneAttributeNames() {
+        return Collections.unmodifiableSet(zoneAttributes.keySet());
+    }
+
+    public synchronized void setZoneAttribute(String name, Zone zone, float value) {
+        if (zone.getIndex() < 0 || zonesByIndex.get(zone.getIndex()) != zone) {
+            throw new IllegalArgumentException("Zone " + zone.getZoneId() + " is not part of this data set.");
+        }
+        float[] column = zoneAttributes.get(name);
+        if (column == null || column.length <= zone.getIndex()) {
+            int oldLength = column == null ? 0 : column.length;
+            column = column == null ? new float[zonesByIndex.size()] : Arrays.copyOf(column, zonesByIndex.size());
+            Arrays.fill(column, oldLength, column.length, Float.NaN);
+            zoneAttributes.put(name, column);
+        }
+        column[zone.getIndex()] = value;
+    }
+
     public Map<Integer, MitoHousehold> getHouseholds() {
         return Collections.unmodifiableMap(households);
     }
@@ -77,11 +277,117 @@ public class DataSet {
             }
             throw new IllegalArgumentException("Zone id " + zone.getZoneId() + " already exists!");
         }
+        if (zone.getIndex() >= 0) {
+            // the index belongs to the other data set, so the zone cannot be shared
+            throw new IllegalArgumentException("Zone " + zone.getZoneId() + " already belongs to another data set.");
+        }
+        zone.setIndex(zonesByIndex.size());
         zones.put(zone.getZoneId(), zone);
+        zonesByIndex.add(zone);
+        clearChoiceSets();
+    }
+
+    /**
+     * Adds copies of all zones of the given data set, including their additional attributes, under
+     * the same indices, so that values stored by zone index, e.g. in shared travel times, remain
+     * valid. Has to be called before any zone is added to this data set.
+     */
+    public synchronized void copyZonesFrom(DataSet other) {
+        if (!zonesByIndex.isEmpty()) {
+            throw new IllegalStateException("Zones can only be copied into a data set without zones.");
+        }
+        synchronized (other) {
+            for (Zone otherZone : other.zonesByIndex) {
+                Zone zone = null;
+                if (otherZone != null) {
+                    zone = new Zone(otherZone);
+                    zone.setIndex(zonesByIndex.size());
+                    zones.put(zone.getZoneId(), zone);
+                }
+                zonesByIndex.add(zone);
+            }
+            for (Map.Entry<String, float[]> column : other.zoneAttributes.entrySet()) {
+                zoneAttributes.put(column.getKey(), column.getValue().clone());
+            }
+        }
+        clearChoiceSets();
     }
 
     public synchronized void removeZone(final int zoneId) {
-       zones.remove(zoneId);
+       Zone zone = zones.remove(zoneId);
+       if (zone != null) {
+           // the index is not reused, so values stored by index for other zones stay valid
+           zonesByIndex.set(zone.getIndex(), null);
+           zone.setIndex(-1);
+       }
+       clearChoiceSets();
+    }
+
+    private void clearChoiceSets() {
+        synchronized (choiceSets) {
+            choiceSets.clear();
+        }
+        zonesOrTravelTimesChanged = true;
+    }
+
+    /**
+     * Records that zonal attributes have changed, so that all trips need to be redistributed.
+     */
+    public synchronized void markZonesChanged() {
+        zonesOrTravelTimesChanged = true;
+    }
+
+    /**
+     * Records that the number of households in the zone has changed. Unlike other zonal attributes,
+     * this only affects the destination choice of trips that have the zone among their candidates,
+     * see {@link #getZonesWithChangedHouseholds()}.
+     */
+    public synchronized void markNumberOfHouseholdsChanged(Zone zone) {
+        zonesWithChangedHouseholds.add(zone);
+    }
+
+    /**
+     * Returns the zones whose number of households has changed since the last model run.
+     */
+    public synchronized Set<Zone> getZonesWithChangedHouseholds() {
+        return new LinkedHashSet<>(zonesWithChangedHouseholds);
+    }
+
+    public synchronized void markHouseholdChanged(int householdId) {
+        if (households.containsKey(householdId)) {
+            changedHouseholds.add(householdId);
+        }
+    }
+
+    /**
+     * Returns the households a module has to (re)process. Before the first completed model run,
+     * these are all households. Afterwards, only households that have been added or changed since
+     * the last run are returned, unless the module depends on zones or travel times and those
+     * have changed, in which case all households are returned again.
+     */
+    public synchronized Collection<MitoHousehold> getHouseholdsToUpdate(boolean dependsOnZonesAndTravelTimes) {
+        if (!completedRun || (dependsOnZonesAndTravelTimes && zonesOrTravelTimesChanged)) {
+            return getHouseholds().values();
+        }
+        List<MitoHousehold> householdsToUpdate = new ArrayList<>(changedHouseholds.size());
+        for (Integer householdId : changedHouseholds) {
+            householdsToUpdate.add(households.get(householdId));
+        }
+        return householdsToUpdate;
+    }
+
+    public synchronized boolean isIncrementalRun(boolean dependsOnZonesAndTravelTimes) {
+        return completedRun && !(dependsOnZonesAndTravelTimes && zonesOrTravelTimesChanged);
+    }
+
+    /**
+     * Marks the end of a model run. Changes recorded afterwards are handled by the next run.
+     */
+    public synchronized void completeRun() {
+        completedRun = true;
+        zonesOrTravelTimesChanged = false;
+        changedHouseholds.clear();
+        zonesWithChangedHouseholds.clear();
     }
 
     public synchronized void addHousehold(final MitoHousehold household) {
@@ -94,10 +400,12 @@ public class DataSet {
             throw new IllegalArgumentException("Household id " + household.getHhId() + " already exists!");
         }
         households.put(household.getHhId(), household);
+        changedHouseholds.add(household.getHhId());
     }
 
-    public void removeHousehold(final int householdId) {
+    public synchronized void removeHousehold(final int householdId) {
         households.remove(householdId);
+        changedHouseholds.remove(householdId);
     }
 
     public synchronized void addPerson(final MitoPerson person) {
@@ -126,9 +434,17 @@ public class DataSet {
             throw new IllegalArgumentException("Trip " +trip.getTripId() + " already exists!");
         }
         trips.put(trip.getTripId(), trip);
+        tripsByPurpose[trip.getTripPurpose().ordinal()]++;
     }
 
     public synchronized void removeTrip(final int tripId) {
-        trips.remove(tripId);
+        MitoTrip trip = trips.remove(tripId);
+        if (trip != null) {
+            tripsByPurpose[trip.getTripPurpose().ordinal()]--;
+        }
+    }
+
+    public synchronized int getNumberOfTripsForPurpose(Purpose purpose) {
+        return tripsByPurpose[purpose.ordinal()];
     }
 }
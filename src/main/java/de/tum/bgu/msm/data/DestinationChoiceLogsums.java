@@ -0,0 +1,66 @@
+package de.tum.bgu.msm.data;
+
+import de.tum.bgu.msm.resources.Purpose;
+
+/**
+ * Destination choice logsums by origin zone and purpose, collected as a by-product of trip
+ * distribution. Logsums depend on the travel time budget of each household, so the value stored
+ * for a zone is the mean over all trips for which a destination was chosen from that zone. Zones
+ * without any such trip have a logsum of NaN. The logsums are kept with the trips and collected
+ * after every distribution run, so that trips of unchanged households keep contributing their
+ * logsums in incremental runs, while removed trips no longer do.
+ */
+public class DestinationChoiceLogsums {
+
+    private final double[][] logsumSums;
+    private final int[][] tripCounts;
+
+    /**
+     * Creates empty logsums for the zones with an index below the given bound, see
+     * {@link DataSet#getZoneIndexBound()}.
+     */
+    public DestinationChoiceLogsums(int zoneIndexBound) {
+        logsumSums = new double[Purpose.values().length][zoneIndexBound];
+        tripCounts = new int[Purpose.values().length][zoneIndexBound];
+    }
+
+    /**
+     * Collects the logsums of all trips of the given data set whose destination was chosen by the
+     * model, see {@link MitoTrip#getDestinationChoiceLogsum()}.
+     */
+    public static DestinationChoiceLogsums of(DataSet dataSet) {
+        DestinationChoiceLogsums logsums = new DestinationChoiceLogsums(dataSet.getZoneIndexBound());
+        for (MitoTrip trip : dataSet.getTrips().values()) {
+            if (trip.getDestinationChoiceZone() != null && trip.getTripDestination() != null) {
+                logsums.add(trip.getTripPurpose(), trip.getDestinationChoiceZone(), trip.getDestinationChoiceLogsum(), 1);
+            }
+        }
+        return logsums;
+    }
+
+    /**
+     * Adds the logsum of a destination choice from the given origin that is used for the given
+     * number of trips. Logsums of choices without any available destination are ignored.
+     */
+    public synchronized void add(Purpose purpose, Zone origin, double logsum, int numberOfTrips) {
+        int row = origin.getIndex();
+        if (row < 0 || row >= tripCounts[0].length || Double.isNaN(logsum) || Double.isInfinite(logsum)) {
+            return;
+        }
+        logsumSums[purpose.ordinal()][row] += logsum * numberOfTrips;
+        tripCounts[purpose.ordinal()][row] += numberOfTrips;
+    }
+
+    public synchronized double getLogsum(Purpose purpose, Zone zone) {
+        int row = zone.getIndex();
+        if (row < 0 || row >= tripCounts[0].length || tripCounts[purpose.ordinal()][row] == 0) {
+            return Double.NaN;
+        }
+        return logsumSums[purpose.ordinal()][row] / tripCounts[purpose.ordinal()][row];
+    }
+
+    public synchronized int getNumberOfTrips(Purpose purpose, Zone zone) {
+        int row = zone.getIndex();
+        return row < 0 || row >= tripCounts[0].length ? 0 : tripCounts[purpose.ordinal()][row];
+    }
+}
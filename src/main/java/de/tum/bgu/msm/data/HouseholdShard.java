@@ -0,0 +1,51 @@
+package de.tum.bgu.msm.data;
+
+import java.io.Serializable;
+
+/**
+ * The part of the synthetic population that one worker of a distributed run simulates: all
+ * households whose home zone id lies in the given range. Zonal household counts still include the
+ * households of all shards, so destination choice sees the whole population.
+ */
+public final class HouseholdShard implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+    private final int fromZoneId;
+    private final int toZoneId;
+
+    /**
+     * Creates the shard with the given index for the home zones fromZoneId to toZoneId, both
+     * inclusive.
+     */
+    public HouseholdShard(int index, int fromZoneId, int toZoneId) {
+        if (fromZoneId > toZoneId) {
+            throw new IllegalArgumentException("Empty zone range " + fromZoneId + "-" + toZoneId);
+        }
+        this.index = index;
+        this.fromZoneId = fromZoneId;
+        this.toZoneId = toZoneId;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getFromZoneId() {
+        return fromZoneId;
+    }
+
+    public int getToZoneId() {
+        return toZoneId;
+    }
+
+    public boolean contains(Zone homeZone) {
+        return homeZone.getZoneId() >= fromZoneId && homeZone.getZoneId() <= toZoneId;
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + index + " (zones " + fromZoneId + "-" + toZoneId + ")";
+    }
+}
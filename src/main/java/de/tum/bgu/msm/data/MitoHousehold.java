@@ -16,6 +16,7 @@ import java.util.*;
 public class MitoHousehold implements Serializable {
 
     private static final Logger logger = Logger.getLogger(MitoHousehold.class);
+    private static final MitoPerson[] NO_PERSONS = new MitoPerson[0];
 
     private final int hhId;
     private int income;
@@ -25,7 +26,13 @@ public class MitoHousehold implements Serializable {
     private final EnumMap<Purpose, ArrayList<MitoTrip>> tripsByPurpose = new EnumMap(Purpose.class);;
     private final EnumMap<Purpose, Double> travelTimeBudgetByPurpose= new EnumMap(Purpose.class);
 
-    private final Map<Integer, MitoPerson> persons  = new HashMap<>();
+    /**
+     * Members in the order in which they were added. Households are small, so the array is sized
+     * exactly and looked up by scanning.
+     */
+    private MitoPerson[] persons = NO_PERSONS;
+    private transient List<MitoPerson> personList;
+    private transient Map<Integer, MitoPerson> personMap;
 
 
     public MitoHousehold(int id, int income, int autos, Zone homeZone) {
@@ -40,7 +47,7 @@ public class MitoHousehold implements Serializable {
     }
 
     public int getHhSize() {
-        return persons.size();
+        return persons.length;
     }
 
     public int getIncome() {
@@ -59,24 +66,62 @@ public class MitoHousehold implements Serializable {
         return homeZone;
     }
 
+    public void setHomeZone(Zone homeZone) {
+        this.homeZone = homeZone;
+    }
+
+    /**
+     * Returns an unmodifiable view of the members by person id. Lookups scan the members, prefer
+     * {@link #getPersonList()} for iteration.
+     */
     public Map<Integer, MitoPerson> getPersons(){
-        return Collections.unmodifiableMap(persons);
+        if (personMap == null) {
+            personMap = new PersonMap();
+        }
+        return personMap;
+    }
+
+    /**
+     * Returns an unmodifiable view of the members in the order in which they were added.
+     */
+    public List<MitoPerson> getPersonList() {
+        if (personList == null) {
+            personList = new PersonList();
+        }
+        return personList;
     }
 
     public void addPerson(MitoPerson person) {
-        MitoPerson test = this.persons.get(person.getId());
-        if(test!= null) {
-            if(test.equals(person)) {
+        int position = findPerson(person.getId());
+        if(position >= 0) {
+            if(persons[position].equals(person)) {
                 logger.warn("Person " + person.getId() + " was already added to household " + this.getHhId());
+                return;
             } else {
                 throw new IllegalArgumentException("Person id " + person.getId() + " already exists in household " + this.getHhId());
             }
         }
-        this.persons.put(person.getId(), person);
+        persons = Arrays.copyOf(persons, persons.length + 1);
+        persons[persons.length - 1] = person;
     }
 
     public void removePerson(Integer personId) {
-        this.persons.remove(personId);
+        int position = findPerson(personId);
+        if (position >= 0) {
+            MitoPerson[] remaining = new MitoPerson[persons.length - 1];
+            System.arraycopy(persons, 0, remaining, 0, position);
+            System.arraycopy(persons, position + 1, remaining, position, persons.length - position - 1);
+            persons = remaining;
+        }
+    }
+
+    private int findPerson(int personId) {
+        for (int i = 0; i < persons.length; i++) {
+            if (persons[i].getId() == personId) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     public void addTrip(MitoTrip trip) {
@@ -112,4 +157,71 @@ public class MitoHousehold implements Serializable {
     public double getTravelTimeBudgetForPurpose(Purpose purpose) {
         return travelTimeBudgetByPurpose.get(purpose) == null ? 0. : travelTimeBudgetByPurpose.get(purpose) ;
     }
-}
\ No newline at end of file
+
+    private final class PersonList extends AbstractList<MitoPerson> implements RandomAccess {
+
+        @Override
+        public MitoPerson get(int index) {
+            return persons[index];
+        }
+
+        @Override
+        public int size() {
+            return persons.length;
+        }
+    }
+
+    private final class PersonMap extends AbstractMap<Integer, MitoPerson> {
+
+        @Override
+        public MitoPerson get(Object key) {
+            if (!(key instanceof Integer)) {
+                return null;
+            }
+            int position = findPerson((Integer) key);
+            return position < 0 ? null : persons[position];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return persons.length;
+        }
+
+        @Override
+        public Collection<MitoPerson> values() {
+            return getPersonList();
+        }
+
+        @Override
+        public Set<Entry<Integer, MitoPerson>> entrySet() {
+            return new AbstractSet<Entry<Integer, MitoPerson>>() {
+                @Override
+                public Iterator<Entry<Integer, MitoPerson>> iterator() {
+                    Iterator<MitoPerson> members = getPersonList().iterator();
+                    return new Iterator<Entry<Integer, MitoPerson>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return members.hasNext();
+                        }
+
+                        @Override
+                        public Entry<Integer, MitoPerson> next() {
+                            MitoPerson person = members.next();
+                            return new SimpleImmutableEntry<>(person.getId(), person);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return persons.length;
+                }
+            };
+        }
+    }
+}
@@ -2,6 +2,7 @@ package de.tum.bgu.msm.data;
 
 import de.tum.bgu.msm.resources.Gender;
 import de.tum.bgu.msm.resources.Occupation;
+import de.tum.bgu.msm.resources.Purpose;
 import org.apache.log4j.Logger;
 
 import java.io.Serializable;
@@ -17,6 +18,7 @@ import java.util.*;
 public class MitoPerson implements Serializable {
 
     private static final Logger logger = Logger.getLogger(MitoPerson.class);
+    private static final MitoTrip[] NO_TRIPS = new MitoTrip[0];
 
     private final int id;
     private final Gender gender;
@@ -26,7 +28,11 @@ public class MitoPerson implements Serializable {
     private int age;
     private boolean driversLicense;
 
-    private Map<Integer,MitoTrip> trips = new HashMap();
+    /**
+     * Trips by purpose ordinal, in the order in which they were assigned. Persons only have a few
+     * trips per purpose, so the arrays are sized exactly and grown on every added trip.
+     */
+    private final MitoTrip[][] tripsByPurpose = new MitoTrip[Purpose.values().length][];
 
     public MitoPerson(int id, Occupation occupation, int workplace, int age, Gender gender, boolean driversLicense) {
         this.id = id;
@@ -77,23 +83,84 @@ public class MitoPerson implements Serializable {
         this.driversLicense = driversLicense;
     }
 
+    /**
+     * Returns all trips of this person by trip id. The map is built on every call, prefer
+     * {@link #getTripsForPurpose(Purpose)}.
+     */
     public Map<Integer, MitoTrip> getTrips() {
-        return Collections.unmodifiableMap(this.trips);
+        Map<Integer, MitoTrip> trips = new LinkedHashMap<>();
+        for (MitoTrip[] tripsOfPurpose : tripsByPurpose) {
+            if (tripsOfPurpose != null) {
+                for (MitoTrip trip : tripsOfPurpose) {
+                    trips.put(trip.getTripId(), trip);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(trips);
+    }
+
+    /**
+     * Returns the trips of the given purpose in the order in which they were assigned.
+     */
+    public List<MitoTrip> getTripsForPurpose(Purpose purpose) {
+        MitoTrip[] trips = tripsByPurpose[purpose.ordinal()];
+        return Collections.unmodifiableList(Arrays.asList(trips == null ? NO_TRIPS : trips));
+    }
+
+    public int getNumberOfTripsForPurpose(Purpose purpose) {
+        MitoTrip[] trips = tripsByPurpose[purpose.ordinal()];
+        return trips == null ? 0 : trips.length;
     }
 
     public void addTrip(MitoTrip trip) {
-        MitoTrip test = this.trips.get(trip.getTripId());
+        MitoTrip test = findTrip(trip.getTripId());
         if(test != null) {
             if(test.equals(trip)) {
                 logger.warn("Trip " + trip.getTripId() + "already exists in person " + this.getId());
+                return;
             } else {
                 throw new IllegalArgumentException("Trip id " + trip.getTripId() + " already exists in person " + this.getId());
             }
         }
-        this.trips.put(trip.getTripId(), trip);
+        int purpose = trip.getTripPurpose().ordinal();
+        MitoTrip[] trips = tripsByPurpose[purpose];
+        if (trips == null) {
+            trips = new MitoTrip[]{trip};
+        } else {
+            trips = Arrays.copyOf(trips, trips.length + 1);
+            trips[trips.length - 1] = trip;
+        }
+        tripsByPurpose[purpose] = trips;
     }
 
     public void removeTrip(Integer tripId) {
-        this.trips.remove(tripId);
+        for (int purpose = 0; purpose < tripsByPurpose.length; purpose++) {
+            MitoTrip[] trips = tripsByPurpose[purpose];
+            if (trips == null) {
+                continue;
+            }
+            for (int i = 0; i < trips.length; i++) {
+                if (trips[i].getTripId() == tripId) {
+                    MitoTrip[] remaining = new MitoTrip[trips.length - 1];
+                    System.arraycopy(trips, 0, remaining, 0, i);
+                    System.arraycopy(trips, i + 1, remaining, i, trips.length - i - 1);
+                    tripsByPurpose[purpose] = remaining.length == 0 ? null : remaining;
+                    return;
+                }
+            }
+        }
+    }
+
+    private MitoTrip findTrip(int tripId) {
+        for (MitoTrip[] trips : tripsByPurpose) {
+            if (trips != null) {
+                for (MitoTrip trip : trips) {
+                    if (trip.getTripId() == tripId) {
+                        return trip;
+                    }
+                }
+            }
+        }
+        return null;
     }
 }
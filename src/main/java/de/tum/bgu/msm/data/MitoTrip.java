@@ -15,21 +15,42 @@ public class MitoTrip implements Serializable {
 
     private final int tripId;
     private final Purpose tripPurpose;
+    private final long randomStreamId;
 
     private Zone tripOrigin;
     private Zone tripDestination;
 
     private MitoPerson person;
 
+    private Zone destinationChoiceZone;
+    private double destinationChoiceLogsum = Double.NaN;
+
     public MitoTrip(int tripId, Purpose tripPurpose) {
+        this(tripId, tripPurpose, tripId);
+    }
+
+    /**
+     * @param randomStreamId id under which the random streams of this trip are keyed, see
+     *                       {@link de.tum.bgu.msm.util.RandomStreams#householdEntityId}
+     */
+    public MitoTrip(int tripId, Purpose tripPurpose, long randomStreamId) {
         this.tripId = tripId;
         this.tripPurpose = tripPurpose;
+        this.randomStreamId = randomStreamId;
     }
 
     public int getTripId() {
         return tripId;
     }
 
+    /**
+     * Returns the id that keys the random streams of this trip. Unlike the trip id, it does not
+     * depend on the order in which trips were created.
+     */
+    public long getRandomStreamId() {
+        return randomStreamId;
+    }
+
     public Zone getTripOrigin() {
         return tripOrigin;
     }
@@ -58,6 +79,27 @@ public class MitoTrip implements Serializable {
         this.person = person;
     }
 
+    /**
+     * Returns the zone from which the destination of this trip was chosen, i.e. the home zone or
+     * the base zone of a non-home-based trip, or null if no destination was chosen by the model.
+     */
+    public Zone getDestinationChoiceZone() {
+        return destinationChoiceZone;
+    }
+
+    /**
+     * Returns the logsum of the destination choice of this trip, or NaN if no destination was
+     * chosen by the model.
+     */
+    public double getDestinationChoiceLogsum() {
+        return destinationChoiceLogsum;
+    }
+
+    public void setDestinationChoiceLogsum(Zone choiceZone, double logsum) {
+        this.destinationChoiceZone = choiceZone;
+        this.destinationChoiceLogsum = logsum;
+    }
+
     @Override
     public String toString() {
         return "Trip [id: " + this.tripId + " purpose: " + this.tripPurpose + "]";
@@ -0,0 +1,124 @@
+package de.tum.bgu.msm.data;
+
+import de.tum.bgu.msm.resources.Purpose;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregate results of a model run: trip productions by zone and purpose, trips by origin,
+ * destination and purpose, and totals. Aggregates of several household shards are merged with
+ * {@link #add(TripAggregate)}. Only trips with origin and destination are counted by zone.
+ */
+public class TripAggregate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int households;
+    private int persons;
+    private int trips;
+    private int undistributedTrips;
+
+    private final Map<Integer, int[]> productionsByZone = new TreeMap<>();
+    private final Map<Long, int[]> tripsByRelation = new HashMap<>();
+
+    public static TripAggregate of(DataSet dataSet) {
+        return of(dataSet, true);
+    }
+
+    /**
+     * Aggregates the trips of the data set. Trips by relation are only counted if requested, as
+     * they are only needed for the trip matrix and make up most of the aggregate.
+     */
+    public static TripAggregate of(DataSet dataSet, boolean byRelation) {
+        TripAggregate aggregate = new TripAggregate();
+        aggregate.households = dataSet.getHouseholds().size();
+        aggregate.persons = dataSet.getPersons().size();
+        aggregate.trips = dataSet.getTrips().size();
+        for (MitoTrip trip : dataSet.getTrips().values()) {
+            Zone origin = trip.getTripOrigin();
+            Zone destination = trip.getTripDestination();
+            if (origin == null || destination == null) {
+                aggregate.undistributedTrips++;
+                continue;
+            }
+            int purpose = trip.getTripPurpose().ordinal();
+            aggregate.productionsByZone.computeIfAbsent(origin.getZoneId(), k -> new int[Purpose.values().length])[purpose]++;
+            if (byRelation) {
+                aggregate.tripsByRelation.computeIfAbsent(getRelation(origin.getZoneId(), destination.getZoneId()),
+                        k -> new int[Purpose.values().length])[purpose]++;
+            }
+        }
+        return aggregate;
+    }
+
+    /**
+     * Adds the counts of the other aggregate to this one.
+     */
+    public void add(TripAggregate other) {
+        households += other.households;
+        persons += other.persons;
+        trips += other.trips;
+        undistributedTrips += other.undistributedTrips;
+        addAll(productionsByZone, other.productionsByZone);
+        addAll(tripsByRelation, other.tripsByRelation);
+    }
+
+    private static <K> void addAll(Map<K, int[]> counts, Map<K, int[]> otherCounts) {
+        for (Map.Entry<K, int[]> entry : otherCounts.entrySet()) {
+            int[] countsByPurpose = counts.computeIfAbsent(entry.getKey(), k -> new int[Purpose.values().length]);
+            for (int i = 0; i < countsByPurpose.length; i++) {
+                countsByPurpose[i] += entry.getValue()[i];
+            }
+        }
+    }
+
+    public int getNumberOfHouseholds() {
+        return households;
+    }
+
+    public int getNumberOfPersons() {
+        return persons;
+    }
+
+    public int getNumberOfTrips() {
+        return trips;
+    }
+
+    public int getNumberOfUndistributedTrips() {
+        return undistributedTrips;
+    }
+
+    public int getProductions(int zoneId, Purpose purpose) {
+        int[] productions = productionsByZone.get(zoneId);
+        return productions == null ? 0 : productions[purpose.ordinal()];
+    }
+
+    public int getTrips(int originId, int destinationId, Purpose purpose) {
+        int[] relationTrips = tripsByRelation.get(getRelation(originId, destinationId));
+        return relationTrips == null ? 0 : relationTrips[purpose.ordinal()];
+    }
+
+    /**
+     * Returns the trips by purpose ordinal of all relations with at least one trip, keyed as
+     * returned by {@link #getRelation(int, int)}.
+     */
+    public Map<Long, int[]> getTripsByRelation() {
+        return Collections.unmodifiableMap(tripsByRelation);
+    }
+
+    public static long getRelation(int originId, int destinationId) {
+        return ((long) originId << 32) | (destinationId & 0xffffffffL);
+    }
+
+    public static int getOrigin(long relation) {
+        return (int) (relation >>> 32);
+    }
+
+    public static int getDestination(long relation) {
+        return (int) relation;
+    }
+}
@@ -6,6 +6,7 @@ package de.tum.bgu.msm.data;
 public class Zone {
 
     private final int zoneId;
+    private int index = -1;
     private float size;
     private float reductionAtBorderDamper = 0;
     private int region = -1;
@@ -32,10 +33,38 @@ public class Zone {
         this.size = size;
     }
 
+    /**
+     * Creates a copy of the given zone that does not belong to any data set yet, so that several
+     * data sets, e.g. the variants of a scenario batch, can each modify their own zones.
+     */
+    public Zone(Zone zone) {
+        this(zone.zoneId, zone.size);
+        setAttributesFrom(zone);
+        this.numberOfHouseholds = zone.numberOfHouseholds;
+        this.autoAccessibilityHouseholds = zone.autoAccessibilityHouseholds;
+        this.autoAccessibilityRetail = zone.autoAccessibilityRetail;
+        this.autoAccessibilityOther = zone.autoAccessibilityOther;
+        this.transitAccessibilityOther = zone.transitAccessibilityOther;
+    }
+
     public int getZoneId() {
         return this.zoneId;
     }
 
+    /**
+     * Returns the index of this zone in its data set, or -1 if the zone has not been added to a
+     * data set or has been removed from it. Indices are assigned in the order in which zones are
+     * added and never change or get reused, so arrays holding values by zone index, sized by
+     * {@link DataSet#getZoneIndexBound()}, stay valid when other zones are removed.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     public float getSize() {
         return this.size;
     }
@@ -157,4 +186,21 @@ public class Zone {
     public void setTransitAccessibilityOther(float transitAcessibilityOther) {
         this.transitAccessibilityOther = transitAcessibilityOther;
     }
+
+    /**
+     * Takes over the zonal attributes of the given zone, e.g. when a land use model reports new
+     * employment figures for the next year. The number of households is kept, as it follows from
+     * the households of the data set.
+     */
+    public void setAttributesFrom(Zone zone) {
+        this.size = zone.size;
+        this.reductionAtBorderDamper = zone.reductionAtBorderDamper;
+        this.region = zone.region;
+        this.schoolEnrollment = zone.schoolEnrollment;
+        this.industrialEmpl = zone.industrialEmpl;
+        this.retailEmpl = zone.retailEmpl;
+        this.officeEmpl = zone.officeEmpl;
+        this.otherEmpl = zone.otherEmpl;
+        this.totalEmpl = zone.totalEmpl;
+    }
 }
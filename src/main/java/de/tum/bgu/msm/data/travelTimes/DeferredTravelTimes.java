@@ -0,0 +1,44 @@
+package de.tum.bgu.msm.data.travelTimes;
+
+import de.tum.bgu.msm.data.Zone;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Travel times that are still being loaded in the background. The first lookup waits until they
+ * are available, so model steps that do not need travel times can run while skims are read.
+ */
+public class DeferredTravelTimes implements TravelTimes {
+
+    private final Future<? extends TravelTimes> loading;
+    private volatile TravelTimes travelTimes;
+
+    public DeferredTravelTimes(Future<? extends TravelTimes> loading) {
+        this.loading = loading;
+    }
+
+    @Override
+    public double getTravelTimeFromTo(Zone origin, Zone destination) {
+        TravelTimes loaded = travelTimes;
+        if (loaded == null) {
+            loaded = await();
+        }
+        return loaded.getTravelTimeFromTo(origin, destination);
+    }
+
+    /**
+     * Waits until the travel times are loaded and returns them.
+     */
+    public TravelTimes await() {
+        try {
+            travelTimes = loading.get();
+            return travelTimes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for travel times.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Loading travel times failed.", e.getCause());
+        }
+    }
+}
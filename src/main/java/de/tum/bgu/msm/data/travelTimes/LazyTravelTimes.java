@@ -0,0 +1,97 @@
+package de.tum.bgu.msm.data.travelTimes;
+
+import de.tum.bgu.msm.data.Zone;
+import org.apache.log4j.Logger;
+
+import java.lang.ref.SoftReference;
+import java.util.function.Supplier;
+
+/**
+ * Travel times that are loaded the first time they are looked up. They are only softly
+ * referenced afterwards, so the garbage collector can evict them when memory runs short, and they
+ * are loaded again on the next lookup. While they are held, see {@link #hold()}, they are strongly
+ * referenced and cannot be evicted, so that a model step does not load them more than once.
+ */
+public class LazyTravelTimes implements TravelTimes {
+
+    private static final Logger logger = Logger.getLogger(LazyTravelTimes.class);
+
+    private final String mode;
+    private final Supplier<? extends TravelTimes> provider;
+    private volatile SoftReference<TravelTimes> travelTimes = new SoftReference<>(null);
+    private volatile TravelTimes heldTravelTimes;
+    private int holds = 0;
+    private int loadCount = 0;
+
+    public LazyTravelTimes(String mode, Supplier<? extends TravelTimes> provider) {
+        this.mode = mode;
+        this.provider = provider;
+    }
+
+    @Override
+    public double getTravelTimeFromTo(Zone origin, Zone destination) {
+        TravelTimes loaded = heldTravelTimes;
+        if (loaded == null) {
+            loaded = travelTimes.get();
+        }
+        if (loaded == null) {
+            loaded = load();
+        }
+        return loaded.getTravelTimeFromTo(origin, destination);
+    }
+
+    public boolean isLoaded() {
+        return travelTimes.get() != null;
+    }
+
+    /**
+     * Keeps the travel times in memory, once loaded, until every hold has been released again.
+     */
+    public synchronized void hold() {
+        holds++;
+        heldTravelTimes = travelTimes.get();
+    }
+
+    public synchronized void release() {
+        if (holds == 0) {
+            throw new IllegalStateException("Travel times for mode " + mode + " are not held.");
+        }
+        holds--;
+        if (holds == 0) {
+            heldTravelTimes = null;
+        }
+    }
+
+    /**
+     * Drops the soft reference as the garbage collector would when memory runs short.
+     */
+    void evict() {
+        travelTimes.clear();
+    }
+
+    /**
+     * Returns how often the travel times have been loaded, i.e. one more than how often they were
+     * evicted and needed again.
+     */
+    public synchronized int getLoadCount() {
+        return loadCount;
+    }
+
+    private synchronized TravelTimes load() {
+        TravelTimes loaded = travelTimes.get();
+        if (loaded == null) {
+            if (loadCount > 0) {
+                logger.info("  Travel times for mode " + mode + " were evicted, loading them again.");
+            } else {
+                logger.info("  Loading travel times for mode " + mode + " on first use.");
+            }
+            loaded = provider.get();
+            travelTimes = new SoftReference<>(loaded);
+            loadCount++;
+            if (holds > 0) {
+                heldTravelTimes = loaded;
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,116 @@
+package de.tum.bgu.msm.data.travelTimes;
+
+import com.pb.common.matrix.Matrix;
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.Zone;
+import org.apache.log4j.Logger;
+
+/**
+ * Travel times stored as multiples of a fixed precision in 16 bits per cell, i.e. half the memory
+ * of a float matrix. With the symmetric layout, only the upper triangle is kept and the travel
+ * time of both directions is their mean, which halves the memory once more. Cells are addressed
+ * by zone index, which stays valid when zones are removed, but zones added after the travel times
+ * were built have no travel times.
+ * <p>
+ * Times above 65,535 times the precision are capped, negative times are stored as zero. The
+ * largest difference to the original times is logged when the travel times are built.
+ */
+public class QuantizedTravelTimes implements TravelTimes {
+
+    private static final Logger logger = Logger.getLogger(QuantizedTravelTimes.class);
+
+    private final int numberOfZones;
+    private final double precision;
+    private final boolean symmetric;
+    private final char[] values;
+    private final double maxError;
+
+    /**
+     * Quantizes the given matrix, which is addressed by zone id, for all zones of the data set.
+     * The precision is given in minutes, e.g. 0.1.
+     */
+    public QuantizedTravelTimes(String name, Matrix matrix, DataSet dataSet, double precision, boolean symmetric) {
+        if (!(precision > 0)) {
+            throw new IllegalArgumentException("Precision has to be positive, got " + precision);
+        }
+        this.numberOfZones = dataSet.getZoneIndexBound();
+        this.precision = precision;
+        this.symmetric = symmetric;
+        long size = symmetric ? (long) numberOfZones * (numberOfZones + 1) / 2 : (long) numberOfZones * numberOfZones;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many zones for a quantized matrix: " + numberOfZones);
+        }
+        this.values = new char[(int) size];
+
+        int[] zoneIds = new int[numberOfZones];
+        for (int i = 0; i < numberOfZones; i++) {
+            Zone zone = dataSet.getZoneByIndex(i);
+            // removed zones keep their index, their cells stay zero
+            zoneIds[i] = zone == null ? -1 : zone.getZoneId();
+        }
+        double error = 0;
+        int cappedCells = 0;
+        for (int i = 0; i < numberOfZones; i++) {
+            if (zoneIds[i] < 0) {
+                continue;
+            }
+            for (int j = symmetric ? i : 0; j < numberOfZones; j++) {
+                if (zoneIds[j] < 0) {
+                    continue;
+                }
+                double time = matrix.getValueAt(zoneIds[i], zoneIds[j]);
+                double reverseTime = symmetric ? matrix.getValueAt(zoneIds[j], zoneIds[i]) : time;
+                long code = Math.round((time + reverseTime) / 2 / precision);
+                if (code > Character.MAX_VALUE) {
+                    code = Character.MAX_VALUE;
+                    cappedCells++;
+                } else if (code < 0) {
+                    code = 0;
+                }
+                values[getPosition(i, j)] = (char) code;
+                double stored = code * precision;
+                error = Math.max(error, Math.max(Math.abs(stored - time), Math.abs(stored - reverseTime)));
+            }
+        }
+        this.maxError = error;
+        logger.info("  Quantized travel times " + name + " to " + precision + " minutes" + (symmetric ? " (symmetric)" : "")
+                + " in " + values.length * 2 / 1024 + " KB. Maximum error: " + maxError + " minutes.");
+        if (cappedCells > 0) {
+            logger.warn("  " + cappedCells + " cells of " + name + " exceed " + Character.MAX_VALUE * precision
+                    + " minutes and were capped. Consider a coarser precision.");
+        }
+    }
+
+    @Override
+    public double getTravelTimeFromTo(Zone origin, Zone destination) {
+        if(origin == null || destination == null) {
+            logger.warn("Origin or Destination is null. Returning 0 Travel time.");
+            return 0;
+        }
+        int originIndex = origin.getIndex();
+        int destinationIndex = destination.getIndex();
+        if (originIndex < 0 || originIndex >= numberOfZones || destinationIndex < 0 || destinationIndex >= numberOfZones) {
+            throw new IllegalArgumentException("No quantized travel time from zone " + origin.getZoneId() + " to zone "
+                    + destination.getZoneId() + ". Zones added after the travel times were built are not covered.");
+        }
+        return values[getPosition(originIndex, destinationIndex)] * precision;
+    }
+
+    /**
+     * Returns the largest absolute difference between stored and original travel times, in
+     * minutes.
+     */
+    public double getMaxError() {
+        return maxError;
+    }
+
+    private int getPosition(int origin, int destination) {
+        if (!symmetric) {
+            return origin * numberOfZones + destination;
+        }
+        int row = Math.min(origin, destination);
+        int column = Math.max(origin, destination);
+        // rows before this one hold numberOfZones, numberOfZones - 1, ... cells
+        return (int) ((long) row * (2 * numberOfZones - row + 1) / 2) + column - row;
+    }
+}
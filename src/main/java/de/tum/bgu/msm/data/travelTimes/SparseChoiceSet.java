@@ -0,0 +1,147 @@
+package de.tum.bgu.msm.data.travelTimes;
+
+import de.tum.bgu.msm.data.Zone;
+import org.apache.log4j.Logger;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Per-origin sets of candidate destinations, i.e. all zones that can be reached within a
+ * travel time cutoff. Candidates are stored in compressed sparse row (CSR) format: the
+ * candidates of the origin in row r are found in {@code candidates[offsets[r]..offsets[r+1])}.
+ * Rows and candidates are positions in the zones the choice set was built from, origins are
+ * mapped to their row by zone index.
+ */
+public class SparseChoiceSet {
+
+    private static final Logger logger = Logger.getLogger(SparseChoiceSet.class);
+
+    private final Zone[] zones;
+    private final int[] rowsByIndex;
+    private final List<Zone> allZones;
+
+    private final int[] offsets;
+    private final int[] candidates;
+
+    private SparseChoiceSet(Zone[] zones, int[] offsets, int[] candidates) {
+        this.zones = zones;
+        this.offsets = offsets;
+        this.candidates = candidates;
+        int indexBound = 0;
+        for (Zone zone : zones) {
+            if (zone.getIndex() < 0) {
+                throw new IllegalArgumentException("Zone " + zone.getZoneId() + " is not part of a data set.");
+            }
+            indexBound = Math.max(indexBound, zone.getIndex() + 1);
+        }
+        this.rowsByIndex = new int[indexBound];
+        Arrays.fill(rowsByIndex, -1);
+        for (int i = 0; i < zones.length; i++) {
+            rowsByIndex[zones[i].getIndex()] = i;
+        }
+        this.allZones = Arrays.asList(zones);
+    }
+
+    /**
+     * Creates a choice set in which every zone is a candidate for every origin.
+     */
+    public static SparseChoiceSet full(Collection<Zone> zones) {
+        return new SparseChoiceSet(zones.toArray(new Zone[zones.size()]), null, null);
+    }
+
+    /**
+     * Creates a choice set that contains, for every origin, all zones with a travel time
+     * of at most {@code maxTravelTime}. Origins that would end up without any candidate
+     * keep the full set of zones, so that every trip can still find a destination.
+     */
+    public static SparseChoiceSet build(Collection<Zone> zones, TravelTimes travelTimes, double maxTravelTime) {
+        if (maxTravelTime <= 0) {
+            return full(zones);
+        }
+        long startTime = System.currentTimeMillis();
+        Zone[] zoneArray = zones.toArray(new Zone[zones.size()]);
+        int[] offsets = new int[zoneArray.length + 1];
+        int[] candidates = new int[Math.max(16, zoneArray.length)];
+        int size = 0;
+        int unrestrictedOrigins = 0;
+        for (int origin = 0; origin < zoneArray.length; origin++) {
+            offsets[origin] = size;
+            for (int destination = 0; destination < zoneArray.length; destination++) {
+                if (travelTimes.getTravelTimeFromTo(zoneArray[origin], zoneArray[destination]) <= maxTravelTime) {
+                    candidates = ensureCapacity(candidates, size + 1);
+                    candidates[size++] = destination;
+                }
+            }
+            if (size == offsets[origin]) {
+                unrestrictedOrigins++;
+                candidates = ensureCapacity(candidates, size + zoneArray.length);
+                for (int destination = 0; destination < zoneArray.length; destination++) {
+                    candidates[size++] = destination;
+                }
+            }
+        }
+        offsets[zoneArray.length] = size;
+        if (unrestrictedOrigins > 0) {
+            logger.warn(unrestrictedOrigins + " zones reach no destination within " + maxTravelTime
+                    + " minutes. All zones are kept as candidates for these origins.");
+        }
+        logger.info("  Built choice sets with travel time cutoff of " + maxTravelTime + " minutes: "
+                + size + " of " + ((long) zoneArray.length * zoneArray.length) + " zone pairs kept ("
+                + (System.currentTimeMillis() - startTime) + " ms).");
+        return new SparseChoiceSet(zoneArray, offsets, Arrays.copyOf(candidates, size));
+    }
+
+    private static int[] ensureCapacity(int[] array, int capacity) {
+        if (capacity <= array.length) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+    }
+
+    /**
+     * Returns the candidate destinations of the given origin as a read-only view.
+     */
+    public List<Zone> getCandidates(Zone origin) {
+        if (offsets == null) {
+            return allZones;
+        }
+        int index = origin.getIndex();
+        int row = index < 0 || index >= rowsByIndex.length ? -1 : rowsByIndex[index];
+        if (row < 0 || zones[row] != origin) {
+            logger.warn("Zone " + origin.getZoneId() + " is not part of the choice set. Using all zones.");
+            return allZones;
+        }
+        return new CandidateList(offsets[row], offsets[row + 1]);
+    }
+
+    public int getNumberOfCandidates(Zone origin) {
+        return getCandidates(origin).size();
+    }
+
+    private final class CandidateList extends AbstractList<Zone> {
+
+        private final int start;
+        private final int end;
+
+        private CandidateList(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Zone get(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (end - start));
+            }
+            return zones[candidates[start + index]];
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package de.tum.bgu.msm.distributed;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.HouseholdShard;
+import de.tum.bgu.msm.data.TripAggregate;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.io.input.readers.HouseholdsReader;
+import de.tum.bgu.msm.io.input.readers.ZonesReader;
+import de.tum.bgu.msm.io.output.TripGenerationWriter;
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.util.MitoUtil;
+import de.tum.bgu.msm.util.concurrent.ModuleExecutor;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+
+/**
+ * Coordinates a distributed run, in which the synthetic population is split into household shards
+ * by ranges of home zones and every shard is simulated by a {@link ShardWorker} in its own JVM.
+ * Workers connect to the coordinator, receive their shard, read zones, skims, survey and the
+ * households of their shard, run the model steps and send back the {@link TripAggregate} of their
+ * shard. The coordinator merges the aggregates and writes trip productions and, if
+ * {@link Properties#TRIP_MATRIX_OUTPUT} is set, the trip matrix.
+ * <p>
+ * Workers draw from the same per-entity random streams, which are keyed by household rather than
+ * by trip id, so every trip draws the same random numbers as in a single-JVM run even though trip
+ * ids are only unique within a shard. If a worker fails or disconnects, the whole run fails.
+ */
+public class ShardCoordinator implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(ShardCoordinator.class);
+
+    private final ServerSocket serverSocket;
+    private final Set<Socket> openSockets = Collections.synchronizedSet(new HashSet<>());
+    private volatile boolean aborted = false;
+
+    /**
+     * Listens on the given port of the loopback interface, or on any free port if it is 0. Workers
+     * have to connect within the given timeout in seconds, 0 waits forever.
+     */
+    public ShardCoordinator(int port, int timeoutSeconds) {
+        this(null, port, timeoutSeconds);
+    }
+
+    /**
+     * Listens on the given host and port, or on the loopback interface if the host is null. Any
+     * host that can connect receives a shard, so only use a host reachable by trusted machines.
+     */
+    public ShardCoordinator(String host, int port, int timeoutSeconds) {
+        try {
+            InetAddress address = host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host);
+            serverSocket = new ServerSocket(port, 0, address);
+            serverSocket.setSoTimeout(timeoutSeconds * 1000);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not listen for workers on " + (host == null ? "" : host + ":") + port, e);
+        }
+        logger.info("  Waiting for workers on " + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the address local workers connect to.
+     */
+    public InetAddress getWorkerAddress() {
+        InetAddress address = serverSocket.getInetAddress();
+        return address.isAnyLocalAddress() ? InetAddress.getLoopbackAddress() : address;
+    }
+
+    /**
+     * Splits the zones of the data set into at most the given number of ranges of consecutive
+     * zone ids with about the same number of households each.
+     */
+    public static List<HouseholdShard> planShards(DataSet dataSet, int numberOfShards) {
+        List<Zone> zones = new ArrayList<>(dataSet.getZones().values());
+        if (zones.isEmpty()) {
+            throw new IllegalArgumentException("No zones to split into shards.");
+        }
+        zones.sort(Comparator.comparingInt(Zone::getZoneId));
+        numberOfShards = Math.max(1, Math.min(numberOfShards, zones.size()));
+        long totalHouseholds = 0;
+        for (Zone zone : zones) {
+            totalHouseholds += zone.getNumberOfHouseholds();
+        }
+        List<HouseholdShard> shards = new ArrayList<>();
+        int start = 0;
+        long households = 0;
+        for (int i = 0; i < zones.size(); i++) {
+            households += zones.get(i).getNumberOfHouseholds();
+            int remainingShards = numberOfShards - shards.size() - 1;
+            int remainingZones = zones.size() - i - 1;
+            boolean full = households >= totalHouseholds * (shards.size() + 1) / numberOfShards;
+            if (i == zones.size() - 1 || remainingShards > 0 && (full || remainingZones == remainingShards)) {
+                shards.add(new HouseholdShard(shards.size(), zones.get(start).getZoneId(), zones.get(i).getZoneId()));
+                start = i + 1;
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Hands every shard to the next worker that connects and returns the merged aggregates of all
+     * shards once every worker has answered.
+     */
+    public TripAggregate run(List<HouseholdShard> shards) {
+        long startTime = System.currentTimeMillis();
+        TripAggregate result = new TripAggregate();
+        ModuleExecutor executor = new ModuleExecutor("Distributed run", shards.size());
+        for (HouseholdShard shard : shards) {
+            executor.addTask(shard.toString(), () -> {
+                TripAggregate aggregate = serve(shard);
+                synchronized (result) {
+                    result.add(aggregate);
+                }
+            });
+        }
+        executor.execute();
+        logger.info("  Merged " + shards.size() + " shards with " + result.getNumberOfHouseholds() + " households and "
+                + result.getNumberOfTrips() + " trips in " + (System.currentTimeMillis() - startTime) / 1000. + " seconds.");
+        return result;
+    }
+
+    private TripAggregate serve(HouseholdShard shard) {
+        Socket socket = null;
+        try {
+            socket = serverSocket.accept();
+            openSockets.add(socket);
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeObject(shard);
+            out.flush();
+            logger.info("  Sent " + shard + " to worker " + socket.getRemoteSocketAddress());
+            ObjectInputStream in = new ShardObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            Object answer = in.readObject();
+            if (answer instanceof Throwable) {
+                throw new RuntimeException("Worker " + socket.getRemoteSocketAddress() + " failed on " + shard, (Throwable) answer);
+            }
+            logger.info("  Received results of " + shard);
+            return (TripAggregate) answer;
+        } catch (IOException | ClassNotFoundException e) {
+            if (aborted) {
+                throw new RuntimeException("Distributed run was aborted before " + shard + " was done.", e);
+            }
+            abort();
+            throw new RuntimeException("Lost the worker of " + shard, e);
+        } catch (RuntimeException e) {
+            abort();
+            throw e;
+        } finally {
+            if (socket != null) {
+                openSockets.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * Stops waiting for all other workers, as the run has failed.
+     */
+    private void abort() {
+        aborted = true;
+        closeQuietly(serverSocket);
+        synchronized (openSockets) {
+            for (Socket socket : openSockets) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.debug("Could not close " + closeable, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(serverSocket);
+    }
+
+    /**
+     * Starts the given number of workers as local JVMs with the class path of this JVM, e.g. to
+     * test a distributed run on one machine.
+     */
+    public static List<Process> startLocalWorkers(int numberOfWorkers, String propertiesFile, InetAddress host, int port) {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < numberOfWorkers; i++) {
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        ShardWorker.class.getName(), propertiesFile, host.getHostAddress(),
+                        String.valueOf(port));
+                workers.add(builder.inheritIO().start());
+            }
+        } catch (IOException e) {
+            workers.forEach(Process::destroy);
+            throw new RuntimeException("Could not start local workers.", e);
+        }
+        return workers;
+    }
+
+    /**
+     * Runs the model distributed over the number of shards set by
+     * {@link Properties#DISTRIBUTED_SHARDS}. Expects the properties file as argument. Workers are
+     * started locally if {@link Properties#DISTRIBUTED_LOCAL_WORKERS} is set, otherwise they have to
+     * be started with the same properties and the host and port of the coordinator. The coordinator
+     * only accepts workers on the same machine unless {@link Properties#DISTRIBUTED_HOST} is set.
+     */
+    public static void main(String[] args) {
+        ResourceBundle resources = MitoUtil.createResourceBundle(args[0]);
+        Resources.INSTANCE.setResources(resources);
+        MitoUtil.setBaseDirectory(resources.getString(Properties.BASE_DIRECTORY));
+
+        logger.info("Planning household shards for a distributed run of MITO");
+        DataSet dataSet = new DataSet();
+        new ZonesReader(dataSet).read();
+        new HouseholdsReader(dataSet).read();
+        List<HouseholdShard> shards = planShards(dataSet, Resources.INSTANCE.getInt(Properties.DISTRIBUTED_SHARDS, 2));
+        logger.info("  Split " + dataSet.getHouseholds().size() + " households into " + shards);
+
+        List<Process> workers = Collections.emptyList();
+        try (ShardCoordinator coordinator = new ShardCoordinator(Resources.INSTANCE.getString(Properties.DISTRIBUTED_HOST, null),
+                Resources.INSTANCE.getInt(Properties.DISTRIBUTED_PORT, 0), Resources.INSTANCE.getInt(Properties.DISTRIBUTED_TIMEOUT, 600))) {
+            if (Resources.INSTANCE.getBoolean(Properties.DISTRIBUTED_LOCAL_WORKERS, false)) {
+                workers = startLocalWorkers(shards.size(), args[0], coordinator.getWorkerAddress(), coordinator.getPort());
+            }
+            TripAggregate result = coordinator.run(shards);
+            TripGenerationWriter.writeTripsByPurposeAndZone(dataSet.getZones().keySet(), result);
+            String matrixFile = Resources.INSTANCE.getString(Properties.TRIP_MATRIX_OUTPUT, null);
+            if (matrixFile != null) {
+                TripGenerationWriter.writeTripMatrix(result, matrixFile);
+            }
+            logger.info("A total of " + result.getNumberOfTrips() + " trips of " + result.getNumberOfPersons() + " persons in "
+                    + result.getNumberOfHouseholds() + " households were generated, "
+                    + result.getNumberOfUndistributedTrips() + " trips could not be distributed.");
+        } finally {
+            workers.forEach(Process::destroy);
+        }
+    }
+}
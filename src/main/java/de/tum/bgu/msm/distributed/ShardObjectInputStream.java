@@ -0,0 +1,52 @@
+package de.tum.bgu.msm.distributed;
+
+import de.tum.bgu.msm.data.HouseholdShard;
+import de.tum.bgu.msm.data.TripAggregate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads the messages between coordinator and workers, which are shards, aggregates and the
+ * exceptions of failed workers. Any other class is rejected before it is instantiated, so that a
+ * peer cannot have arbitrary classes deserialized.
+ */
+class ShardObjectInputStream extends ObjectInputStream {
+
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+            HouseholdShard.class.getName(),
+            TripAggregate.class.getName(),
+            // contents of the aggregate
+            "java.lang.Number", "java.lang.Integer", "java.lang.Long", "java.util.TreeMap", "java.util.HashMap", "[I",
+            // contents of exceptions
+            "java.lang.StackTraceElement", "[Ljava.lang.StackTraceElement;", "[Ljava.lang.Throwable;",
+            "java.util.ArrayList", "java.util.Collections$EmptyList", "java.util.Collections$UnmodifiableCollection",
+            "java.util.Collections$UnmodifiableList", "java.util.Collections$UnmodifiableRandomAccessList"));
+
+    ShardObjectInputStream(InputStream in) throws IOException {
+        super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+        String name = description.getName();
+        if (!ALLOWED_CLASSES.contains(name)) {
+            Class<?> type = Class.forName(name, false, getClass().getClassLoader());
+            if (!Throwable.class.isAssignableFrom(type)) {
+                throw new InvalidClassException(name, "Class is not allowed in messages between coordinator and workers.");
+            }
+        }
+        return super.resolveClass(description);
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws InvalidClassException {
+        throw new InvalidClassException("Proxy classes are not allowed in messages between coordinator and workers.");
+    }
+}
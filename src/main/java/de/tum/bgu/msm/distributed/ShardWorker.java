@@ -0,0 +1,81 @@
+package de.tum.bgu.msm.distributed;
+
+import de.tum.bgu.msm.MitoModel;
+import de.tum.bgu.msm.TravelDemandGenerator;
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.HouseholdShard;
+import de.tum.bgu.msm.data.TripAggregate;
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.util.MitoUtil;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.ResourceBundle;
+
+/**
+ * Simulates one household shard of a distributed run, see {@link ShardCoordinator}. The worker
+ * connects to the coordinator, receives its shard, runs the shard and sends back its aggregate, or
+ * the exception if the shard failed.
+ */
+public class ShardWorker {
+
+    private static final Logger logger = Logger.getLogger(ShardWorker.class);
+
+    /**
+     * Simulates a household shard and returns its aggregate results.
+     */
+    public interface ShardRunner {
+        TripAggregate run(HouseholdShard shard);
+    }
+
+    /**
+     * Connects to the coordinator at the given host and port and runs the shard it receives.
+     */
+    public static void work(String host, int port, ShardRunner runner) {
+        try (Socket socket = new Socket(host, port)) {
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            ObjectInputStream in = new ShardObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            HouseholdShard shard = (HouseholdShard) in.readObject();
+            logger.info("Received " + shard + " from coordinator " + host + ":" + port);
+            Object answer;
+            try {
+                answer = runner.run(shard);
+            } catch (RuntimeException | Error e) {
+                logger.error("Could not run " + shard, e);
+                answer = e;
+            }
+            out.writeObject(answer);
+            out.flush();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Lost connection to coordinator " + host + ":" + port, e);
+        }
+    }
+
+    /**
+     * Returns a runner that reads the inputs of the shard with the given configuration and runs all
+     * model steps on them. Outputs are written by the coordinator only.
+     */
+    public static ShardRunner createModelRunner(ResourceBundle resources) {
+        return shard -> {
+            MitoModel model = new MitoModel(resources);
+            model.setBaseDirectory(resources.getString(Properties.BASE_DIRECTORY));
+            DataSet dataSet = model.getTravelDemand();
+            dataSet.setHouseholdShard(shard);
+            model.initializeStandAlone();
+            new TravelDemandGenerator(dataSet).runModules();
+            logger.info("Simulated " + dataSet.getHouseholds().size() + " households of " + shard);
+            return TripAggregate.of(dataSet, Resources.INSTANCE.getString(Properties.TRIP_MATRIX_OUTPUT, null) != null);
+        };
+    }
+
+    /**
+     * Expects the properties file and the host and port of the coordinator as arguments.
+     */
+    public static void main(String[] args) {
+        ResourceBundle resources = MitoUtil.createResourceBundle(args[0]);
+        work(args[1], Integer.parseInt(args[2]), createModelRunner(resources));
+    }
+}
@@ -76,6 +76,10 @@ public abstract class CSVReader extends AbstractInputReader{
         }
         return dataTable;
     }
+
+    public ZonalAttributeTable readAsZonalAttributeTable(String fileName, String idColumn) {
+        return new ZonalAttributeTable(dataSet, readAsTableDataSet(fileName), idColumn, fileName);
+    }
 }
 
 
@@ -0,0 +1,33 @@
+package de.tum.bgu.msm.io.input;
+
+import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.data.travelTimes.TravelTimes;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes to the model inputs since the last feed, e.g. from one simulation year of a land use
+ * model to the next. Changed households replace the household with the same id, including its
+ * persons. Changed zones carry the new zonal attributes of the zone with the same id. Travel
+ * times are replaced by mode. Missing parts may be null.
+ */
+public class InputDelta {
+
+    public final Map<Integer, MitoHousehold> addedHouseholds;
+    public final Map<Integer, MitoHousehold> changedHouseholds;
+    public final Set<Integer> removedHouseholds;
+    public final Map<Integer, Zone> changedZones;
+    public final Map<String, TravelTimes> travelTimes;
+
+    public InputDelta(Map<Integer, MitoHousehold> addedHouseholds, Map<Integer, MitoHousehold> changedHouseholds,
+                      Set<Integer> removedHouseholds, Map<Integer, Zone> changedZones, Map<String, TravelTimes> travelTimes) {
+        this.addedHouseholds = addedHouseholds == null ? Collections.emptyMap() : addedHouseholds;
+        this.changedHouseholds = changedHouseholds == null ? Collections.emptyMap() : changedHouseholds;
+        this.removedHouseholds = removedHouseholds == null ? Collections.emptySet() : removedHouseholds;
+        this.changedZones = changedZones == null ? Collections.emptyMap() : changedZones;
+        this.travelTimes = travelTimes == null ? Collections.emptyMap() : travelTimes;
+    }
+}
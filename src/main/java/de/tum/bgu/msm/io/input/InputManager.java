@@ -3,8 +3,13 @@ package de.tum.bgu.msm.io.input;
 import de.tum.bgu.msm.data.*;
 import de.tum.bgu.msm.data.travelTimes.TravelTimes;
 import de.tum.bgu.msm.io.input.readers.*;
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.util.concurrent.TaskGraph;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Map;
 
 public class InputManager {
@@ -18,24 +23,70 @@ public class InputManager {
     }
 
     public void readAsStandAlone() {
-        new ZonesReader(dataSet).read();
-        new RegionsReader(dataSet).read();
-        new SkimsReader(dataSet).read();
-        new HouseholdsReader(dataSet).read();
-        new PersonsReader(dataSet).read();
-        new JobReader(dataSet).read();
-        new EmploymentReader(dataSet).read();
+        TaskGraph graph = new TaskGraph("Reading input data");
+        addStandAloneReaders(graph);
+        graph.execute();
     }
 
     public void readAdditionalData() {
-        new SchoolEnrollmentReader(dataSet).read();
-        new RegionsReader(dataSet).read();
-        new TripAttractionRatesReader(dataSet).read();
-        new TravelSurveyReader(dataSet).read();
+        TaskGraph graph = new TaskGraph("Reading additional input data");
+        addAdditionalReaders(graph, null);
+        graph.execute();
     }
 
+    /**
+     * Reads the stand-alone and the additional data at once, so that readers that do not depend on
+     * each other overlap across both sets.
+     */
+    public void readAllAsStandAlone() {
+        TaskGraph graph = new TaskGraph("Reading input data");
+        TaskGraph.Node zones = addStandAloneReaders(graph);
+        addAdditionalReaders(graph, zones);
+        graph.execute();
+    }
+
+    /**
+     * Adds the readers of the stand-alone data and returns the task that reads the zones. Readers
+     * only depend on the data they look up, everything else is read in parallel.
+     */
+    private TaskGraph.Node addStandAloneReaders(TaskGraph graph) {
+        TaskGraph.Node zones = graph.add("zones", new ZonesReader(dataSet)::read);
+        if (Resources.INSTANCE.getDouble(Properties.SKIMS_PRECISION, 0) > 0) {
+            // quantized skims are addressed by zone index, so they need the zones
+            graph.add("skims", new SkimsReader(dataSet)::read, zones);
+        } else {
+            graph.add("skims", new SkimsReader(dataSet)::read);
+        }
+        TaskGraph.Node households = graph.add("households", new HouseholdsReader(dataSet)::read, zones);
+        TaskGraph.Node persons = graph.add("persons", new PersonsReader(dataSet)::read, households);
+        graph.add("jobs", new JobReader(dataSet)::read, zones, persons);
+        graph.add("employment", new EmploymentReader(dataSet)::read, zones);
+        return zones;
+    }
+
+    /**
+     * Adds the readers of the additional data. They depend on the zones task, if there is one,
+     * and on nothing else.
+     */
+    private void addAdditionalReaders(TaskGraph graph, TaskGraph.Node zones) {
+        graph.add("school enrollment", new SchoolEnrollmentReader(dataSet)::read, zones);
+        graph.add("regions", new RegionsReader(dataSet)::read, zones);
+        graph.add("zonal attributes", new ZonalAttributesReader(dataSet)::read, zones);
+        graph.add("trip attraction rates", new TripAttractionRatesReader(dataSet)::read);
+        graph.add("travel survey", new TravelSurveyReader(dataSet)::read);
+    }
+
+    /**
+     * Adds the zones, travel times and households of the feed to the data set. Zones that already
+     * belong to another data set, e.g. because the caller feeds the same zones into a new model
+     * every year, are copied, and the fed households and persons are pointed to the zones of this
+     * data set.
+     */
     public void readFromFeed(InputFeed feed) {
         for(Zone zone: feed.zones.values()) {
+            if (zone.getIndex() >= 0 && dataSet.getZones().get(zone.getZoneId()) != zone) {
+                zone = new Zone(zone);
+            }
             dataSet.addZone(zone);
         }
         for(Map.Entry<String, TravelTimes> travelTimes: feed.travelTimes.entrySet())  {
@@ -44,17 +95,95 @@ public class InputManager {
         setHouseholdsFromFeed(feed.households);
     }
 
+    /**
+     * Applies the changes of a delta feed to the data set. Households that are removed or replaced
+     * are taken out together with their persons and trips, so that the following model run only
+     * has to generate and distribute trips for the added and changed households. Trips of other
+     * households are redistributed if they can reach a zone whose number of households changed.
+     */
+    public void applyDelta(InputDelta delta) {
+        int[] householdsByZone = getNumberOfHouseholdsByZone();
+        for (Integer householdId : delta.removedHouseholds) {
+            removeHousehold(householdId);
+        }
+        for (MitoHousehold household : delta.changedHouseholds.values()) {
+            removeHousehold(household.getHhId());
+        }
+        setHouseholdsFromFeed(delta.changedHouseholds);
+        setHouseholdsFromFeed(delta.addedHouseholds);
+        // destination utilities depend on the number of households by zone, so trips that can reach these zones are redistributed
+        int[] newHouseholdsByZone = getNumberOfHouseholdsByZone();
+        for (Zone zone : dataSet.getZones().values()) {
+            if (householdsByZone[zone.getIndex()] != newHouseholdsByZone[zone.getIndex()]) {
+                dataSet.markNumberOfHouseholdsChanged(zone);
+            }
+        }
+        for (Zone changedZone : delta.changedZones.values()) {
+            Zone zone = dataSet.getZones().get(changedZone.getZoneId());
+            if (zone == null) {
+                logger.warn("Changed zone " + changedZone.getZoneId() + " does not exist. Ignoring it.");
+                continue;
+            }
+            zone.setAttributesFrom(changedZone);
+            dataSet.markZonesChanged();
+        }
+        for (Map.Entry<String, TravelTimes> travelTimes : delta.travelTimes.entrySet()) {
+            dataSet.addTravelTimeForMode(travelTimes.getKey(), travelTimes.getValue());
+        }
+        // the logsums still include removed trips; the next trip distribution collects them again
+        dataSet.setDestinationChoiceLogsums(null);
+        logger.info("  Applied input delta: " + delta.addedHouseholds.size() + " added, " + delta.changedHouseholds.size()
+                + " changed and " + delta.removedHouseholds.size() + " removed households, " + delta.changedZones.size()
+                + " changed zones and " + delta.travelTimes.size() + " new travel time sets.");
+    }
+
+    private int[] getNumberOfHouseholdsByZone() {
+        int[] householdsByZone = new int[dataSet.getZoneIndexBound()];
+        for (Zone zone : dataSet.getZones().values()) {
+            householdsByZone[zone.getIndex()] = zone.getNumberOfHouseholds();
+        }
+        return householdsByZone;
+    }
+
+    private void removeHousehold(int householdId) {
+        MitoHousehold household = dataSet.getHouseholds().get(householdId);
+        if (household == null) {
+            logger.warn("Household " + householdId + " of input delta does not exist. Ignoring it.");
+            return;
+        }
+        for (Purpose purpose : Purpose.values()) {
+            for (MitoTrip trip : new ArrayList<>(household.getTripsForPurpose(purpose))) {
+                household.removeTrip(trip);
+                dataSet.removeTrip(trip.getTripId());
+            }
+        }
+        for (MitoPerson person : household.getPersonList()) {
+            dataSet.removePerson(person.getId());
+        }
+        Zone homeZone = household.getHomeZone();
+        if (homeZone != null && homeZone.getNumberOfHouseholds() > 0) {
+            homeZone.setNumberOfHouseholds(homeZone.getNumberOfHouseholds() - 1);
+        }
+        dataSet.removeHousehold(householdId);
+    }
 
     private void setHouseholdsFromFeed(Map<Integer, MitoHousehold> households) {
         for (MitoHousehold household : households.values()) {
-            if (dataSet.getZones().containsKey(household.getHomeZone())) {
-                dataSet.getZones().get(household.getHomeZone()).addHousehold();
+            Zone homeZone = household.getHomeZone();
+            if (homeZone != null && dataSet.getZones().containsKey(homeZone.getZoneId())) {
+                homeZone = dataSet.getZones().get(homeZone.getZoneId());
+                household.setHomeZone(homeZone);
+                homeZone.addHousehold();
             } else {
                 logger.error("Fed household " + household.getHhId() + " refers to non-existing home zone "
-                        + household.getHomeZone() + ". Household will not be considered in any zone.");
+                        + homeZone + ". Household will not be considered in any zone.");
             }
             dataSet.addHousehold(household);
-            for(MitoPerson person: household.getPersons().values()) {
+            for(MitoPerson person: household.getPersonList()) {
+                Zone workzone = person.getWorkzone();
+                if (workzone != null && dataSet.getZones().containsKey(workzone.getZoneId())) {
+                    person.setWorkzone(dataSet.getZones().get(workzone.getZoneId()));
+                }
                 dataSet.addPerson(person);
             }
         }
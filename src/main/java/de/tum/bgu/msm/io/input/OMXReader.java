@@ -3,20 +3,113 @@ package de.tum.bgu.msm.io.input;
 import com.pb.common.matrix.Matrix;
 import de.tum.bgu.msm.data.DataSet;
 import de.tum.bgu.msm.util.MitoUtil;
+import de.tum.bgu.msm.util.concurrent.ModuleExecutor;
+import de.tum.bgu.msm.util.profiling.MitoEvents;
+import de.tum.bgu.msm.util.profiling.ProfilingEvent;
 import omx.OmxFile;
+import omx.OmxMatrix;
+import omx.hdf5.OmxHdf5Datatype;
+import org.apache.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by Nico on 19.07.2017.
  */
 public abstract class OMXReader extends AbstractInputReader{
 
+    private static final Logger logger = Logger.getLogger(OMXReader.class);
+
+    /**
+     * The HDF5 library behind OMX is not thread-safe, so all OMX file access in this JVM, whether
+     * by concurrent, background or lazy reads, is done while holding this lock.
+     */
+    private static final Object HDF5_LOCK = new Object();
+
     protected OMXReader(DataSet dataSet) {
         super(dataSet);
     }
 
+    protected Matrix readAndConvertToMatrix(MatrixSource source) {
+        return readAndConvertToMatrix(source.fileName, source.matrixName);
+    }
+
+    /**
+     * Reads the given matrix under the HDF5 lock and converts it into a java matrix afterwards, so
+     * that the conversion of one matrix can overlap with reading the next.
+     */
     protected Matrix readAndConvertToMatrix(String fileName, String matrixName) {
-        OmxFile travelTimeOmx = new OmxFile(fileName);
-        travelTimeOmx.openReadOnly();
-        return MitoUtil.convertOmxToMatrix(travelTimeOmx.getMatrix(matrixName));
+        long startTime = System.currentTimeMillis();
+        ProfilingEvent event = MitoEvents.SKIM_LOAD.begin().set(0, fileName).set(1, matrixName);
+        try {
+            OmxHdf5Datatype.OmxJavaType type;
+            int[] shape;
+            Object data;
+            synchronized (HDF5_LOCK) {
+                OmxFile travelTimeOmx = new OmxFile(fileName);
+                travelTimeOmx.openReadOnly();
+                try {
+                    OmxMatrix omxMatrix = travelTimeOmx.getMatrix(matrixName);
+                    type = omxMatrix.getOmxJavaType();
+                    shape = omxMatrix.getShape();
+                    data = omxMatrix.getData();
+                } finally {
+                    travelTimeOmx.close();
+                }
+            }
+            long bytes = (long) shape[0] * shape[1] * getBytesPerCell(type);
+            event.set(2, shape[0]).set(3, shape[1]).set(4, bytes);
+            Matrix matrix = MitoUtil.convertOmxToMatrix(matrixName, type, shape, data);
+            logger.info("  Read matrix " + matrixName + " from " + fileName + " (" + shape[0] + "x" + shape[1] + ", "
+                    + MitoUtil.customFormat("###,###", bytes / 1024) + " KB) in "
+                    + (System.currentTimeMillis() - startTime) / 1000. + " seconds.");
+            return matrix;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Reads the given matrices and returns them in the order of the given map. The files are read
+     * one at a time under the HDF5 lock; only the conversion into java matrices runs in parallel.
+     */
+    protected Map<String, Matrix> readAndConvertToMatrices(Map<String, MatrixSource> sources) {
+        Map<String, Matrix> matrices = new ConcurrentHashMap<>();
+        ModuleExecutor executor = new ModuleExecutor("Reading matrices");
+        for (Map.Entry<String, MatrixSource> source : sources.entrySet()) {
+            MatrixSource matrixSource = source.getValue();
+            executor.addTask(source.getKey(), () -> matrices.put(source.getKey(), readAndConvertToMatrix(matrixSource)));
+        }
+        executor.execute();
+        Map<String, Matrix> orderedMatrices = new LinkedHashMap<>();
+        for (String name : sources.keySet()) {
+            orderedMatrices.put(name, matrices.get(name));
+        }
+        return orderedMatrices;
+    }
+
+    private static int getBytesPerCell(OmxHdf5Datatype.OmxJavaType type) {
+        if (type.equals(OmxHdf5Datatype.OmxJavaType.DOUBLE)) {
+            return 8;
+        } else if (type.equals(OmxHdf5Datatype.OmxJavaType.SHORT)) {
+            return 2;
+        }
+        return 4;
+    }
+
+    /**
+     * A matrix in an OMX file.
+     */
+    protected static final class MatrixSource {
+
+        private final String fileName;
+        private final String matrixName;
+
+        public MatrixSource(String fileName, String matrixName) {
+            this.fileName = fileName;
+            this.matrixName = matrixName;
+        }
     }
 }
@@ -0,0 +1,87 @@
+package de.tum.bgu.msm.io.input;
+
+import com.pb.common.datafile.TableDataSet;
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.Zone;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+
+/**
+ * A zonal input table whose rows are joined to the zones of the data set once, when the table is
+ * created, so later reads by row need no further zone lookups. Columns are copied out of the table
+ * once each and then read by row.
+ */
+public class ZonalAttributeTable {
+
+    private static final Logger logger = Logger.getLogger(ZonalAttributeTable.class);
+
+    private final DataSet dataSet;
+    private final TableDataSet table;
+    private final String idColumn;
+    private final int[] zoneIds;
+    private final Zone[] zoneByRow;
+
+    public ZonalAttributeTable(DataSet dataSet, TableDataSet table, String idColumn, String fileName) {
+        this.dataSet = dataSet;
+        this.table = table;
+        this.idColumn = idColumn;
+        this.zoneIds = table.getColumnAsInt(idColumn);
+        this.zoneByRow = new Zone[zoneIds.length];
+
+        Map<Integer, Zone> zones = dataSet.getZones();
+        int missing = 0;
+        for (int row = 0; row < zoneIds.length; row++) {
+            zoneByRow[row] = zones.get(zoneIds[row]);
+            if (zoneByRow[row] == null) {
+                if (missing == 0) {
+                    logger.warn("Zone " + zoneIds[row] + " of " + fileName + " not found. Ignoring it.");
+                }
+                missing++;
+            }
+        }
+        if (missing > 1) {
+            logger.warn(missing + " rows of " + fileName + " refer to non-existing zones and are ignored.");
+        }
+    }
+
+    public int getRowCount() {
+        return zoneByRow.length;
+    }
+
+    public int getZoneId(int row) {
+        return zoneIds[row];
+    }
+
+    /**
+     * Returns the zone of the given (zero-based) row, or null if the zone does not exist.
+     */
+    public Zone getZone(int row) {
+        return zoneByRow[row];
+    }
+
+    public int[] getIntColumn(String column) {
+        return table.getColumnAsInt(column);
+    }
+
+    public float[] getFloatColumn(String column) {
+        return table.getColumnAsFloat(column);
+    }
+
+    /**
+     * Stores every column except the zone id as an additional zonal attribute of the data set.
+     */
+    public void assignAllColumnsAsAttributes() {
+        for (String column : table.getColumnLabels()) {
+            if (column.equalsIgnoreCase(idColumn)) {
+                continue;
+            }
+            float[] values = getFloatColumn(column);
+            for (int row = 0; row < zoneByRow.length; row++) {
+                if (zoneByRow[row] != null) {
+                    dataSet.setZoneAttribute(column, zoneByRow[row], values[row]);
+                }
+            }
+        }
+    }
+}
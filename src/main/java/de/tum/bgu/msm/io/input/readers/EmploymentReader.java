@@ -1,15 +1,13 @@
 package de.tum.bgu.msm.io.input.readers;
 
-import com.pb.common.datafile.TableDataSet;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.data.DataSet;
 import de.tum.bgu.msm.data.Zone;
 import de.tum.bgu.msm.io.input.CSVReader;
+import de.tum.bgu.msm.io.input.ZonalAttributeTable;
 import de.tum.bgu.msm.resources.Resources;
 import org.apache.log4j.Logger;
 
-import java.util.Map;
-
 /**
  * Created by Nico on 17.07.2017.
  */
@@ -26,20 +24,16 @@ public class EmploymentReader extends CSVReader {
     public void read() {
         // SMZ,State,RET00,OFF00,IND00,OTH00,RET07,OFF07,IND07,OTH07,RET10,OFF10,IND10,OTH10,RET30,OFF30,IND30,OTH30,RET40,OFF40,IND40,OTH40
         String fileName = Resources.INSTANCE.getString(Properties.EMPLOYMENT);
-        TableDataSet employment = super.readAsTableDataSet(fileName);
-        int[] indEmpl = employment.getColumnAsInt("IND00");
-        int[] retEmpl = employment.getColumnAsInt("RET00");
-        int[] offEmpl = employment.getColumnAsInt("OFF00");
-        int[] othEmpl = employment.getColumnAsInt("OTH00");
-        int[] totEmpl = new int[employment.getRowCount()];
+        ZonalAttributeTable employment = super.readAsZonalAttributeTable(fileName, "SMZ");
+        int[] indEmpl = employment.getIntColumn("IND00");
+        int[] retEmpl = employment.getIntColumn("RET00");
+        int[] offEmpl = employment.getIntColumn("OFF00");
+        int[] othEmpl = employment.getIntColumn("OTH00");
         for (int i = 0; i < employment.getRowCount(); i++) {
-            totEmpl[i] = indEmpl[i] + retEmpl[i] + offEmpl[i] + othEmpl[i];
-            int zoneId = employment.getColumnAsInt("SMZ")[i];
-            Map<Integer, Zone> zones = dataSet.getZones();
-            if (zones.containsKey(zoneId)) {
-                assignEmployeesToZone(indEmpl[i], retEmpl[i], offEmpl[i], othEmpl[i], totEmpl[i], zones.get(zoneId));
-            } else {
-                logger.warn("Zone " + zoneId + " of employment table not found. Ignoring it.");
+            Zone zone = employment.getZone(i);
+            if (zone != null) {
+                int totEmpl = indEmpl[i] + retEmpl[i] + offEmpl[i] + othEmpl[i];
+                assignEmployeesToZone(indEmpl[i], retEmpl[i], offEmpl[i], othEmpl[i], totEmpl, zone);
             }
         }
     }
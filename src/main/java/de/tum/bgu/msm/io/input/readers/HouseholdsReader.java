@@ -1,6 +1,7 @@
 package de.tum.bgu.msm.io.input.readers;
 
 import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.HouseholdShard;
 import de.tum.bgu.msm.data.MitoHousehold;
 import de.tum.bgu.msm.data.Zone;
 import de.tum.bgu.msm.io.input.CSVReader;
@@ -48,7 +49,12 @@ public class HouseholdsReader extends CSVReader {
             logger.warn(String.format("Household %d refers to non-existing zone %d! Ignoring it.", id, taz));
             return;
         }
-        dataSet.addHousehold(new MitoHousehold(id, 0, autos, zone));
         zone.addHousehold();
+        HouseholdShard shard = dataSet.getHouseholdShard();
+        if (shard != null && !shard.contains(zone)) {
+            // counted in its home zone, but simulated by another worker
+            return;
+        }
+        dataSet.addHousehold(new MitoHousehold(id, 0, autos, zone));
     }
 }
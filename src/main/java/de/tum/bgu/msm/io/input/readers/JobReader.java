@@ -47,6 +47,10 @@ public class JobReader extends CSVReader {
         if (worker > 0) {
             MitoPerson pp = dataSet.getPersons().get(worker);
             if(pp == null) {
+                if (dataSet.getHouseholdShard() != null) {
+                    // the worker lives in a household of another shard
+                    return;
+                }
                 logger.warn(String.format("Job %d refers to non-existing person %d! Ignoring it.", id, worker));
                 return;
             }
@@ -56,7 +56,9 @@ public class PersonsReader extends CSVReader {
         if(dataSet.getHouseholds().containsKey(hhid)) {
             hh = dataSet.getHouseholds().get(hhid);
         } else {
-            logger.warn("Person " + id + " refers to non-existing household " + hhid + ". Ignoring this person.");
+            if (dataSet.getHouseholdShard() == null) {
+                logger.warn("Person " + id + " refers to non-existing household " + hhid + ". Ignoring this person.");
+            }
             return;
         }
         Occupation occupation = Occupation.UNEMPLOYED;
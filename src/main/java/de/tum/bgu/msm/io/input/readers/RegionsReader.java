@@ -1,9 +1,10 @@
 package de.tum.bgu.msm.io.input.readers;
 
-import com.pb.common.datafile.TableDataSet;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.Zone;
 import de.tum.bgu.msm.io.input.CSVReader;
+import de.tum.bgu.msm.io.input.ZonalAttributeTable;
 import de.tum.bgu.msm.resources.Resources;
 import org.apache.log4j.Logger;
 
@@ -20,15 +21,12 @@ public class RegionsReader extends CSVReader {
 
     @Override
     public void read() {
-        TableDataSet regionDefinition = super.readAsTableDataSet(Resources.INSTANCE.getString(Properties.REGIONS));
-        for (int i = 1; i < regionDefinition.getRowCount(); i++) {
-            int id = (int) regionDefinition.getValueAt(i, "Zone");
-            int[] regions = regionDefinition.getColumnAsInt("Region");
-            int region = regions[i - 1];
-            if (dataSet.getZones().containsKey(id)) {
-                dataSet.getZones().get(id).setRegion(region);
-            } else {
-                logger.warn("Region " + region + " referring to non-existing zone " + id + ". Ignoring it.");
+        ZonalAttributeTable regionDefinition = super.readAsZonalAttributeTable(Resources.INSTANCE.getString(Properties.REGIONS), "Zone");
+        int[] regions = regionDefinition.getIntColumn("Region");
+        for (int i = 0; i < regionDefinition.getRowCount(); i++) {
+            Zone zone = regionDefinition.getZone(i);
+            if (zone != null) {
+                zone.setRegion(regions[i]);
             }
         }
     }
@@ -1,9 +1,10 @@
 package de.tum.bgu.msm.io.input.readers;
 
-import com.pb.common.datafile.TableDataSet;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.Zone;
 import de.tum.bgu.msm.io.input.CSVReader;
+import de.tum.bgu.msm.io.input.ZonalAttributeTable;
 import de.tum.bgu.msm.resources.Resources;
 import org.apache.log4j.Logger;
 
@@ -22,14 +23,12 @@ public class SchoolEnrollmentReader extends CSVReader {
     public void read() {
         // read enrollment data
         String fileName = Resources.INSTANCE.getString(Properties.SCHOOL_ENROLLMENT);
-        TableDataSet enrollmentData = super.readAsTableDataSet(fileName);
-        for (int i = 1; i <= enrollmentData.getRowCount(); i++) {
-            int zoneId = enrollmentData.getColumnAsInt("Zone")[i - 1];
-            int enrollment = enrollmentData.getColumnAsInt("Enrolment")[i - 1];
-            try {
-                dataSet.getZones().get(zoneId).setSchoolEnrollment(enrollment);
-            } catch (Exception e) {
-                logger.warn("School enrollment of " + enrollment + " refers to non existing zone " + zoneId + ". Ignoring it.");
+        ZonalAttributeTable enrollmentData = super.readAsZonalAttributeTable(fileName, "Zone");
+        int[] enrollment = enrollmentData.getIntColumn("Enrolment");
+        for (int i = 0; i < enrollmentData.getRowCount(); i++) {
+            Zone zone = enrollmentData.getZone(i);
+            if (zone != null) {
+                zone.setSchoolEnrollment(enrollment[i]);
             }
         }
     }
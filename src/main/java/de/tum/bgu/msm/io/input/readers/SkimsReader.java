@@ -1,35 +1,112 @@
 package de.tum.bgu.msm.io.input.readers;
 
 import com.pb.common.matrix.Matrix;
+import de.tum.bgu.msm.data.travelTimes.DeferredTravelTimes;
 import de.tum.bgu.msm.data.travelTimes.MatrixTravelTimes;
+import de.tum.bgu.msm.data.travelTimes.QuantizedTravelTimes;
+import de.tum.bgu.msm.data.travelTimes.TravelTimes;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.data.DataSet;
 import de.tum.bgu.msm.io.input.OMXReader;
 import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.resources.ScenarioContext;
 import org.apache.log4j.Logger;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads the travel time skims of all modes. Besides the car and transit skims, further modes can
+ * be listed in {@link Properties#ADDITIONAL_SKIM_MODES}, each with the properties
+ * skims.&lt;mode&gt;.file and skims.&lt;mode&gt;.matrix. With {@link Properties#SKIMS_PRECISION} set,
+ * skims are kept as {@link QuantizedTravelTimes}.
+ */
 public class SkimsReader extends OMXReader {
 
     private static final Logger logger = Logger.getLogger(SkimsReader.class);
 
+    private double precision;
+    private boolean symmetric;
+
     public SkimsReader(DataSet dataSet) {
         super(dataSet);
     }
 
     @Override
     public void read() {
+        precision = Resources.INSTANCE.getDouble(Properties.SKIMS_PRECISION, 0);
+        symmetric = Resources.INSTANCE.getBoolean(Properties.SKIMS_SYMMETRIC, false);
+        Map<String, MatrixSource> sources = getSources();
+        if (Resources.INSTANCE.getBoolean(Properties.SKIMS_LAZY, false)) {
+            if (Resources.INSTANCE.getBoolean(Properties.SKIMS_BACKGROUND, false)) {
+                logger.warn("  Both " + Properties.SKIMS_LAZY + " and " + Properties.SKIMS_BACKGROUND
+                        + " are set. Skims are read on first use, not in the background.");
+            }
+            logger.info("  Registering skims to be read on first use");
+            for (Map.Entry<String, MatrixSource> source : sources.entrySet()) {
+                MatrixSource matrixSource = source.getValue();
+                dataSet.addTravelTimeProviderForMode(source.getKey(),
+                        () -> toTravelTimes(source.getKey(), readAndConvertToMatrix(matrixSource)));
+            }
+            return;
+        }
+        if (Resources.INSTANCE.getBoolean(Properties.SKIMS_BACKGROUND, false)) {
+            readInBackground(sources);
+            return;
+        }
         logger.info("  Reading skims");
-        readHighwaySkims();
-        readTransitSkims();
+        for (Map.Entry<String, Matrix> matrix : readAndConvertToMatrices(sources).entrySet()) {
+            dataSet.addTravelTimeForMode(matrix.getKey(), toTravelTimes(matrix.getKey(), matrix.getValue()));
+        }
+    }
+
+    private TravelTimes toTravelTimes(String mode, Matrix matrix) {
+        if (precision > 0) {
+            return new QuantizedTravelTimes(mode, matrix, dataSet, precision, symmetric);
+        }
+        return new MatrixTravelTimes(matrix);
     }
 
-    private void readHighwaySkims() {
-        Matrix timeSkimAutos = super.readAndConvertToMatrix(Resources.INSTANCE.getString(Properties.AUTO_PEAK_SKIM), "HOVTime");
-        dataSet.addTravelTimeForMode("car", new MatrixTravelTimes(timeSkimAutos));
+    private Map<String, MatrixSource> getSources() {
+        Map<String, MatrixSource> sources = new LinkedHashMap<>();
+        sources.put("car", new MatrixSource(Resources.INSTANCE.getString(Properties.AUTO_PEAK_SKIM), "HOVTime"));
+        sources.put("pt", new MatrixSource(Resources.INSTANCE.getString(Properties.TRANSIT_PEAK_SKIM), "CheapJrnyTime"));
+        for (String mode : Resources.INSTANCE.getString(Properties.ADDITIONAL_SKIM_MODES, "").split(",")) {
+            mode = mode.trim();
+            if (!mode.isEmpty()) {
+                sources.put(mode, new MatrixSource(Resources.INSTANCE.getString("skims." + mode + ".file"),
+                        Resources.INSTANCE.getString("skims." + mode + ".matrix")));
+            }
+        }
+        return sources;
     }
 
-    private void readTransitSkims() {
-        Matrix timeSkimTransit = super.readAndConvertToMatrix(Resources.INSTANCE.getString(Properties.TRANSIT_PEAK_SKIM), "CheapJrnyTime");
-        dataSet.addTravelTimeForMode("pt", new MatrixTravelTimes(timeSkimTransit));
+    /**
+     * Starts reading the skims on a background thread and registers travel times that wait for
+     * them on first use.
+     */
+    private void readInBackground(Map<String, MatrixSource> sources) {
+        logger.info("  Reading skims in the background");
+        Map<String, CompletableFuture<TravelTimes>> futures = new LinkedHashMap<>();
+        for (String mode : sources.keySet()) {
+            CompletableFuture<TravelTimes> future = new CompletableFuture<>();
+            futures.put(mode, future);
+            dataSet.addTravelTimeForMode(mode, new DeferredTravelTimes(future));
+        }
+        Thread thread = new Thread(ScenarioContext.wrap(() -> {
+            try {
+                for (Map.Entry<String, Matrix> matrix : readAndConvertToMatrices(sources).entrySet()) {
+                    futures.get(matrix.getKey()).complete(toTravelTimes(matrix.getKey(), matrix.getValue()));
+                }
+                logger.info("  Finished reading skims in the background");
+            } catch (RuntimeException | Error e) {
+                for (CompletableFuture<TravelTimes> future : futures.values()) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }), "skims-reader");
+        thread.setDaemon(true);
+        thread.start();
     }
 }
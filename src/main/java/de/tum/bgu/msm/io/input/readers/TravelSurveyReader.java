@@ -3,6 +3,7 @@ package de.tum.bgu.msm.io.input.readers;
 import de.tum.bgu.msm.data.*;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.io.input.CSVReader;
+import de.tum.bgu.msm.modules.tripGeneration.TripFrequencyModel;
 import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.resources.Resources;
 import de.tum.bgu.msm.scenarios.maryland.MarylandSurveyRecord;
@@ -10,6 +11,8 @@ import de.tum.bgu.msm.scenarios.maryland.MarylandTravelSurvey;
 import de.tum.bgu.msm.util.MitoUtil;
 import org.apache.log4j.Logger;
 
+import java.io.File;
+
 public class TravelSurveyReader extends CSVReader {
 
     private static final Logger logger = Logger.getLogger(TravelSurveyReader.class);
@@ -37,10 +40,31 @@ public class TravelSurveyReader extends CSVReader {
         logger.info("  Reading household travel survey");
         String surveyHouseholdsPath = MitoUtil.getBaseDirectory() + "/" + Resources.INSTANCE.getString(Properties.TRAVEL_SURVEY_HOUSEHOLDS);
         String surveyTripsPath = MitoUtil.getBaseDirectory() + "/" + Resources.INSTANCE.getString(Properties.TRAVEL_SURVEY_TRIPS);
+        String cacheFile = Resources.INSTANCE.getString(Properties.TRIP_FREQUENCY_CACHE, null);
+        String surveyKey = getFileKey(surveyHouseholdsPath) + getFileKey(surveyTripsPath);
+        if (cacheFile != null) {
+            cacheFile = MitoUtil.getBaseDirectory() + "/" + cacheFile;
+            TripFrequencyModel cachedModel = TripFrequencyModel.readCache(cacheFile, surveyKey);
+            if (cachedModel != null) {
+                // the survey itself is only needed to build the trip frequencies
+                dataSet.setTripFrequencyModel(cachedModel);
+                return;
+            }
+        }
         super.readLineByLine(surveyHouseholdsPath, ",");
         households = false;
         super.readLineByLine(surveyTripsPath, ",");
         dataSet.setSurvey(survey);
+        TripFrequencyModel model = TripFrequencyModel.build(survey);
+        dataSet.setTripFrequencyModel(model);
+        if (cacheFile != null) {
+            model.writeCache(cacheFile, surveyKey);
+        }
+    }
+
+    private static String getFileKey(String path) {
+        File file = new File(path);
+        return path + "|" + file.length() + "|" + file.lastModified() + ";";
     }
 
     @Override
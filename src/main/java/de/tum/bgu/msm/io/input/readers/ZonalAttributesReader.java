@@ -0,0 +1,43 @@
+package de.tum.bgu.msm.io.input.readers;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.io.input.CSVReader;
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Resources;
+import org.apache.log4j.Logger;
+
+/**
+ * Reads additional zonal attributes that are not part of the standard model inputs. Every file
+ * listed in zonal.attribute.files needs a "Zone" column; all other columns are stored as named
+ * attributes of the zones.
+ */
+public class ZonalAttributesReader extends CSVReader {
+
+    private static final Logger logger = Logger.getLogger(ZonalAttributesReader.class);
+
+    public ZonalAttributesReader(DataSet dataSet) {
+        super(dataSet);
+    }
+
+    @Override
+    public void read() {
+        String files = Resources.INSTANCE.getString(Properties.ZONAL_ATTRIBUTE_FILES, "");
+        for (String fileName : files.split(",")) {
+            fileName = fileName.trim();
+            if (!fileName.isEmpty()) {
+                logger.info("  Reading additional zonal attributes from " + fileName);
+                super.readAsZonalAttributeTable(fileName, "Zone").assignAllColumnsAsAttributes();
+            }
+        }
+    }
+
+    @Override
+    protected void processHeader(String[] header) {
+
+    }
+
+    @Override
+    protected void processRecord(String[] record) {
+
+    }
+}
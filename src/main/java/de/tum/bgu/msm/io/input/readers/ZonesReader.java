@@ -5,12 +5,10 @@ import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.data.DataSet;
 import de.tum.bgu.msm.data.Zone;
 import de.tum.bgu.msm.io.input.CSVReader;
+import de.tum.bgu.msm.io.input.ZonalAttributeTable;
 import de.tum.bgu.msm.resources.Resources;
 import org.apache.log4j.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Created by Nico on 17.07.2017.
  */
@@ -31,22 +29,23 @@ public class ZonesReader extends CSVReader {
     private void readZones() {
         // read in zones from file
         TableDataSet zonalData = super.readAsTableDataSet(Resources.INSTANCE.getString(Properties.ZONES));
-        for (int i = 1; i <= zonalData.getRowCount(); i++) {
-            Zone zone = new Zone(zonalData.getColumnAsInt("ZoneId")[i - 1], zonalData.getValueAt(i, "ACRES"));
+        int[] zoneIds = zonalData.getColumnAsInt("ZoneId");
+        float[] sizes = zonalData.getColumnAsFloat("ACRES");
+        for (int i = 0; i < zoneIds.length; i++) {
+            Zone zone = new Zone(zoneIds[i], sizes[i]);
             dataSet.addZone(zone);
         }
     }
 
     private void readReductionDampers() {
         if (Resources.INSTANCE.getBoolean(Properties.REMOVE_TRIPS_AT_BORDER)) {
-            TableDataSet reductionNearBorder = super.readAsTableDataSet(Resources.INSTANCE.getString(Properties.REDUCTION_NEAR_BORDER_DAMPERS));
-            for (int i = 1; i <= reductionNearBorder.getRowCount(); i++) {
-                int id = (int) reductionNearBorder.getValueAt(i, "Zone");
-                float damper = reductionNearBorder.getValueAt(i, "damper");
-                if (dataSet.getZones().containsKey(id)) {
-                    dataSet.getZones().get(id).setReductionAtBorderDamper(damper);
-                } else {
-                    logger.warn("Damper of " + damper + " refers to non-existing zone " + id + ". Ignoring it.");
+            ZonalAttributeTable reductionNearBorder = super.readAsZonalAttributeTable(
+                    Resources.INSTANCE.getString(Properties.REDUCTION_NEAR_BORDER_DAMPERS), "Zone");
+            float[] dampers = reductionNearBorder.getFloatColumn("damper");
+            for (int i = 0; i < reductionNearBorder.getRowCount(); i++) {
+                Zone zone = reductionNearBorder.getZone(i);
+                if (zone != null) {
+                    zone.setReductionAtBorderDamper(dampers[i]);
                 }
             }
         }
@@ -0,0 +1,42 @@
+package de.tum.bgu.msm.io.output;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.DestinationChoiceLogsums;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.util.MitoUtil;
+import org.apache.log4j.Logger;
+
+import java.io.PrintWriter;
+
+/**
+ * Writes the destination choice logsums by zone and purpose, which can be used as zonal
+ * accessibility measures by mode choice or land use models.
+ */
+public class DestinationChoiceLogsumWriter {
+
+    private static final Logger logger = Logger.getLogger(DestinationChoiceLogsumWriter.class);
+
+    public static void writeLogsums(DataSet dataSet, String fileName) {
+        DestinationChoiceLogsums logsums = dataSet.getDestinationChoiceLogsums();
+        if (logsums == null) {
+            logger.warn("No destination choice logsums available. Trip distribution has to run first.");
+            return;
+        }
+        PrintWriter pw = MitoUtil.openFileForSequentialWriting(fileName, false);
+        pw.print("Zone");
+        for (Purpose purpose : Purpose.values()) {
+            pw.print("," + purpose + "Logsum");
+        }
+        pw.println();
+        for (Zone zone : dataSet.getZones().values()) {
+            pw.print(zone.getZoneId());
+            for (Purpose purpose : Purpose.values()) {
+                pw.print("," + logsums.getLogsum(purpose, zone));
+            }
+            pw.println();
+        }
+        pw.close();
+        logger.info("  Wrote destination choice logsums to " + fileName);
+    }
+}
@@ -26,7 +26,7 @@ public class SummarizeData {
         //write out files with synthetic population and the number of trips
 
         logger.info("  Writing household file");
-        String filehh = Resources.INSTANCE.getString(Properties.BASE_DIRECTORY) + "/" + Resources.INSTANCE.getString(Properties.HOUSEHOLDS) + "_t.csv";
+        String filehh = MitoUtil.getScenarioOutputFileName(Resources.INSTANCE.getString(Properties.BASE_DIRECTORY) + "/" + Resources.INSTANCE.getString(Properties.HOUSEHOLDS) + "_t.csv");
         PrintWriter pwh = MitoUtil.openFileForSequentialWriting(filehh, false);
         pwh.println("id,zone,hhSize,autos,trips,workTrips");
         for (MitoHousehold hh : dataSet.getHouseholds().values()) {
@@ -49,11 +49,11 @@ public class SummarizeData {
         pwh.close();
 
         logger.info("  Writing person file");
-        String filepp = Resources.INSTANCE.getString(Properties.BASE_DIRECTORY) + "/" + Resources.INSTANCE.getString(Properties.PERSONS) + "_t.csv";
+        String filepp = MitoUtil.getScenarioOutputFileName(Resources.INSTANCE.getString(Properties.BASE_DIRECTORY) + "/" + Resources.INSTANCE.getString(Properties.PERSONS) + "_t.csv");
         PrintWriter pwp = MitoUtil.openFileForSequentialWriting(filepp, false);
         pwp.println("id,hhID,hhSize,hhTrips,avTrips");
         for(MitoHousehold hh: dataSet.getHouseholds().values()) {
-            for (MitoPerson pp : hh.getPersons().values()) {
+            for (MitoPerson pp : hh.getPersonList()) {
                     pwp.print(pp.getId());
                     pwp.print(",");
                     pwp.print(hh.getHhId());
@@ -2,7 +2,7 @@ package de.tum.bgu.msm.io.output;
 
 import de.tum.bgu.msm.MitoModel;
 import de.tum.bgu.msm.data.DataSet;
-import de.tum.bgu.msm.data.MitoTrip;
+import de.tum.bgu.msm.data.TripAggregate;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.resources.Resources;
@@ -11,8 +11,9 @@ import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.PrintWriter;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Created by Nico on 26/07/2017.
@@ -22,11 +23,19 @@ public class TripGenerationWriter {
     private static final Logger logger = Logger.getLogger(TripGenerationWriter.class);
 
     public static void writeTripsByPurposeAndZone(DataSet dataSet) {
+        writeTripsByPurposeAndZone(dataSet.getZones().keySet(), TripAggregate.of(dataSet, false));
+    }
+
+    /**
+     * Writes the trip productions of the aggregate for the given zones, e.g. the merged results of
+     * a distributed run.
+     */
+    public static void writeTripsByPurposeAndZone(Collection<Integer> zoneIds, TripAggregate aggregate) {
         // write number of trips by purpose and zone to output file
 
-        String fileNameProd = generateOutputFileName(Resources.INSTANCE.getString(Properties.TRIP_PRODUCTION_OUTPUT), dataSet);
+        String fileNameProd = generateOutputFileName(Resources.INSTANCE.getString(Properties.TRIP_PRODUCTION_OUTPUT));
         PrintWriter pwProd = MitoUtil.openFileForSequentialWriting(fileNameProd, false);
-        String fileNameAttr = generateOutputFileName(Resources.INSTANCE.getString(Properties.TRIP_ATTRACTION_OUTPUT), dataSet);
+        String fileNameAttr = generateOutputFileName(Resources.INSTANCE.getString(Properties.TRIP_ATTRACTION_OUTPUT));
         PrintWriter pwAttr = MitoUtil.openFileForSequentialWriting(fileNameAttr, false);
         pwProd.print("Zone");
         pwAttr.print("Zone");
@@ -35,32 +44,14 @@ public class TripGenerationWriter {
             pwAttr.print("," + purpose + "A");
         }
 
-        Map<Integer, Map<Purpose, Integer>> tripProdByZoneAndPurp = new HashMap<>();
-
-        for(Integer zoneId: dataSet.getZones().keySet()) {
-            Map<Purpose, Integer> initialValues = new HashMap<>();
-            for(Purpose purpose: Purpose.values()) {
-                initialValues.put(purpose, 0);
-            }
-            tripProdByZoneAndPurp.put(zoneId, initialValues);
-        }
-
-        for (MitoTrip trip: dataSet.getTrips().values()) {
-            if(trip.getTripOrigin() != null && trip.getTripDestination() != null) {
-                Purpose purpose = trip.getTripPurpose();
-                int number = tripProdByZoneAndPurp.get(trip.getTripOrigin().getZoneId()).get(purpose);
-                tripProdByZoneAndPurp.get(trip.getTripOrigin().getZoneId()).replace(purpose, (number + 1));
-            }
-        }
-
         int totalTrips = 0;
         pwProd.println();
         pwAttr.println();
-        for (int zoneId: dataSet.getZones().keySet()) {
+        for (int zoneId: zoneIds) {
             pwProd.print(zoneId);
             pwAttr.print(zoneId);
             for (Purpose purpose: Purpose.values()) {
-                int tripProdTmp = tripProdByZoneAndPurp.get(zoneId).get(purpose);
+                int tripProdTmp = aggregate.getProductions(zoneId, purpose);
                 totalTrips += tripProdTmp;
                 pwProd.print("," + tripProdTmp);
                 pwAttr.print("," + tripProdTmp);
@@ -74,7 +65,30 @@ public class TripGenerationWriter {
                 + " aggregate trips balanced against attractions.");
     }
 
-    private static String generateOutputFileName (String fileName, DataSet dataSet) {
+    /**
+     * Writes the trips by origin, destination and purpose of the aggregate, one row per relation
+     * with at least one trip.
+     */
+    public static void writeTripMatrix(TripAggregate aggregate, String fileName) {
+        PrintWriter pw = MitoUtil.openFileForSequentialWriting(generateOutputFileName(fileName), false);
+        pw.print("Origin,Destination");
+        for (Purpose purpose : Purpose.values()) {
+            pw.print("," + purpose);
+        }
+        pw.println();
+        Map<Long, int[]> tripsByRelation = new TreeMap<>(aggregate.getTripsByRelation());
+        for (Map.Entry<Long, int[]> relation : tripsByRelation.entrySet()) {
+            pw.print(TripAggregate.getOrigin(relation.getKey()) + "," + TripAggregate.getDestination(relation.getKey()));
+            for (int trips : relation.getValue()) {
+                pw.print("," + trips);
+            }
+            pw.println();
+        }
+        pw.close();
+        logger.info("  Wrote trips of " + tripsByRelation.size() + " relations to " + fileName);
+    }
+
+    private static String generateOutputFileName (String fileName) {
         if (MitoModel.getScenarioName() != null) {
             File dir = new File("scenOutput/" + MitoModel.getScenarioName() + "/tripGeneration");
             if(!dir.exists()){
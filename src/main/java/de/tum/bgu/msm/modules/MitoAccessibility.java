@@ -2,14 +2,17 @@ package de.tum.bgu.msm.modules;
 
 import de.tum.bgu.msm.data.DataSet;
 import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.data.travelTimes.SparseChoiceSet;
 import de.tum.bgu.msm.data.travelTimes.TravelTimes;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.resources.Resources;
 import de.tum.bgu.msm.util.MitoUtil;
+import de.tum.bgu.msm.util.MultinomialLogit;
 import org.apache.log4j.Logger;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -43,36 +46,53 @@ public class MitoAccessibility extends Module {
 
         TravelTimes carTravelTimes = dataSet.getTravelTimes("car");
         TravelTimes transitTravelTimes = dataSet.getTravelTimes("pt");
+        double maxTravelTime = Resources.INSTANCE.getDouble(Properties.CHOICE_SET_MAX_TRAVEL_TIME, -1);
+        SparseChoiceSet carChoiceSet = dataSet.getChoiceSet("car", maxTravelTime);
+        SparseChoiceSet transitChoiceSet = dataSet.getChoiceSet("pt", maxTravelTime);
+
+        // Hansen accessibility attraction^alpha * sum(exp(beta * tt)) uses the attraction of the origin
+        // zone, so its log is alpha * ln(attraction) plus the logsum of the impedances beta * tt. Logsums
+        // are kept until all zones are done, and since the results are scaled to 100 anyway,
+        // exponentiation is shifted by the largest logsum.
+        int numberOfZones = dataSet.getZoneIndexBound();
+        double[] autoHouseholdsLogsums = new double[numberOfZones];
+        double[] autoRetailLogsums = new double[numberOfZones];
+        double[] autoOtherLogsums = new double[numberOfZones];
+        double[] transitOtherLogsums = new double[numberOfZones];
+        double[] impedances = new double[numberOfZones];
         for (Zone zone : zones) {
-            float autoAccessibilityHouseholds = 0;
-            float autoAccessibilityRetail = 0;
-            float autoAccessibilityOther = 0;
-            float transitAccessibilityOther = 0;
-            for (Zone toZone : zones) {
-                double autoImpedance;
-                double autoTravelTime = carTravelTimes.getTravelTimeFromTo(zone, toZone);
-                if (autoTravelTime == 0) {      // should never happen for auto
-                    autoImpedance = 0;
-                } else {
-                    autoImpedance = Math.exp(beta * autoTravelTime);
-                }
-                double transitImpedance;
-                double transitTravelTime = transitTravelTimes.getTravelTimeFromTo(zone, toZone);
-                if (transitTravelTime == 0) {   // zone is not connected by walk-to-transit
-                    transitImpedance = 0;
-                } else {
-                    transitImpedance = Math.exp(beta * transitTravelTime);
-                }
-
-                autoAccessibilityHouseholds += Math.pow(zone.getNumberOfHouseholds(), alpha) * autoImpedance;
-                autoAccessibilityRetail += Math.pow(zone.getRetailEmpl(), alpha) * autoImpedance;
-                autoAccessibilityOther += Math.pow(zone.getOtherEmpl(), alpha) * autoImpedance;
-                transitAccessibilityOther += Math.pow(zone.getOtherEmpl(), alpha) * transitImpedance;
+            int index = zone.getIndex();
+            List<Zone> carCandidates = carChoiceSet.getCandidates(zone);
+            for (int i = 0; i < carCandidates.size(); i++) {
+                double autoTravelTime = carTravelTimes.getTravelTimeFromTo(zone, carCandidates.get(i));
+                // a travel time of 0 should never happen for auto
+                impedances[i] = autoTravelTime == 0 ? Double.NEGATIVE_INFINITY : beta * autoTravelTime;
+            }
+            double autoLogsum = MultinomialLogit.logsum(impedances, carCandidates.size());
+            autoHouseholdsLogsums[index] = getAttractionTerm(alpha, zone.getNumberOfHouseholds()) + autoLogsum;
+            autoRetailLogsums[index] = getAttractionTerm(alpha, zone.getRetailEmpl()) + autoLogsum;
+            autoOtherLogsums[index] = getAttractionTerm(alpha, zone.getOtherEmpl()) + autoLogsum;
+
+            List<Zone> transitCandidates = transitChoiceSet.getCandidates(zone);
+            for (int i = 0; i < transitCandidates.size(); i++) {
+                double transitTravelTime = transitTravelTimes.getTravelTimeFromTo(zone, transitCandidates.get(i));
+                // a travel time of 0 means the zone is not connected by walk-to-transit
+                impedances[i] = transitTravelTime == 0 ? Double.NEGATIVE_INFINITY : beta * transitTravelTime;
             }
-            autoAccessibilityHouseholdsByZone.put(zone.getZoneId(), autoAccessibilityHouseholds);
-            autoAccessibilityRetailByZone.put(zone.getZoneId(), autoAccessibilityRetail);
-            autoAccessibilityOtherByZone.put(zone.getZoneId(), autoAccessibilityOther);
-            transitAccessibilityOtherByZone.put(zone.getZoneId(), transitAccessibilityOther);
+            transitOtherLogsums[index] = getAttractionTerm(alpha, zone.getOtherEmpl())
+                    + MultinomialLogit.logsum(impedances, transitCandidates.size());
+        }
+
+        double autoHouseholdsMax = max(autoHouseholdsLogsums);
+        double autoRetailMax = max(autoRetailLogsums);
+        double autoOtherMax = max(autoOtherLogsums);
+        double transitOtherMax = max(transitOtherLogsums);
+        for (Zone zone : zones) {
+            int index = zone.getIndex();
+            autoAccessibilityHouseholdsByZone.put(zone.getZoneId(), (float) Math.exp(autoHouseholdsLogsums[index] - autoHouseholdsMax));
+            autoAccessibilityRetailByZone.put(zone.getZoneId(), (float) Math.exp(autoRetailLogsums[index] - autoRetailMax));
+            autoAccessibilityOtherByZone.put(zone.getZoneId(), (float) Math.exp(autoOtherLogsums[index] - autoOtherMax));
+            transitAccessibilityOtherByZone.put(zone.getZoneId(), (float) Math.exp(transitOtherLogsums[index] - transitOtherMax));
         }
 
         MitoUtil.scaleMapTo(autoAccessibilityHouseholdsByZone, 100);
@@ -87,4 +107,21 @@ public class MitoAccessibility extends Module {
             zone.setTransitAccessibilityOther(transitAccessibilityOtherByZone.get(zone.getZoneId()));
         }
     }
+
+    /**
+     * Returns ln(attraction^alpha). An alpha of 0 gives 0 for any attraction, like Math.pow(0, 0)
+     * is 1, where alpha * ln(0) would be NaN.
+     */
+    private static double getAttractionTerm(float alpha, double attraction) {
+        return alpha == 0 ? 0 : alpha * Math.log(attraction);
+    }
+
+    private static double max(double[] logsums) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double logsum : logsums) {
+            max = Math.max(max, logsum);
+        }
+        // no zone is accessible at all, leave the (zero) accessibilities unscaled
+        return max == Double.NEGATIVE_INFINITY ? 0 : max;
+    }
 }
@@ -5,7 +5,7 @@ import de.tum.bgu.msm.data.MitoPerson;
 import de.tum.bgu.msm.data.MitoTrip;
 import de.tum.bgu.msm.resources.Purpose;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static de.tum.bgu.msm.resources.Occupation.*;
@@ -17,7 +17,8 @@ public class DefaultTripAssignment implements TripAssignment {
     @Override
     public Map<MitoPerson, Double> getProbabilityByPersonForTrip(MitoHousehold household, MitoTrip trip) {
         Purpose purpose = trip.getTripPurpose();
-        Map<MitoPerson, Double> probabilitiesByPerson = new HashMap<>();
+        // insertion order keeps the selection independent of the identity hashes of the persons
+        Map<MitoPerson, Double> probabilitiesByPerson = new LinkedHashMap<>();
         if (purpose == HBW) {
             assignHBW(household, probabilitiesByPerson);
         } else if (purpose == HBE) {
@@ -33,15 +34,15 @@ public class DefaultTripAssignment implements TripAssignment {
     }
 
     private void assignHBW(MitoHousehold household, Map<MitoPerson, Double> probabilitiesByPerson) {
-        for (MitoPerson person : household.getPersons().values()) {
+        for (MitoPerson person : household.getPersonList()) {
             if (person.getOccupation() == WORKER) {
-                long previousTrips = person.getTrips().values().stream().filter(trip -> trip.getTripPurpose() == HBW).count();
+                int previousTrips = person.getNumberOfTripsForPurpose(HBW);
                 double probability = Math.pow(10, -previousTrips);
                 probabilitiesByPerson.put(person, probability);
             }
         }
         if (probabilitiesByPerson.isEmpty()) {
-            for (MitoPerson person : household.getPersons().values()) {
+            for (MitoPerson person : household.getPersonList()) {
                 if (person.getAge() > 16) {
                     probabilitiesByPerson.put(person, 1.);
                 }
@@ -53,9 +54,9 @@ public class DefaultTripAssignment implements TripAssignment {
     }
 
     private void assignHBE(MitoHousehold household, Map<MitoPerson, Double> probabilitiesByPerson) {
-        for (MitoPerson person : household.getPersons().values()) {
+        for (MitoPerson person : household.getPersonList()) {
             if (person.getOccupation() == STUDENT) {
-                long previousTrips = person.getTrips().values().stream().filter(trip -> trip.getTripPurpose() == HBE).count();
+                int previousTrips = person.getNumberOfTripsForPurpose(HBE);
                 double probability = Math.pow(10, -previousTrips);
                 probabilitiesByPerson.put(person, probability);
             }
@@ -66,7 +67,7 @@ public class DefaultTripAssignment implements TripAssignment {
     }
 
     private void assignHBSHBO(MitoHousehold household, Map<MitoPerson, Double> probabilitiesByPerson) {
-        for (MitoPerson person : household.getPersons().values()) {
+        for (MitoPerson person : household.getPersonList()) {
             if (person.getOccupation() == WORKER) {
                 probabilitiesByPerson.put(person, 1. / 3.);
             }
@@ -79,7 +80,7 @@ public class DefaultTripAssignment implements TripAssignment {
             probabilitiesByPerson.put(workTrip.getPerson(), 1.);
         }
         if (probabilitiesByPerson.isEmpty()) {
-            for (MitoPerson person : household.getPersons().values()) {
+            for (MitoPerson person : household.getPersonList()) {
                 if (person.getAge() > 16) {
                     probabilitiesByPerson.put(person, 1.);
                 }
@@ -106,7 +107,7 @@ public class DefaultTripAssignment implements TripAssignment {
     }
 
     private void fillEquallyDistributed(MitoHousehold household, Map<MitoPerson, Double> probabilitiesByPerson) {
-        for (MitoPerson person : household.getPersons().values()) {
+        for (MitoPerson person : household.getPersonList()) {
             probabilitiesByPerson.put(person, 1.);
         }
     }
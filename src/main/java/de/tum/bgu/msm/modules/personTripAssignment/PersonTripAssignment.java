@@ -8,11 +8,16 @@ import de.tum.bgu.msm.modules.Module;
 import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.resources.Resources;
 import de.tum.bgu.msm.util.MitoUtil;
+import de.tum.bgu.msm.util.RandomStreams;
+import de.tum.bgu.msm.util.metrics.ModuleProgress;
+import de.tum.bgu.msm.util.metrics.ProgressMetrics;
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 public class PersonTripAssignment extends Module {
 
@@ -27,7 +32,9 @@ public class PersonTripAssignment extends Module {
 
     @Override
     public void run() {
-        for (MitoHousehold household : dataSet.getHouseholds().values()) {
+        Collection<MitoHousehold> households = dataSet.getHouseholdsToUpdate(false);
+        ModuleProgress progress = ProgressMetrics.startModule("personTripAssignment", "households", households.size());
+        for (MitoHousehold household : households) {
             List<MitoTrip> tripsToDrop = new ArrayList();
             for(Purpose purpose: Purpose.values()) {
                 List<MitoTrip> trips = household.getTripsForPurpose(purpose);
@@ -47,11 +54,15 @@ public class PersonTripAssignment extends Module {
                 tripsToDrop.forEach(trip -> household.removeTrip(trip));
                 tripsToDrop.forEach(trip -> dataSet.removeTrip(trip.getTripId()));
             }
+            progress.count("trips_failed", tripsToDrop.size());
+            progress.increment();
         }
+        progress.finish();
     }
 
     private void selectPersonForTrip(MitoTrip trip, Map<MitoPerson, Double> probabilitiesByPerson) {
-        MitoPerson selectedPerson = MitoUtil.select(probabilitiesByPerson);
+        Random random = RandomStreams.getRandom("personTripAssignment", trip.getRandomStreamId(), trip.getTripPurpose());
+        MitoPerson selectedPerson = MitoUtil.select(probabilitiesByPerson, random);
         trip.setPerson(selectedPerson);
         selectedPerson.addTrip(trip);
     }
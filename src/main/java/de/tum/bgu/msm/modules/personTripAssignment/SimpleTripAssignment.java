@@ -7,7 +7,7 @@ import de.tum.bgu.msm.resources.Occupation;
 import de.tum.bgu.msm.resources.Purpose;
 import org.apache.log4j.Logger;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -24,8 +24,9 @@ class SimpleTripAssignment implements TripAssignment {
     @Override
     public Map<MitoPerson, Double> getProbabilityByPersonForTrip(MitoHousehold household, MitoTrip trip) {
         double weightSum = 0;
-        Map<MitoPerson, Double> probabilitiesByPerson = new HashMap<>();
-        for (MitoPerson person : household.getPersons().values()) {
+        // persons hash by identity, so keep the household order to select reproducibly
+        Map<MitoPerson, Double> probabilitiesByPerson = new LinkedHashMap<>();
+        for (MitoPerson person : household.getPersonList()) {
             double weight = getWeight(household, person, trip);
             weightSum += weight;
             probabilitiesByPerson.put(person, weight);
@@ -8,10 +8,13 @@ import de.tum.bgu.msm.resources.Occupation;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.util.metrics.ModuleProgress;
+import de.tum.bgu.msm.util.metrics.ProgressMetrics;
 import org.apache.log4j.Logger;
 
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.Collection;
 import java.util.EnumSet;
 
 /**
@@ -46,14 +49,16 @@ public class TravelTimeBudget extends Module {
     private void setupTravelTimeBudgetModel() {
         logger.info("  Creating Utility Expression Calculators for microscopic travel time budget calculation.");
         Reader reader = new InputStreamReader(this.getClass().getResourceAsStream("TravelTimeBudgetCalc"));
-        travelTimeCalc = new TravelTimeBudgetJSCalculator(reader, "Total");
+        travelTimeCalc = new TravelTimeBudgetJSCalculator(reader, "Total", dataSet.getUtilityTracer());
     }
 
     private void calculateTravelTimeBudget() {
         // main method to calculate the travel time budget for every household
         logger.info("  Started microscopic travel time budget calculation.");
+        Collection<MitoHousehold> households = dataSet.getHouseholdsToUpdate(true);
+        ModuleProgress progress = ProgressMetrics.startModule("travelTimeBudget", "households", households.size());
         // loop over every household and calculate travel time budget by purpose
-        for (MitoHousehold household : dataSet.getHouseholds().values()) {
+        for (MitoHousehold household : households) {
             travelTimeCalc.setPurpose("Total");
             travelTimeCalc.bindHousehold(household);
             double totalTravelTimeBudget = travelTimeCalc.calculate();
@@ -61,7 +66,9 @@ public class TravelTimeBudget extends Module {
             calculateHBWBudgets(household);
             calculateHBEBudgets(household);
             adjustDiscretionaryPurposeBudget(household, totalTravelTimeBudget);
+            progress.increment();
         }
+        progress.finish();
         logger.info("  Finished microscopic travel time budget calculation.");
         if (ignoredStudents > 0 || ignoredWorkers > 0) {
             logger.warn("There have been " + ignoredWorkers + " workers and " + ignoredStudents
@@ -72,7 +79,7 @@ public class TravelTimeBudget extends Module {
 
     private void calculateHBWBudgets(MitoHousehold household) {
         double hbwBudget = 0;
-        for (MitoPerson person : household.getPersons().values()) {
+        for (MitoPerson person : household.getPersonList()) {
             if (person.getOccupation().equals(Occupation.WORKER)) {
                 if (person.getWorkzone() == null) {
                     logger.debug("Worker with workzone null will not be considered for travel time budget.");
@@ -87,7 +94,7 @@ public class TravelTimeBudget extends Module {
 
     private void calculateHBEBudgets(MitoHousehold household) {
         double hbeBudget = 0;
-        for (MitoPerson person : household.getPersons().values()) {
+        for (MitoPerson person : household.getPersonList()) {
             if (person.getOccupation().equals(Occupation.STUDENT)) {
                 if (person.getWorkzone() == null) {
                     logger.debug("Student with workzone null will not be considered for travel time budget.");
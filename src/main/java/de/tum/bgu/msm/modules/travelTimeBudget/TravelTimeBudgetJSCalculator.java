@@ -4,22 +4,33 @@ import de.tum.bgu.msm.data.MitoHousehold;
 import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.util.MitoUtil;
 import de.tum.bgu.msm.util.js.JavaScriptCalculator;
+import de.tum.bgu.msm.util.js.UtilityTracer;
 
 import java.io.Reader;
 
 public class TravelTimeBudgetJSCalculator extends JavaScriptCalculator<Double> {
 
+    private String purpose;
+    private MitoHousehold household;
+
     /**
     JavascriptCalculator implementation for calculating travel time budgets of households.
      */
     public TravelTimeBudgetJSCalculator(Reader reader, String initialPurpose) {
-        super(reader);
+        this(reader, initialPurpose, UtilityTracer.disabled());
+    }
+
+    public TravelTimeBudgetJSCalculator(Reader reader, String initialPurpose, UtilityTracer tracer) {
+        super(reader, tracer);
+        this.purpose = initialPurpose;
         bindings.put("purpose", initialPurpose);
     }
 
 
     public void setPurpose(String purpose) {
+        this.purpose = purpose;
         bindings.put("purpose", purpose);
+        updateTracing();
     }
 
 
@@ -40,5 +51,14 @@ public class TravelTimeBudgetJSCalculator extends JavaScriptCalculator<Double> {
         for(Purpose purpose: Purpose.values()) {
             bindings.put(purpose.name(), household.getTripsForPurpose(purpose).size());
         }
+        this.household = household;
+        updateTracing();
+    }
+
+    private void updateTracing() {
+        if (tracer.isEnabled() && household != null) {
+            int homeZone = household.getHomeZone().getZoneId();
+            setTracing(tracer.isTraced(household.getHhId(), homeZone, homeZone, purpose));
+        }
     }
 }
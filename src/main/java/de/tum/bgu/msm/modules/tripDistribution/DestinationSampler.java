@@ -0,0 +1,96 @@
+package de.tum.bgu.msm.modules.tripDistribution;
+
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.util.MultinomialLogit;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Samples destinations from a fixed set of weighted zones. The weights are stored as a cumulative
+ * distribution so that a single draw is a binary search, and a batch of draws is a single sweep
+ * over the sorted random numbers.
+ */
+class DestinationSampler implements ZoneSampler {
+
+    private final Zone[] zones;
+    private final double[] cumulative;
+    private final int size;
+    private final double logsum;
+
+    /**
+     * Copies the first {@code size} entries of the given arrays, as produced by
+     * {@link MultinomialLogit#toCumulativeDistribution}, so the caller may reuse them.
+     */
+    DestinationSampler(Zone[] zones, double[] cumulative, int size, double logsum) {
+        this.zones = Arrays.copyOf(zones, size);
+        this.cumulative = Arrays.copyOf(cumulative, size);
+        this.size = size;
+        this.logsum = logsum;
+    }
+
+    @Override
+    public double getLogsum() {
+        return logsum;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0 || !(cumulative[size - 1] > 0);
+    }
+
+    @Override
+    public Zone sample(Random random) {
+        return sample(random.nextDouble());
+    }
+
+    /**
+     * Returns the zone that the given random number in [0,1) selects.
+     */
+    Zone sample(double randomNumber) {
+        return zones[MultinomialLogit.select(cumulative, size, randomNumber)];
+    }
+
+    /**
+     * Returns the (unnormalized) weight of every zone with a positive weight.
+     */
+    Map<Zone, Double> getWeights() {
+        Map<Zone, Double> weights = new LinkedHashMap<>();
+        double previous = 0;
+        for (int i = 0; i < size; i++) {
+            if (cumulative[i] > previous) {
+                weights.put(zones[i], cumulative[i] - previous);
+            }
+            previous = cumulative[i];
+        }
+        return weights;
+    }
+
+    /**
+     * Returns the zones that the given random numbers in [0,1) select, i.e. the same zones as
+     * {@link #sample(double)} for each of them. The random numbers are sorted and matched against
+     * the cumulative distribution in one pass.
+     */
+    Zone[] sample(double[] randomNumbers) {
+        double total = cumulative[size - 1];
+        double[] sorted = randomNumbers.clone();
+        Arrays.sort(sorted);
+        int[] positions = new int[sorted.length];
+        int position = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            double selectedWeight = sorted[i] * total;
+            while (position < size - 1 && cumulative[position] <= selectedWeight) {
+                position++;
+            }
+            positions[i] = position;
+        }
+        Zone[] selected = new Zone[randomNumbers.length];
+        for (int i = 0; i < randomNumbers.length; i++) {
+            // equal random numbers select the same zone, so any of their sorted positions will do
+            selected[i] = zones[positions[Arrays.binarySearch(sorted, randomNumbers[i])]];
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,104 @@
+package de.tum.bgu.msm.modules.tripDistribution;
+
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.util.MultinomialLogit;
+
+import java.util.Random;
+
+/**
+ * Samples a destination in two stages: first a super-zone (the region of the zone) is drawn by
+ * the utility of the region as a whole, then a zone is drawn within the selected region. The
+ * region utilities are calculated once, while the utilities of the zones of a region are only
+ * calculated when the region is drawn for the first time, so a sampler that is reused for many
+ * trips evaluates only the zones of the regions that are actually chosen.
+ */
+public class HierarchicalDestinationSampler implements ZoneSampler {
+
+    /**
+     * Calculates the utilities of the given zones.
+     */
+    public interface ZoneUtilities {
+        void calculate(Zone[] zones, double[] utilities);
+    }
+
+    private final int[] regions;
+    private final Zone[][] zonesByRegion;
+    private final double[] cumulativeRegionWeights;
+    private final double logsum;
+    private final ZoneUtilities zoneUtilities;
+    private final boolean fastExp;
+    private final DestinationSampler[] samplersByRegion;
+
+    /**
+     * @param regions          the region ids
+     * @param zonesByRegion    the candidate zones of every region
+     * @param regionUtilities  the utility of every region, converted in place into cumulative weights
+     * @param zoneUtilities    calculates the utilities of the zones of a drawn region
+     */
+    public HierarchicalDestinationSampler(int[] regions, Zone[][] zonesByRegion, double[] regionUtilities,
+                                          ZoneUtilities zoneUtilities, boolean fastExp) {
+        this.regions = regions;
+        this.zonesByRegion = zonesByRegion;
+        this.logsum = MultinomialLogit.toCumulativeDistribution(regionUtilities, regions.length, fastExp);
+        this.cumulativeRegionWeights = regionUtilities;
+        this.zoneUtilities = zoneUtilities;
+        this.fastExp = fastExp;
+        this.samplersByRegion = new DestinationSampler[regions.length];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return regions.length == 0 || !(cumulativeRegionWeights[regions.length - 1] > 0);
+    }
+
+    /**
+     * Returns the logsum over the region utilities, which approximates the logsum over all zones.
+     */
+    @Override
+    public double getLogsum() {
+        return logsum;
+    }
+
+    /**
+     * Draws a destination. Returns null if no zone has a positive weight.
+     */
+    @Override
+    public Zone sample(Random random) {
+        if (isEmpty()) {
+            return null;
+        }
+        int region = MultinomialLogit.select(cumulativeRegionWeights, regions.length, random.nextDouble());
+        DestinationSampler sampler = getSampler(region);
+        return sampler.isEmpty() ? null : sampler.sample(random);
+    }
+
+    private DestinationSampler getSampler(int region) {
+        DestinationSampler sampler = samplersByRegion[region];
+        if (sampler == null) {
+            Zone[] zones = zonesByRegion[region];
+            double[] utilities = new double[zones.length];
+            zoneUtilities.calculate(zones, utilities);
+            double zoneLogsum = MultinomialLogit.toCumulativeDistribution(utilities, zones.length, fastExp);
+            sampler = new DestinationSampler(zones, utilities, zones.length, zoneLogsum);
+            samplersByRegion[region] = sampler;
+        }
+        return sampler;
+    }
+
+    public int getNumberOfRegions() {
+        return regions.length;
+    }
+
+    public int getRegion(int position) {
+        return regions[position];
+    }
+
+    /**
+     * Returns the probability to draw a zone of the region at the given position.
+     */
+    public double getRegionProbability(int position) {
+        double total = cumulativeRegionWeights[regions.length - 1];
+        double previous = position == 0 ? 0 : cumulativeRegionWeights[position - 1];
+        return (cumulativeRegionWeights[position] - previous) / total;
+    }
+}
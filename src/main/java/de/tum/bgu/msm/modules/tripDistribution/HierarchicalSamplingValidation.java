@@ -0,0 +1,93 @@
+package de.tum.bgu.msm.modules.tripDistribution;
+
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.util.MitoUtil;
+import org.apache.log4j.Logger;
+
+import java.io.PrintWriter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the region-to-region trip distribution produced by hierarchical sampling with the
+ * distribution of the flat destination choice model. For every distributed trip, the flat model's
+ * probability of each destination region is added to the expected trips, while the region that
+ * was actually sampled is counted as one hierarchical trip.
+ */
+class HierarchicalSamplingValidation {
+
+    private static final Logger logger = Logger.getLogger(HierarchicalSamplingValidation.class);
+
+    private final Map<Purpose, Map<Long, double[]>> tripsByPurpose = new EnumMap<>(Purpose.class);
+
+    /**
+     * Returns the probabilities of the flat model to choose a zone of each region.
+     */
+    static Map<Integer, Double> getRegionProbabilities(DestinationSampler flatSampler) {
+        Map<Integer, Double> probabilities = new TreeMap<>();
+        double total = 0;
+        for (Map.Entry<Zone, Double> entry : flatSampler.getWeights().entrySet()) {
+            probabilities.merge(entry.getKey().getRegion(), entry.getValue(), Double::sum);
+            total += entry.getValue();
+        }
+        for (Map.Entry<Integer, Double> entry : probabilities.entrySet()) {
+            entry.setValue(entry.getValue() / total);
+        }
+        return probabilities;
+    }
+
+    synchronized void record(Purpose purpose, Zone origin, Map<Integer, Double> flatRegionProbabilities, Zone destination) {
+        Map<Long, double[]> trips = tripsByPurpose.computeIfAbsent(purpose, k -> new TreeMap<>());
+        for (Map.Entry<Integer, Double> entry : flatRegionProbabilities.entrySet()) {
+            trips.computeIfAbsent(key(origin.getRegion(), entry.getKey()), k -> new double[2])[0] += entry.getValue();
+        }
+        if (destination != null) {
+            trips.computeIfAbsent(key(origin.getRegion(), destination.getRegion()), k -> new double[2])[1]++;
+        }
+    }
+
+    double getFlatExpectedTrips(Purpose purpose, int originRegion, int destinationRegion) {
+        return getTrips(purpose, originRegion, destinationRegion)[0];
+    }
+
+    double getHierarchicalTrips(Purpose purpose, int originRegion, int destinationRegion) {
+        return getTrips(purpose, originRegion, destinationRegion)[1];
+    }
+
+    private double[] getTrips(Purpose purpose, int originRegion, int destinationRegion) {
+        Map<Long, double[]> trips = tripsByPurpose.get(purpose);
+        double[] values = trips == null ? null : trips.get(key(originRegion, destinationRegion));
+        return values == null ? new double[2] : values;
+    }
+
+    void write(String fileName) {
+        PrintWriter pw = MitoUtil.openFileForSequentialWriting(fileName, false);
+        if (pw == null) {
+            return;
+        }
+        pw.println("purpose,originRegion,destinationRegion,flatExpectedTrips,hierarchicalTrips,difference");
+        for (Map.Entry<Purpose, Map<Long, double[]>> purposeEntry : tripsByPurpose.entrySet()) {
+            double absoluteDifference = 0;
+            double totalTrips = 0;
+            for (Map.Entry<Long, double[]> entry : purposeEntry.getValue().entrySet()) {
+                double[] values = entry.getValue();
+                pw.println(purposeEntry.getKey() + "," + (int) (entry.getKey() >> 32) + "," + entry.getKey().intValue()
+                        + "," + values[0] + "," + values[1] + "," + (values[1] - values[0]));
+                absoluteDifference += Math.abs(values[1] - values[0]);
+                totalTrips += values[1];
+            }
+            if (totalTrips > 0) {
+                logger.info("  Hierarchical sampling for " + purposeEntry.getKey() + ": "
+                        + MitoUtil.customFormat("0.00", 100 * absoluteDifference / (2 * totalTrips))
+                        + "% of trips deviate from the flat region-to-region distribution.");
+            }
+        }
+        pw.close();
+    }
+
+    private static long key(int originRegion, int destinationRegion) {
+        return ((long) originRegion << 32) | (destinationRegion & 0xffffffffL);
+    }
+}
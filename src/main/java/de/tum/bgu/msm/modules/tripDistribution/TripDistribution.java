@@ -1,21 +1,41 @@
 package de.tum.bgu.msm.modules.tripDistribution;
 
 import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.DestinationChoiceLogsums;
 import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.MitoPerson;
 import de.tum.bgu.msm.data.MitoTrip;
 import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.data.travelTimes.SparseChoiceSet;
+import de.tum.bgu.msm.data.travelTimes.TravelTimes;
 import de.tum.bgu.msm.modules.Module;
 import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.resources.Resources;
 import de.tum.bgu.msm.util.MitoUtil;
+import de.tum.bgu.msm.util.MultinomialLogit;
+import de.tum.bgu.msm.util.RandomStreams;
+import de.tum.bgu.msm.util.metrics.ModuleProgress;
+import de.tum.bgu.msm.util.metrics.ProgressMetrics;
+import de.tum.bgu.msm.util.profiling.MitoEvents;
+import de.tum.bgu.msm.util.profiling.ProfilingEvent;
 import org.apache.log4j.Logger;
 
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
 
 import static de.tum.bgu.msm.resources.Occupation.STUDENT;
 import static de.tum.bgu.msm.resources.Occupation.WORKER;
@@ -30,6 +50,33 @@ public class TripDistribution extends Module {
     private final static Logger logger = Logger.getLogger(TripDistribution.class);
 
     private TripDistributionJSCalculator tripDistributionCalc;
+    private TravelTimes travelTimes;
+    private SparseChoiceSet choiceSet;
+
+    private boolean hierarchicalSampling;
+    private HierarchicalSamplingValidation validation;
+
+    private Zone[] candidateZones = new Zone[0];
+    private double[] candidateUtilities = new double[0];
+    private boolean fastExp;
+    private Collection<MitoHousehold> households;
+    private ModuleProgress progress;
+
+    private boolean batchDistribution;
+    private double budgetBucket;
+    private boolean orderByZone;
+
+    private Purpose currentPurpose;
+    private double currentBudget;
+    private boolean reuseProbabilities;
+    private Zone lastBaseZone;
+    private Purpose lastPurpose;
+    private double lastBudget;
+    private ZoneSampler lastProbabilities;
+    private Map<Integer, Double> lastFlatRegionProbabilities;
+    private Map<MitoTrip, MitoHousehold> householdsOfTrips;
+    private int sampleInterval;
+    private int evaluations;
 
     public TripDistribution(DataSet dataSet) {
         super(dataSet);
@@ -37,26 +84,344 @@ public class TripDistribution extends Module {
 
     @Override
     public void run() {
-        setupModel();
-        for (MitoHousehold household : dataSet.getHouseholds().values()) {
-            distributeHBW(household);
-            distributeHBE(household);
-            distributeHBS(household);
-            distributeHBO(household);
-            distributeNHBW(household);
-            distributeNHBO(household);
+        runPhase("setup", this::setupModel);
+        if (batchDistribution) {
+            distributeInBatches();
+        } else if (orderByZone) {
+            runPhase("homeBased", () -> {
+                for (MitoHousehold household : households) {
+                    tripDistributionCalc.setHousehold(household.getHhId());
+                    distributeHBW(household);
+                    distributeHBE(household);
+                    distributeHBS(household);
+                    distributeHBO(household);
+                    updateProgress();
+                }
+            });
+            runPhase("nonHomeBased", this::distributeNonHomeBasedByBaseZone);
+        } else {
+            runPhase("households", () -> {
+                for (MitoHousehold household : households) {
+                    tripDistributionCalc.setHousehold(household.getHhId());
+                    distributeHBW(household);
+                    distributeHBE(household);
+                    distributeHBS(household);
+                    distributeHBO(household);
+                    distributeNHBW(household);
+                    distributeNHBO(household);
+                    updateProgress();
+                }
+            });
         }
+        updateProgress();
+        progress.finish();
+        // trips of households that were not redistributed keep their logsums of the previous run
+        dataSet.setDestinationChoiceLogsums(DestinationChoiceLogsums.of(dataSet));
         System.out.println("Distributed: " + distributedTripsCounter + ", failed: " + failedTripsCounter);
+        if (validation != null) {
+            validation.write(MitoUtil.getScenarioOutputFileName(
+                    Resources.INSTANCE.getString(Properties.TRIP_DISTRIBUTION_HIERARCHICAL_VALIDATION)));
+        }
+    }
+
+    /**
+     * Runs one phase of the trip distribution, recording it as a flight recorder event even if it fails.
+     */
+    private static void runPhase(String name, Runnable phase) {
+        ProfilingEvent event = MitoEvents.beginPhase("tripDistribution", name);
+        try {
+            phase.run();
+        } finally {
+            event.commit();
+        }
     }
 
     private void setupModel() {
         logger.info("  Creating Utility Expression Calculators for microscopic trip distribution.");
         Reader reader = new InputStreamReader(this.getClass().getResourceAsStream("TripDistribution"));
-        tripDistributionCalc = new TripDistributionJSCalculator(reader, dataSet.getTravelTimes("car"));
+        travelTimes = dataSet.getTravelTimes("car");
+        tripDistributionCalc = new TripDistributionJSCalculator(reader, travelTimes, dataSet.getUtilityTracer());
+        double maxTravelTime = Resources.INSTANCE.getDouble(Properties.CHOICE_SET_MAX_TRAVEL_TIME, -1);
+        choiceSet = dataSet.getChoiceSet("car", maxTravelTime);
+        households = dataSet.getHouseholdsToUpdate(true);
+        if (dataSet.isIncrementalRun(true)) {
+            households = addHouseholdsReachingChangedZones(households);
+        }
+        for (MitoHousehold household : households) {
+            for (Purpose purpose : Purpose.values()) {
+                for (MitoTrip trip : household.getTripsForPurpose(purpose)) {
+                    trip.setDestinationChoiceLogsum(null, Double.NaN);
+                }
+            }
+        }
+        fastExp = Resources.INSTANCE.getBoolean(Properties.LOGIT_FAST_EXP, false);
+        hierarchicalSampling = Resources.INSTANCE.getBoolean(Properties.TRIP_DISTRIBUTION_HIERARCHICAL, false);
+        if (hierarchicalSampling) {
+            logger.info("  Sampling destinations hierarchically by region and zone.");
+            if (Resources.INSTANCE.getString(Properties.TRIP_DISTRIBUTION_HIERARCHICAL_VALIDATION, null) != null) {
+                validation = new HierarchicalSamplingValidation();
+            }
+        }
+        batchDistribution = Resources.INSTANCE.getBoolean(Properties.TRIP_DISTRIBUTION_BATCH, false);
+        budgetBucket = Resources.INSTANCE.getDouble(Properties.TRIP_DISTRIBUTION_BUDGET_BUCKET, 1.0);
+        if (batchDistribution) {
+            logger.info("  Distributing trips in batches of identical purpose, base zone and budget.");
+        }
+        orderByZone = Resources.INSTANCE.getBoolean(Properties.TRIP_DISTRIBUTION_ORDER_BY_ZONE, false);
+        if (orderByZone) {
+            logger.info("  Distributing trips in order of home zone and base zone.");
+            households = sortByHomeZone(households);
+        }
+        int numberOfTrips = 0;
+        for (MitoHousehold household : households) {
+            for (Purpose purpose : Purpose.values()) {
+                numberOfTrips += household.getTripsForPurpose(purpose).size();
+            }
+        }
+        if (dataSet.isIncrementalRun(true)) {
+            logger.info("  Redistributing " + numberOfTrips + " trips of " + households.size() + " of "
+                    + dataSet.getHouseholds().size() + " households.");
+        }
+        progress = ProgressMetrics.startModule("tripDistribution", "trips", numberOfTrips);
+        // traces are selected by household, so traced utilities have to be evaluated every time
+        reuseProbabilities = !tripDistributionCalc.isTracingEnabled();
+        lastProbabilities = null;
+        sampleInterval = Math.max(1, Resources.INSTANCE.getInt(Properties.JFR_SAMPLE_INTERVAL, 100));
+        evaluations = 0;
+    }
+
+    /**
+     * Adds the households of which any trip has a zone among its candidates whose number of
+     * households has changed, as the destination utilities of these trips have changed. Base zones
+     * are the home zone for home-based trips and the origin or destination of non-home-based trips.
+     */
+    private Collection<MitoHousehold> addHouseholdsReachingChangedZones(Collection<MitoHousehold> changedHouseholds) {
+        Set<Zone> changedZones = dataSet.getZonesWithChangedHouseholds();
+        if (changedZones.isEmpty()) {
+            return changedHouseholds;
+        }
+        Set<Zone> affectedBaseZones = new HashSet<>();
+        for (Zone zone : dataSet.getZones().values()) {
+            for (Zone candidate : choiceSet.getCandidates(zone)) {
+                if (changedZones.contains(candidate)) {
+                    affectedBaseZones.add(zone);
+                    break;
+                }
+            }
+        }
+        Set<MitoHousehold> result = new LinkedHashSet<>(changedHouseholds);
+        for (MitoHousehold household : dataSet.getHouseholds().values()) {
+            if (!result.contains(household) && reachesAny(household, affectedBaseZones)) {
+                result.add(household);
+            }
+        }
+        logger.info("  Distributing trips of " + changedHouseholds.size() + " added or changed households and of "
+                + (result.size() - changedHouseholds.size()) + " households that reach one of " + changedZones.size()
+                + " zones with changed number of households.");
+        return result;
+    }
+
+    private static boolean reachesAny(MitoHousehold household, Set<Zone> baseZones) {
+        if (baseZones.contains(household.getHomeZone())) {
+            return true;
+        }
+        for (Purpose purpose : EnumSet.of(NHBW, NHBO)) {
+            for (MitoTrip trip : household.getTripsForPurpose(purpose)) {
+                if (baseZones.contains(trip.getTripOrigin()) || baseZones.contains(trip.getTripDestination())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the households ordered by home zone id, keeping their order within a zone, so that
+     * consecutive households share travel time rows and destination probabilities. Households
+     * without home zone come last.
+     */
+    private static List<MitoHousehold> sortByHomeZone(Collection<MitoHousehold> households) {
+        List<MitoHousehold> sorted = new ArrayList<>(households);
+        sorted.sort(Comparator.comparingInt(household ->
+                household.getHomeZone() == null ? Integer.MAX_VALUE : household.getHomeZone().getZoneId()));
+        return sorted;
+    }
+
+    /**
+     * Distributes the non-home-based trips of all households, once all home-based trips have
+     * destinations, ordered by purpose, base zone and budget. Every trip draws from its own random stream,
+     * so the destinations do not depend on the order.
+     */
+    private void distributeNonHomeBasedByBaseZone() {
+        List<NonHomeBasedTrip> nonHomeBasedTrips = new ArrayList<>();
+        for (MitoHousehold household : households) {
+            for (Purpose purpose : EnumSet.of(NHBW, NHBO)) {
+                List<MitoTrip> trips = household.getTripsForPurpose(purpose);
+                double budgetPerTrip = household.getTravelTimeBudgetForPurpose(purpose) / trips.size();
+                for (MitoTrip trip : trips) {
+                    nonHomeBasedTrips.add(new NonHomeBasedTrip(trip, household, findBaseZone(trip), budgetPerTrip));
+                }
+            }
+        }
+        nonHomeBasedTrips.sort(Comparator.<NonHomeBasedTrip, Purpose>comparing(trip -> trip.trip.getTripPurpose())
+                .thenComparingInt(NonHomeBasedTrip::getSortZoneId)
+                .thenComparingDouble(trip -> trip.budget));
+        for (NonHomeBasedTrip trip : nonHomeBasedTrips) {
+            tripDistributionCalc.setHousehold(trip.household.getHhId());
+            setPurposeAndBudget(trip.trip.getTripPurpose(), trip.budget);
+            distributeNonHomeBased(trip.trip, trip.household, trip.baseZone);
+            updateProgress();
+        }
+    }
+
+    private void setPurposeAndBudget(Purpose purpose, double budget) {
+        tripDistributionCalc.setPurposeAndBudget(purpose, budget);
+        currentPurpose = purpose;
+        currentBudget = budget;
+    }
+
+    /**
+     * Evaluates the utilities of all candidate destinations of the base zone, or of their regions
+     * if destinations are sampled hierarchically. The next call returns the same sampler if base
+     * zone, purpose and budget have not changed.
+     */
+    private ZoneSampler calculateProbabilities(Zone baseZone) {
+        if (reuseProbabilities && lastProbabilities != null && baseZone == lastBaseZone
+                && currentPurpose == lastPurpose && Double.compare(currentBudget, lastBudget) == 0) {
+            // the utilities only depend on base zone, purpose and budget
+            return lastProbabilities;
+        }
+        ProfilingEvent event = ++evaluations % sampleInterval == 0 ? MitoEvents.DESTINATION_CHOICE.begin() : null;
+        List<Zone> candidates = choiceSet.getCandidates(baseZone);
+        try {
+            if (hierarchicalSampling) {
+                lastProbabilities = calculateHierarchicalProbabilities(baseZone, candidates);
+                lastFlatRegionProbabilities = validation == null ? null
+                        : HierarchicalSamplingValidation.getRegionProbabilities(calculateFlatProbabilities(baseZone, candidates));
+            } else {
+                lastProbabilities = calculateFlatProbabilities(baseZone, candidates);
+            }
+        } finally {
+            if (event != null) {
+                event.set(0, currentPurpose.name()).set(1, baseZone.getZoneId()).set(2, candidates.size()).commit();
+            }
+        }
+        lastBaseZone = baseZone;
+        lastPurpose = currentPurpose;
+        lastBudget = currentBudget;
+        return lastProbabilities;
+    }
+
+    private DestinationSampler calculateFlatProbabilities(Zone baseZone, List<Zone> candidates) {
+        tripDistributionCalc.setBaseZone(baseZone);
+        int size = candidates.size();
+        if (candidateZones.length < size) {
+            candidateZones = new Zone[size];
+            candidateUtilities = new double[size];
+        }
+        for (int i = 0; i < size; i++) {
+            Zone zone = candidates.get(i);
+            tripDistributionCalc.setTargetZone(zone);
+            candidateZones[i] = zone;
+            candidateUtilities[i] = tripDistributionCalc.calculate();
+        }
+        double logsum = MultinomialLogit.toCumulativeDistribution(candidateUtilities, size, fastExp);
+        return new DestinationSampler(candidateZones, candidateUtilities, size, logsum);
+    }
+
+    /**
+     * Groups the candidate zones by region and evaluates the utility of every region as if it were
+     * a single zone with the summed attractions of its zones and their mean travel time, weighted
+     * by households, employees and enrollment. The zones of a region are only evaluated once the
+     * region is drawn.
+     */
+    private HierarchicalDestinationSampler calculateHierarchicalProbabilities(Zone baseZone, List<Zone> candidates) {
+        Map<Integer, List<Zone>> zonesByRegion = new LinkedHashMap<>();
+        for (Zone zone : candidates) {
+            zonesByRegion.computeIfAbsent(zone.getRegion(), k -> new ArrayList<>()).add(zone);
+        }
+        int[] regions = new int[zonesByRegion.size()];
+        Zone[][] regionZones = new Zone[regions.length][];
+        double[] regionUtilities = new double[regions.length];
+        tripDistributionCalc.setBaseZone(baseZone);
+        int position = 0;
+        for (Map.Entry<Integer, List<Zone>> entry : zonesByRegion.entrySet()) {
+            regions[position] = entry.getKey();
+            regionZones[position] = entry.getValue().toArray(new Zone[0]);
+            Zone region = new Zone(entry.getKey(), 0);
+            int households = 0;
+            int totalEmployees = 0;
+            int retailEmployees = 0;
+            int otherEmployees = 0;
+            int schoolEnrollment = 0;
+            double weightedTravelTime = 0;
+            double travelTime = 0;
+            double weights = 0;
+            for (Zone zone : regionZones[position]) {
+                households += zone.getNumberOfHouseholds();
+                totalEmployees += zone.getTotalEmpl();
+                retailEmployees += zone.getRetailEmpl();
+                otherEmployees += zone.getOtherEmpl();
+                schoolEnrollment += zone.getSchoolEnrollment();
+                double zoneTravelTime = travelTimes.getTravelTimeFromTo(baseZone, zone);
+                double weight = zone.getNumberOfHouseholds() + zone.getTotalEmpl() + zone.getSchoolEnrollment();
+                weightedTravelTime += weight * zoneTravelTime;
+                travelTime += zoneTravelTime;
+                weights += weight;
+            }
+            region.setNumberOfHouseholds(households);
+            region.setTotalEmpl(totalEmployees);
+            region.setRetailEmpl(retailEmployees);
+            region.setOtherEmpl(otherEmployees);
+            region.setSchoolEnrollment(schoolEnrollment);
+            tripDistributionCalc.setTargetZone(region, weights > 0 ? weightedTravelTime / weights
+                    : travelTime / regionZones[position].length);
+            regionUtilities[position] = tripDistributionCalc.calculate();
+            position++;
+        }
+        Purpose purpose = currentPurpose;
+        double budget = currentBudget;
+        return new HierarchicalDestinationSampler(regions, regionZones, regionUtilities, (zones, utilities) -> {
+            tripDistributionCalc.setBaseZone(baseZone);
+            tripDistributionCalc.setPurposeAndBudget(purpose, budget);
+            for (int i = 0; i < zones.length; i++) {
+                tripDistributionCalc.setTargetZone(zones[i]);
+                utilities[i] = tripDistributionCalc.calculate();
+            }
+        }, fastExp);
+    }
+
+    /**
+     * Draws the base zone of a non-home-based trip without a previous home-based trip. This is no
+     * destination choice of its own, so unlike {@link #selectZone} it records no logsum, which is
+     * recorded for the choice of the second zone of the trip.
+     */
+    private static Zone selectBaseZone(ZoneSampler probabilities, Random random) {
+        return probabilities.isEmpty() ? null : probabilities.sample(random);
+    }
+
+    /**
+     * Draws the destination of the trip and records the logsum of its choice. Returns null if no
+     * zone can be drawn, e.g. if the zones of the drawn region all have zero weight, in which case
+     * the trip counts as failed.
+     */
+    private Zone selectZone(MitoTrip trip, Purpose purpose, Zone baseZone, ZoneSampler probabilities) {
+        if (probabilities.isEmpty()) {
+            return null;
+        }
+        Zone zone = probabilities.sample(getRandom(trip));
+        if (zone == null) {
+            return null;
+        }
+        trip.setDestinationChoiceLogsum(baseZone, probabilities.getLogsum());
+        if (validation != null) {
+            validation.record(purpose, baseZone, lastFlatRegionProbabilities, zone);
+        }
+        return zone;
     }
 
     private void distributeHBW(MitoHousehold household) {
-        tripDistributionCalc.setPurposeAndBudget(HBW, 0);
+        setPurposeAndBudget(HBW, 0);
         for (MitoTrip trip : household.getTripsForPurpose(HBW)) {
             trip.setTripOrigin(household.getHomeZone());
             if (trip.getPerson().getOccupation() == WORKER && trip.getPerson().getWorkzone() != null) {
@@ -64,22 +429,18 @@ public class TripDistribution extends Module {
                 distributedTripsCounter++;
             } else {
                 logger.debug(trip + " is not done by a worker (or invalid workzone). Selecting zone by total employment utility");
-                tripDistributionCalc.setBaseZone(household.getHomeZone());
-                Map<Zone, Double> probabilities = new HashMap<>();
-                for (Zone zone : dataSet.getZones().values()) {
-                    tripDistributionCalc.setTargetZone(zone);
-                    double utility = tripDistributionCalc.calculate();
-                    double probability = Math.exp(utility);
-                    if (probability > 0) {
-                        probabilities.put(zone, probability);
-                    }
-                }
+                ZoneSampler probabilities = calculateProbabilities(household.getHomeZone());
                 if (probabilities.isEmpty()) {
                     logger.warn("Could not find destination for trip " + trip);
                     failedTripsCounter++;
                     continue;
                 }
-                Zone destination = MitoUtil.select(probabilities);
+                Zone destination = selectZone(trip, HBW, household.getHomeZone(), probabilities);
+                if (destination == null) {
+                    logger.warn("Could not find destination for trip " + trip);
+                    failedTripsCounter++;
+                    continue;
+                }
                 distributedTripsCounter++;
                 trip.setTripDestination(destination);
             }
@@ -87,7 +448,7 @@ public class TripDistribution extends Module {
     }
 
     private void distributeHBE(MitoHousehold household) {
-        tripDistributionCalc.setPurposeAndBudget(HBE, 0);
+        setPurposeAndBudget(HBE, 0);
         for (MitoTrip trip : household.getTripsForPurpose(HBE)) {
             trip.setTripOrigin(household.getHomeZone());
             if (trip.getPerson().getOccupation() == STUDENT && trip.getPerson().getWorkzone() != null) {
@@ -95,22 +456,18 @@ public class TripDistribution extends Module {
                 distributedTripsCounter++;
             } else {
                 logger.debug(trip + " is not done by a student (or invalid workzone). Selecting zone by school enrollment utility");
-                tripDistributionCalc.setBaseZone(household.getHomeZone());
-                Map<Zone, Double> probabilities = new HashMap<>();
-                for (Zone zone : dataSet.getZones().values()) {
-                    tripDistributionCalc.setTargetZone(zone);
-                    double utility = tripDistributionCalc.calculate();
-                    double probability = Math.exp(utility);
-                    if (probability > 0) {
-                        probabilities.put(zone, probability);
-                    }
-                }
+                ZoneSampler probabilities = calculateProbabilities(household.getHomeZone());
                 if (probabilities.isEmpty()) {
                     logger.warn("Could not find destination for trip " + trip);
                     failedTripsCounter++;
                     continue;
                 }
-                Zone destination = MitoUtil.select(probabilities);
+                Zone destination = selectZone(trip, HBE, household.getHomeZone(), probabilities);
+                if (destination == null) {
+                    logger.warn("Could not find destination for trip " + trip);
+                    failedTripsCounter++;
+                    continue;
+                }
                 distributedTripsCounter++;
                 trip.setTripDestination(destination);
             }
@@ -120,25 +477,21 @@ public class TripDistribution extends Module {
     private void distributeHBS(MitoHousehold household) {
         List<MitoTrip> trips = household.getTripsForPurpose(HBS);
         double budgetPerTrip = household.getTravelTimeBudgetForPurpose(HBS) / trips.size();
-        tripDistributionCalc.setBaseZone(household.getHomeZone());
-        tripDistributionCalc.setPurposeAndBudget(HBS, budgetPerTrip);
+        setPurposeAndBudget(HBS, budgetPerTrip);
+        ZoneSampler probabilities = trips.isEmpty() ? null : calculateProbabilities(household.getHomeZone());
         for (MitoTrip trip : trips) {
-            Map<Zone, Double> probabilities = new HashMap<>();
             trip.setTripOrigin(household.getHomeZone());
-            for (Zone zone : dataSet.getZones().values()) {
-                tripDistributionCalc.setTargetZone(zone);
-                double utility = tripDistributionCalc.calculate();
-                double probability = Math.exp(utility);
-                if (probability > 0) {
-                    probabilities.put(zone, probability);
-                }
-            }
             if (probabilities.isEmpty()) {
                 logger.warn("Could not find destination for trip " + trip);
                 failedTripsCounter++;
                 continue;
             }
-            Zone destination = MitoUtil.select(probabilities);
+            Zone destination = selectZone(trip, HBS, household.getHomeZone(), probabilities);
+            if (destination == null) {
+                logger.warn("Could not find destination for trip " + trip);
+                failedTripsCounter++;
+                continue;
+            }
             trip.setTripDestination(destination);
             distributedTripsCounter++;
         }
@@ -147,25 +500,21 @@ public class TripDistribution extends Module {
     private void distributeHBO(MitoHousehold household) {
         List<MitoTrip> trips = household.getTripsForPurpose(HBO);
         double budgetPerTrip = household.getTravelTimeBudgetForPurpose(HBO) / trips.size();
-        tripDistributionCalc.setBaseZone(household.getHomeZone());
-        tripDistributionCalc.setPurposeAndBudget(HBO, budgetPerTrip);
+        setPurposeAndBudget(HBO, budgetPerTrip);
+        ZoneSampler probabilities = trips.isEmpty() ? null : calculateProbabilities(household.getHomeZone());
         for (MitoTrip trip : trips) {
-            Map<Zone, Double> probabilities = new HashMap<>();
             trip.setTripOrigin(household.getHomeZone());
-            for (Zone zone : dataSet.getZones().values()) {
-                tripDistributionCalc.setTargetZone(zone);
-                double utility = tripDistributionCalc.calculate();
-                double probability = Math.exp(utility);
-                if (probability > 0) {
-                    probabilities.put(zone, probability);
-                }
-            }
             if (probabilities.isEmpty()) {
                 logger.warn("Could not find destination for trip " + trip);
                 failedTripsCounter++;
                 continue;
             }
-            Zone destination = MitoUtil.select(probabilities);
+            Zone destination = selectZone(trip, HBO, household.getHomeZone(), probabilities);
+            if (destination == null) {
+                logger.warn("Could not find destination for trip " + trip);
+                failedTripsCounter++;
+                continue;
+            }
             distributedTripsCounter++;
             trip.setTripDestination(destination);
         }
@@ -174,123 +523,368 @@ public class TripDistribution extends Module {
     private void distributeNHBW(MitoHousehold household) {
         List<MitoTrip> trips = household.getTripsForPurpose(NHBW);
         double budgetPerTrip = household.getTravelTimeBudgetForPurpose(NHBW) / trips.size();
-        tripDistributionCalc.setPurposeAndBudget(NHBW, budgetPerTrip);
+        setPurposeAndBudget(NHBW, budgetPerTrip);
+        for (MitoTrip trip : trips) {
+            distributeNonHomeBased(trip, household, findBaseZone(trip));
+        }
+    }
 
+    private void distributeNHBO(MitoHousehold household) {
+        List<MitoTrip> trips = household.getTripsForPurpose(NHBO);
+        double budgetPerTrip = household.getTravelTimeBudgetForPurpose(NHBO) / trips.size();
+        setPurposeAndBudget(NHBO, budgetPerTrip);
         for (MitoTrip trip : trips) {
-            Map<Zone, Double> probabilities = new HashMap<>();
-            Zone baseZone = null;
-            for (MitoTrip hbwTrip : household.getTripsForPurpose(HBW)) {
-                if (hbwTrip.getPerson().equals(trip.getPerson())) {
-                    baseZone = hbwTrip.getTripDestination();
-                    break;
-                }
-            }
+            distributeNonHomeBased(trip, household, findBaseZone(trip));
+        }
+    }
 
-            if (baseZone == null) {
+    /**
+     * Distributes a non-home-based trip from or to the given base zone. Purpose and budget of the
+     * trip have to be set before.
+     */
+    private void distributeNonHomeBased(MitoTrip trip, MitoHousehold household, Zone baseZone) {
+        Purpose purpose = trip.getTripPurpose();
+        if (baseZone == null) {
+            if (purpose == NHBW) {
                 logger.warn("Could not find a previous home based work trip destination for nhbw trip. Picking by random utility.");
-                Map<Zone, Double> probabilitiesAlt = new HashMap<>();
-                tripDistributionCalc.setBaseZone(household.getHomeZone());
-                for (Zone zone : dataSet.getZones().values()) {
-                    tripDistributionCalc.setTargetZone(zone);
-                    double utility = tripDistributionCalc.calculate();
-                    double probability = Math.exp(utility);
-                    if (probability > 0) {
-                        probabilitiesAlt.put(zone, probability);
+            } else {
+                logger.warn("Could not find a previous home based trip destination for nhbo trip. Picking by random utility.");
+            }
+            ZoneSampler probabilitiesAlt = calculateProbabilities(household.getHomeZone());
+            baseZone = selectBaseZone(probabilitiesAlt, getBaseZoneRandom(trip));
+            if (baseZone == null) {
+                failedTripsCounter++;
+                return;
+            }
+        }
+        ZoneSampler probabilities = calculateProbabilities(baseZone);
+        if (probabilities.isEmpty()) {
+            logger.warn("No zone could be assigned by random utility");
+            failedTripsCounter++;
+            return;
+        }
+        Zone secondZone = selectZone(trip, purpose, baseZone, probabilities);
+        if (secondZone == null) {
+            logger.warn("No zone could be assigned by random utility");
+            failedTripsCounter++;
+            return;
+        }
+        distributedTripsCounter++;
+        setNonHomeBasedOriginAndDestination(trip, baseZone, secondZone);
+    }
+
+    /**
+     * Returns the destination of a previous home-based trip of the same person, which serves as
+     * base zone of the given non-home-based trip, or null if there is none. The trips are looked
+     * up in the per-purpose trips of the person, in the order HBO, HBS, HBE for NHBO trips.
+     */
+    private Zone findBaseZone(MitoTrip trip) {
+        MitoPerson person = trip.getPerson();
+        if (trip.getTripPurpose() == NHBW) {
+            List<MitoTrip> hbwTrips = person.getTripsForPurpose(HBW);
+            return hbwTrips.isEmpty() ? null : hbwTrips.get(0).getTripDestination();
+        }
+        int hboTrips = person.getNumberOfTripsForPurpose(HBO);
+        int hbsTrips = person.getNumberOfTripsForPurpose(HBS);
+        int numberOfBaseZones = hboTrips + hbsTrips + person.getNumberOfTripsForPurpose(HBE);
+        if (numberOfBaseZones == 0) {
+            return null;
+        }
+        double randomNumber = RandomStreams.uniform(getRandomKey(trip), 0);
+        int index = (int) (randomNumber * numberOfBaseZones);
+        if (index < hboTrips) {
+            return person.getTripsForPurpose(HBO).get(index).getTripDestination();
+        } else if (index < hboTrips + hbsTrips) {
+            return person.getTripsForPurpose(HBS).get(index - hboTrips).getTripDestination();
+        }
+        return person.getTripsForPurpose(HBE).get(index - hboTrips - hbsTrips).getTripDestination();
+    }
+
+    private void setNonHomeBasedOriginAndDestination(MitoTrip trip, Zone baseZone, Zone secondZone) {
+        if (RandomStreams.uniform(getRandomKey(trip), 1) > 0.5f) {
+            trip.setTripDestination(baseZone);
+            trip.setTripOrigin(secondZone);
+        } else if (trip.getTripPurpose() == NHBW) {
+            trip.setTripOrigin(baseZone);
+            trip.setTripDestination(secondZone);
+        } else {
+            trip.setTripOrigin(secondZone);
+            trip.setTripDestination(baseZone);
+        }
+    }
+
+    /**
+     * Returns the random stream of the destination choice of a single trip. Base zone and
+     * orientation of non-home-based trips are drawn by counter from the same key.
+     */
+    private static Random getRandom(MitoTrip trip) {
+        return new Random(getRandomKey(trip));
+    }
+
+    /**
+     * Returns the random stream that picks the base zone of a non-home-based trip without a
+     * previous home-based trip.
+     */
+    private static Random getBaseZoneRandom(MitoTrip trip) {
+        return RandomStreams.getRandom("tripDistribution.baseZone", trip.getRandomStreamId(), trip.getTripPurpose());
+    }
+
+    /**
+     * Publishes the trips distributed and failed so far as progress of the module.
+     */
+    private void updateProgress() {
+        progress.setProcessed(distributedTripsCounter + failedTripsCounter);
+        progress.setCount("trips_distributed", distributedTripsCounter);
+        progress.setCount("trips_failed", failedTripsCounter);
+    }
+
+    private static long getRandomKey(MitoTrip trip) {
+        return RandomStreams.key("tripDistribution", trip.getRandomStreamId(), trip.getTripPurpose());
+    }
+
+    /**
+     * Distributes all trips of the synthetic population group by group. Trips that share purpose,
+     * base zone and (rounded) travel time budget have identical destination probabilities, so the
+     * utilities are evaluated once per group and all destinations of the group are drawn at once.
+     * Every trip still draws from its own random stream, so with a budget bucket of zero the
+     * destinations equal those of the trip by trip distribution.
+     */
+    private void distributeInBatches() {
+        householdsOfTrips = new HashMap<>();
+        if (tripDistributionCalc.isTracingEnabled()) {
+            for (MitoHousehold household : households) {
+                for (Purpose purpose : Purpose.values()) {
+                    for (MitoTrip trip : household.getTripsForPurpose(purpose)) {
+                        householdsOfTrips.put(trip, household);
                     }
                 }
-                baseZone = MitoUtil.select(probabilitiesAlt);
             }
-            tripDistributionCalc.setBaseZone(baseZone);
-            for (Zone zone : dataSet.getZones().values()) {
-                tripDistributionCalc.setTargetZone(zone);
-                double utility = tripDistributionCalc.calculate();
-                double probability = Math.exp(utility);
-                if (probability > 0) {
-                    probabilities.put(zone, probability);
+        }
+        runPhase("homeBased", this::distributeHomeBasedInBatches);
+        runPhase("nonHomeBased", this::distributeNonHomeBasedInBatches);
+    }
+
+    private void distributeHomeBasedInBatches() {
+        Map<TripGroup, List<MitoTrip>> homeBasedGroups = new LinkedHashMap<>();
+        for (MitoHousehold household : households) {
+            for (Purpose purpose : EnumSet.of(HBW, HBE, HBS, HBO)) {
+                List<MitoTrip> trips = household.getTripsForPurpose(purpose);
+                double budget = getBudgetPerTrip(household, purpose, trips.size());
+                for (MitoTrip trip : trips) {
+                    trip.setTripOrigin(household.getHomeZone());
+                    if (hasFixedDestination(purpose, trip)) {
+                        trip.setTripDestination(trip.getPerson().getWorkzone());
+                        distributedTripsCounter++;
+                    } else {
+                        addToGroup(homeBasedGroups, purpose, household.getHomeZone(), budget, trip);
+                    }
                 }
             }
-            if (probabilities.isEmpty()) {
-                logger.warn("No zone could be assigned by random utility");
-                failedTripsCounter++;
+        }
+        logger.info("  Distributing home-based trips in " + homeBasedGroups.size() + " batches.");
+        for (Map.Entry<TripGroup, List<MitoTrip>> entry : homeBasedGroups.entrySet()) {
+            List<MitoTrip> trips = entry.getValue();
+            Zone[] destinations = sampleGroup(entry.getKey(), trips, false);
+            if (destinations == null) {
+                logger.warn("Could not find destination for " + trips.size() + " " + entry.getKey().purpose + " trips");
+                failedTripsCounter += trips.size();
+                updateProgress();
                 continue;
             }
-            Zone secondZone = MitoUtil.select(probabilities);
-            distributedTripsCounter++;
-            if (MitoUtil.getRandomFloat() > 0.5f) {
-                trip.setTripDestination(baseZone);
-                trip.setTripOrigin(secondZone);
-            } else {
-                trip.setTripOrigin(baseZone);
-                trip.setTripDestination(secondZone);
+            for (int i = 0; i < destinations.length; i++) {
+                if (destinations[i] == null) {
+                    failedTripsCounter++;
+                } else {
+                    trips.get(i).setTripDestination(destinations[i]);
+                    distributedTripsCounter++;
+                }
             }
+            updateProgress();
         }
     }
 
-    private void distributeNHBO(MitoHousehold household) {
-        List<MitoTrip> trips = household.getTripsForPurpose(NHBO);
-        double budgetPerTrip = household.getTravelTimeBudgetForPurpose(NHBO) / trips.size();
-        tripDistributionCalc.setPurposeAndBudget(NHBO, budgetPerTrip);
-        for (MitoTrip trip : trips) {
-            Map<Zone, Double> probabilities = new HashMap<>();
-            Zone baseZone = null;
-            List<Zone> possibleBaseZones = new ArrayList<>();
-            for (MitoTrip hboTrip : household.getTripsForPurpose(HBO)) {
-                if (hboTrip.getPerson().equals(trip.getPerson())) {
-                    possibleBaseZones.add(hboTrip.getTripDestination());
+    private void distributeNonHomeBasedInBatches() {
+        Map<TripGroup, List<MitoTrip>> nonHomeBasedGroups = new LinkedHashMap<>();
+        Map<TripGroup, List<MitoTrip>> missingBaseZoneGroups = new LinkedHashMap<>();
+        for (MitoHousehold household : households) {
+            for (Purpose purpose : EnumSet.of(NHBW, NHBO)) {
+                List<MitoTrip> trips = household.getTripsForPurpose(purpose);
+                double budget = getBudgetPerTrip(household, purpose, trips.size());
+                for (MitoTrip trip : trips) {
+                    Zone baseZone = findBaseZone(trip);
+                    if (baseZone == null) {
+                        addToGroup(missingBaseZoneGroups, purpose, household.getHomeZone(), budget, trip);
+                    } else {
+                        addToGroup(nonHomeBasedGroups, purpose, baseZone, budget, trip);
+                    }
                 }
             }
-            for (MitoTrip hbsTrip : household.getTripsForPurpose(HBS)) {
-                if (hbsTrip.getPerson().equals(trip.getPerson())) {
-                    possibleBaseZones.add(hbsTrip.getTripDestination());
+        }
+        for (Map.Entry<TripGroup, List<MitoTrip>> entry : missingBaseZoneGroups.entrySet()) {
+            TripGroup group = entry.getKey();
+            List<MitoTrip> trips = entry.getValue();
+            logger.warn("Could not find a previous home based trip destination for " + trips.size() + " "
+                    + group.purpose + " trips. Picking by random utility.");
+            Zone[] baseZones = sampleGroup(group, trips, true);
+            for (int i = 0; i < trips.size(); i++) {
+                if (baseZones == null) {
+                    addToGroup(nonHomeBasedGroups, group.purpose, null, group.budget, trips.get(i));
+                } else {
+                    addToGroup(nonHomeBasedGroups, group.purpose, baseZones[i], group.budget, trips.get(i));
                 }
             }
-            for (MitoTrip hbeTrip : household.getTripsForPurpose(HBE)) {
-                if (hbeTrip.getPerson().equals(trip.getPerson())) {
-                    possibleBaseZones.add(hbeTrip.getTripDestination());
+        }
+
+        logger.info("  Distributing non-home-based trips in " + nonHomeBasedGroups.size() + " batches.");
+        for (Map.Entry<TripGroup, List<MitoTrip>> entry : nonHomeBasedGroups.entrySet()) {
+            TripGroup group = entry.getKey();
+            List<MitoTrip> trips = entry.getValue();
+            Zone[] secondZones = group.zone == null ? null : sampleGroup(group, trips, false);
+            if (secondZones == null) {
+                logger.warn("No zone could be assigned by random utility for " + trips.size() + " " + group.purpose + " trips");
+                failedTripsCounter += trips.size();
+                updateProgress();
+                continue;
+            }
+            for (int i = 0; i < secondZones.length; i++) {
+                if (secondZones[i] == null) {
+                    failedTripsCounter++;
+                } else {
+                    setNonHomeBasedOriginAndDestination(trips.get(i), group.zone, secondZones[i]);
+                    distributedTripsCounter++;
                 }
             }
+            updateProgress();
+        }
+    }
 
-            if(!possibleBaseZones.isEmpty()) {
-                baseZone = possibleBaseZones.get((int) MitoUtil.getRandomFloat() * (possibleBaseZones.size() - 1));
-            }
+    private static boolean hasFixedDestination(Purpose purpose, MitoTrip trip) {
+        if (trip.getPerson().getWorkzone() == null) {
+            return false;
+        }
+        return purpose == HBW && trip.getPerson().getOccupation() == WORKER
+                || purpose == HBE && trip.getPerson().getOccupation() == STUDENT;
+    }
 
-            if (baseZone == null) {
-                logger.warn("Could not find a previous home based trip destination for nhbo trip. Picking by random utility.");
-                Map<Zone, Double> probabilitiesAlt = new HashMap<>();
-                tripDistributionCalc.setBaseZone(household.getHomeZone());
-                for (Zone zone : dataSet.getZones().values()) {
-                    tripDistributionCalc.setTargetZone(zone);
-                    double utility = tripDistributionCalc.calculate();
-                    double probability = Math.exp(utility);
-                    if (probability > 0) {
-                        probabilitiesAlt.put(zone, probability);
-                    }
-                }
-                baseZone = MitoUtil.select(probabilitiesAlt);
+    private static double getBudgetPerTrip(MitoHousehold household, Purpose purpose, int numberOfTrips) {
+        if (purpose == HBW || purpose == HBE || numberOfTrips == 0) {
+            return 0;
+        }
+        return household.getTravelTimeBudgetForPurpose(purpose) / numberOfTrips;
+    }
+
+    private void addToGroup(Map<TripGroup, List<MitoTrip>> groups, Purpose purpose, Zone zone, double budget, MitoTrip trip) {
+        double groupBudget = budget;
+        if (budgetBucket > 0) {
+            groupBudget = Math.round(budget / budgetBucket) * budgetBucket;
+        }
+        groups.computeIfAbsent(new TripGroup(purpose, zone, groupBudget), k -> new ArrayList<>()).add(trip);
+    }
+
+    /**
+     * Draws destinations (or base zones) for all trips of a group, each from the stream of its
+     * trip. Returns null if no zone can be reached. With hierarchical sampling, single entries are
+     * null if the drawn region has no zone with a positive weight.
+     */
+    private Zone[] sampleGroup(TripGroup group, List<MitoTrip> trips, boolean baseZones) {
+        if (tripDistributionCalc.isTracingEnabled()) {
+            tripDistributionCalc.setHousehold(getTracedHousehold(trips));
+        }
+        setPurposeAndBudget(group.purpose, group.budget);
+        ZoneSampler probabilities = calculateProbabilities(group.zone);
+        if (probabilities.isEmpty()) {
+            return null;
+        }
+        int numberOfTrips = trips.size();
+        if (hierarchicalSampling) {
+            Zone[] zones = new Zone[numberOfTrips];
+            for (int i = 0; i < numberOfTrips; i++) {
+                MitoTrip trip = trips.get(i);
+                zones[i] = baseZones ? selectBaseZone(probabilities, getBaseZoneRandom(trip))
+                        : selectZone(trip, group.purpose, group.zone, probabilities);
             }
-            tripDistributionCalc.setBaseZone(baseZone);
-            for (Zone zone : dataSet.getZones().values()) {
-                tripDistributionCalc.setTargetZone(zone);
-                double utility = tripDistributionCalc.calculate();
-                double probability = Math.exp(utility);
-                if (probability > 0) {
-                    probabilities.put(zone, probability);
-                }
+            return zones;
+        }
+        if (!baseZones) {
+            double logsum = probabilities.getLogsum();
+            for (MitoTrip trip : trips) {
+                trip.setDestinationChoiceLogsum(group.zone, logsum);
             }
-            if (probabilities.isEmpty()) {
-                logger.warn("No zone could be assigned by random utility");
-                failedTripsCounter++;
-                continue;
+        }
+        DestinationSampler flatProbabilities = (DestinationSampler) probabilities;
+        double[] randomNumbers = new double[numberOfTrips];
+        for (int i = 0; i < numberOfTrips; i++) {
+            MitoTrip trip = trips.get(i);
+            randomNumbers[i] = (baseZones ? getBaseZoneRandom(trip) : getRandom(trip)).nextDouble();
+        }
+        return flatProbabilities.sample(randomNumbers);
+    }
+
+    /**
+     * Returns the id of the first household of the given trips whose calculations are traced, or
+     * -1 if there is none. The utilities of a group are evaluated once for all its trips, so they
+     * are traced under that household.
+     */
+    private int getTracedHousehold(List<MitoTrip> trips) {
+        for (MitoTrip trip : trips) {
+            MitoHousehold household = householdsOfTrips.get(trip);
+            if (household != null && tripDistributionCalc.isTracedHousehold(household.getHhId())) {
+                return household.getHhId();
             }
-            Zone secondZone = MitoUtil.select(probabilities);
-            distributedTripsCounter++;
-            if (MitoUtil.getRandomFloat() > 0.5f) {
-                trip.setTripDestination(baseZone);
-                trip.setTripOrigin(secondZone);
-            } else {
-                trip.setTripOrigin(secondZone);
-                trip.setTripDestination(baseZone);
+        }
+        return -1;
+    }
+
+    private static final class NonHomeBasedTrip {
+
+        private final MitoTrip trip;
+        private final MitoHousehold household;
+        private final Zone baseZone;
+        private final double budget;
+
+        private NonHomeBasedTrip(MitoTrip trip, MitoHousehold household, Zone baseZone, double budget) {
+            this.trip = trip;
+            this.household = household;
+            this.baseZone = baseZone;
+            this.budget = budget;
+        }
+
+        /**
+         * Trips without base zone first look at the home zone.
+         */
+        private int getSortZoneId() {
+            Zone zone = baseZone != null ? baseZone : household.getHomeZone();
+            return zone == null ? Integer.MAX_VALUE : zone.getZoneId();
+        }
+    }
+
+    private static final class TripGroup {
+
+        private final Purpose purpose;
+        private final Zone zone;
+        private final double budget;
+
+        private TripGroup(Purpose purpose, Zone zone, double budget) {
+            this.purpose = purpose;
+            this.zone = zone;
+            this.budget = budget;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
             }
+            if (!(o instanceof TripGroup)) {
+                return false;
+            }
+            TripGroup that = (TripGroup) o;
+            return purpose == that.purpose && Objects.equals(zone, that.zone) && Double.compare(budget, that.budget) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(purpose, zone, budget);
         }
     }
 }
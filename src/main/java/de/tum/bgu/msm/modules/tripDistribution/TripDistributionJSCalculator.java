@@ -4,6 +4,7 @@ import de.tum.bgu.msm.data.travelTimes.TravelTimes;
 import de.tum.bgu.msm.data.Zone;
 import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.util.js.JavaScriptCalculator;
+import de.tum.bgu.msm.util.js.UtilityTracer;
 
 import java.io.Reader;
 
@@ -11,9 +12,11 @@ public class TripDistributionJSCalculator extends JavaScriptCalculator<Double> {
 
     private TravelTimes travelTimes;
     private Zone baseZone;
+    private String purpose;
+    private int householdId = -1;
 
-    protected TripDistributionJSCalculator(Reader reader, TravelTimes travelTimes) {
-        super(reader);
+    protected TripDistributionJSCalculator(Reader reader, TravelTimes travelTimes, UtilityTracer tracer) {
+        super(reader, tracer);
         this.travelTimes = travelTimes;
     }
 
@@ -22,14 +25,42 @@ public class TripDistributionJSCalculator extends JavaScriptCalculator<Double> {
         this.bindings.put("baseZone", zone.getZoneId());
     }
 
+    /**
+     * Sets the household of the following calculations for tracing, or -1 if they are not made
+     * for a single household.
+     */
+    public void setHousehold(int householdId) {
+        this.householdId = householdId;
+    }
+
+    public boolean isTracingEnabled() {
+        return tracer.isEnabled();
+    }
+
+    public boolean isTracedHousehold(int householdId) {
+        return tracer.isTracedHousehold(householdId);
+    }
+
     public void setPurposeAndBudget(Purpose purpose, double budget) {
+        this.purpose = purpose.name();
         bindings.put("purpose", purpose.name());
         bindings.put("budget", budget);
     }
 
     public void setTargetZone(Zone zone) {
+        setTargetZone(zone, travelTimes.getTravelTimeFromTo(baseZone, zone));
+    }
+
+    /**
+     * Sets the target zone with the given travel time from the base zone, e.g. for an aggregate of
+     * several zones that has no travel times of its own.
+     */
+    public void setTargetZone(Zone zone, double travelTime) {
+        if (tracer.isEnabled()) {
+            setTracing(tracer.isTraced(householdId, baseZone.getZoneId(), zone.getZoneId(), purpose));
+        }
         bindings.put("targetZone", zone.getZoneId());
-        bindings.put("travelTime", travelTimes.getTravelTimeFromTo(baseZone, zone));
+        bindings.put("travelTime", travelTime);
         bindings.put("totalEmployees", zone.getTotalEmpl());
         bindings.put("retailEmployees", zone.getRetailEmpl());
         bindings.put("otherEmployees", zone.getOtherEmpl());
@@ -0,0 +1,23 @@
+package de.tum.bgu.msm.modules.tripDistribution;
+
+import de.tum.bgu.msm.data.Zone;
+
+import java.util.Random;
+
+/**
+ * Draws destinations of one base zone, purpose and budget.
+ */
+interface ZoneSampler {
+
+    /**
+     * Returns true if no zone can be drawn.
+     */
+    boolean isEmpty();
+
+    Zone sample(Random random);
+
+    /**
+     * Returns the logsum of the destination choice, i.e. the log of the total weight.
+     */
+    double getLogsum();
+}
@@ -6,11 +6,6 @@ import de.tum.bgu.msm.data.Zone;
 import de.tum.bgu.msm.resources.Purpose;
 import org.apache.log4j.Logger;
 
-import java.util.Collection;
-import java.util.EnumMap;
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Created by Nico on 20.07.2017.
  */
@@ -24,68 +19,82 @@ public class AttractionCalculator {
         this.dataSet = dataSet;
     }
 
-    public Map<Integer, EnumMap<Purpose, Float>> run() {
+    /**
+     * Returns the trip attractions by purpose (ordinal) and zone index, computed as the product of
+     * the attraction rates [purpose][variable] and the zonal variables [variable][zone].
+     */
+    public float[][] run() {
 
         logger.info("  Calculating trip attractions");
         TableDataSet attrRates = dataSet.getTripAttractionRates();
-        Map<String, Float> attractionRates = getAttractionRates(attrRates);
         String[] independentVariables = attrRates.getColumnAsString("IndependentVariable");
+        float[][] rates = getAttractionRates(attrRates);
+        float[][] variables = getIndependentVariables(independentVariables);
 
-        Collection<Zone> zones = dataSet.getZones().values();
-        Map<Integer, EnumMap<Purpose, Float>> tripAttrByZoneAndPurp = new HashMap<>();
-        for (Zone zone: zones) {
-            EnumMap<Purpose, Float> tripAttrByPurp = new EnumMap(Purpose.class);
-            for (Purpose purpose: Purpose.values()) {
-                float tripAttr = 0;
-                for (String variable: independentVariables) {
-                    String token = purpose + "_" + variable;
-                    if (attractionRates.containsKey(token)) {
-                        float attribute = 0;
-                        switch (variable) {
-                            case "HH":
-                                attribute = zone.getNumberOfHouseholds();
-                                break;
-                            case "TOT":
-                                attribute = zone.getTotalEmpl();
-                                break;
-                            case "RE":
-                                attribute = zone.getRetailEmpl();
-                                break;
-                            case "OFF":
-                                attribute = zone.getOfficeEmpl();
-                                break;
-                            case "OTH":
-                                attribute = zone.getOtherEmpl();
-                                break;
-                            case "ENR":
-                                attribute = zone.getSchoolEnrollment();
-                                break;
-                        }
-                        tripAttr += attribute * attractionRates.get(token);
-                    } else {
-                        logger.warn("No attraction rate found for token " + token);
-                    }
+        int numberOfZones = dataSet.getZoneIndexBound();
+        float[][] tripAttractions = new float[Purpose.values().length][numberOfZones];
+        for (int purpose = 0; purpose < rates.length; purpose++) {
+            float[] attractions = tripAttractions[purpose];
+            for (int variable = 0; variable < variables.length; variable++) {
+                float rate = rates[purpose][variable];
+                float[] values = variables[variable];
+                for (int zone = 0; zone < numberOfZones; zone++) {
+                    attractions[zone] += values[zone] * rate;
                 }
-                tripAttrByPurp.put(purpose, tripAttr);
             }
-            tripAttrByZoneAndPurp.put(zone.getZoneId(), tripAttrByPurp);
         }
-        return tripAttrByZoneAndPurp;
+        return tripAttractions;
     }
 
+    private float[][] getAttractionRates(TableDataSet attrRates) {
+        // read attraction rate file into [purpose][variable]
+        float[][] rates = new float[Purpose.values().length][];
+        for (Purpose purpose : Purpose.values()) {
+            rates[purpose.ordinal()] = attrRates.getColumnAsFloat(purpose.toString());
+        }
+        return rates;
+    }
 
-    private HashMap<String, Float> getAttractionRates (TableDataSet attrRates) {
-        // read attraction rate file and create HashMap
-
-        HashMap<String, Float> attractionRates = new HashMap<>();
-        for (int row = 1; row <= attrRates.getRowCount(); row++) {
-            String generator = attrRates.getStringValueAt(row, "IndependentVariable");
-            for (Purpose purpose: Purpose.values()) {
-                float rate = attrRates.getValueAt(row, purpose.toString());
-                String token = purpose.toString() + "_" + generator;
-                attractionRates.put(token, rate);
+    private float[][] getIndependentVariables(String[] independentVariables) {
+        float[][] variables = new float[independentVariables.length][dataSet.getZoneIndexBound()];
+        for (int variable = 0; variable < independentVariables.length; variable++) {
+            float[] values = variables[variable];
+            switch (independentVariables[variable]) {
+                case "HH":
+                    for (Zone zone : dataSet.getZones().values()) {
+                        values[zone.getIndex()] = zone.getNumberOfHouseholds();
+                    }
+                    break;
+                case "TOT":
+                    for (Zone zone : dataSet.getZones().values()) {
+                        values[zone.getIndex()] = zone.getTotalEmpl();
+                    }
+                    break;
+                case "RE":
+                    for (Zone zone : dataSet.getZones().values()) {
+                        values[zone.getIndex()] = zone.getRetailEmpl();
+                    }
+                    break;
+                case "OFF":
+                    for (Zone zone : dataSet.getZones().values()) {
+                        values[zone.getIndex()] = zone.getOfficeEmpl();
+                    }
+                    break;
+                case "OTH":
+                    for (Zone zone : dataSet.getZones().values()) {
+                        values[zone.getIndex()] = zone.getOtherEmpl();
+                    }
+                    break;
+                case "ENR":
+                    for (Zone zone : dataSet.getZones().values()) {
+                        values[zone.getIndex()] = zone.getSchoolEnrollment();
+                    }
+                    break;
+                default:
+                    logger.warn("Unknown independent variable " + independentVariables[variable]
+                            + " in trip attraction rates. Ignoring it.");
             }
         }
-        return attractionRates;
+        return variables;
     }
 }
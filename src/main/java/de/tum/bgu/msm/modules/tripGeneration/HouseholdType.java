@@ -1,9 +1,11 @@
 package de.tum.bgu.msm.modules.tripGeneration;
 
+import java.io.Serializable;
+
 /**
  * Created by Nico on 20.07.2017.
  */
-public class HouseholdType {
+public class HouseholdType implements Serializable {
 
     private final int size_l;
     private final int size_h;
@@ -42,7 +44,7 @@ public class HouseholdType {
     }
 
     public boolean applies(int size, int workers, int income, int autos, int region) {
-        if (appliesInSize(size) && appliesInWorkers(workers) && appliesInIncome(income) && appliesInAutos(autos) && appliesInRegion(region)) {
+        if (matches(size, workers, income, autos, region)) {
             numberOfRecords++;
             return true;
         } else {
@@ -50,6 +52,14 @@ public class HouseholdType {
         }
     }
 
+    /**
+     * Like {@link #applies(int, int, int, int, int)}, but does not count the record, so types can
+     * be shared between threads.
+     */
+    public boolean matches(int size, int workers, int income, int autos, int region) {
+        return appliesInSize(size) && appliesInWorkers(workers) && appliesInIncome(income) && appliesInAutos(autos) && appliesInRegion(region);
+    }
+
     private boolean appliesInRegion(int region) {
         return region >= region_l && region <= region_h;
     }
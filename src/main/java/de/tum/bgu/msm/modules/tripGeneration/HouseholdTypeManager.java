@@ -1,36 +1,41 @@
 package de.tum.bgu.msm.modules.tripGeneration;
 
-import de.tum.bgu.msm.data.DataSet;
 import de.tum.bgu.msm.data.MitoHousehold;
 import de.tum.bgu.msm.data.survey.SurveyRecord;
-import de.tum.bgu.msm.data.survey.TravelSurvey;
 import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.resources.Resources;
 import de.tum.bgu.msm.util.MitoUtil;
 import org.apache.log4j.Logger;
 
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Created by Nico on 20.07.2017.
  */
-public class HouseholdTypeManager {
+public class HouseholdTypeManager implements Serializable {
 
     private static final Logger logger = Logger.getLogger(HouseholdTypeManager.class);
 
-    private final DataSet dataSet;
+    /**
+     * Household types with fewer survey records are not used to create trips.
+     */
+    static final int MIN_RECORDS = 30;
+
     private final Purpose purpose;
 
     private final List<HouseholdType> householdTypes = new ArrayList<>();
 
-    public HouseholdTypeManager(DataSet dataSet, Purpose purpose) {
-        this.dataSet = dataSet;
+    public HouseholdTypeManager(Purpose purpose) {
         this.purpose = purpose;
     }
 
+    List<HouseholdType> getHouseholdTypes() {
+        return Collections.unmodifiableList(householdTypes);
+    }
+
     public List<HouseholdType> createHouseHoldTypeDefinitions() {
         String[] householdDefinitionToken = Resources.INSTANCE.getArray("hh.type." + purpose);
         String sizeToken = householdDefinitionToken[2];
@@ -84,31 +89,37 @@ public class HouseholdTypeManager {
         }
     }
 
-    public Map<Integer, HouseholdType> assignHouseholdTypeOfEachSurveyRecord(TravelSurvey<? extends SurveyRecord> survey) {
-        // Count number of household records per predefined type
+    public HouseholdType determineHouseholdType(MitoHousehold hh) {
+        return determineHouseholdType(hh, true);
+    }
 
-        Map<Integer, HouseholdType> householdTypeBySample = new HashMap<>();
+    /**
+     * Returns the type of the household without counting it as a record of the type.
+     */
+    HouseholdType findHouseholdType(MitoHousehold hh) {
+        return determineHouseholdType(hh, false);
+    }
 
-        for (SurveyRecord record: survey.getRecords().values()) {
-            int hhSze = record.getHouseholdSize();
-            hhSze = Math.min(hhSze, 7);    // hhsiz 8 has only 19 records, aggregate with hhsiz 7
-            int hhWrk = record.getWorkers();
-            hhWrk = Math.min(hhWrk, 4);    // hhwrk 6 has 1 and hhwrk 5 has 7 records, aggregate with hhwrk 4
-            int hhInc = record.getIncome();
-            int hhVeh = record.getVehicleNumber();
-            hhVeh = Math.min(hhVeh, 3);   // Auto-ownership model will generate groups 0, 1, 2, 3+ only.
-            int region = record.getRegion();
-            int sampleId = record.getId();
-            HouseholdType type = determineHouseholdType(hhSze, hhWrk, hhInc, hhVeh, region);
-            householdTypeBySample.put(sampleId, type);
+    /**
+     * Returns the type of the survey record without counting it as a record of the type.
+     */
+    HouseholdType findHouseholdType(SurveyRecord record) {
+        return determineHouseholdType(record, false);
+    }
 
-        }
-        // analyze if every household type has a sufficient number of records
-        cancelOutInsufficientRecords(householdTypeBySample);
-        return householdTypeBySample;
+    private HouseholdType determineHouseholdType(SurveyRecord record, boolean count) {
+        int hhSze = record.getHouseholdSize();
+        hhSze = Math.min(hhSze, 7);    // hhsiz 8 has only 19 records, aggregate with hhsiz 7
+        int hhWrk = record.getWorkers();
+        hhWrk = Math.min(hhWrk, 4);    // hhwrk 6 has 1 and hhwrk 5 has 7 records, aggregate with hhwrk 4
+        int hhInc = record.getIncome();
+        int hhVeh = record.getVehicleNumber();
+        hhVeh = Math.min(hhVeh, 3);   // Auto-ownership model will generate groups 0, 1, 2, 3+ only.
+        int region = record.getRegion();
+        return determineHouseholdType(hhSze, hhWrk, hhInc, hhVeh, region, count);
     }
 
-    public HouseholdType determineHouseholdType(MitoHousehold hh) {
+    private HouseholdType determineHouseholdType(MitoHousehold hh, boolean count) {
         int incCategory = translateIncomeIntoCategory(hh.getIncome());
         int region = -1;
         if (hh.getHomeZone() != null) {
@@ -117,10 +128,10 @@ public class HouseholdTypeManager {
             logger.info("Home Zone for Household  " + hh.getHhId() + " is null!");
         }
         return determineHouseholdType(hh.getHhSize(), MitoUtil.getNumberOfWorkersForHousehold(hh),
-                incCategory, hh.getAutos(), region);
+                incCategory, hh.getAutos(), region, count);
     }
 
-    private HouseholdType determineHouseholdType(int hhSze, int hhWrk, int hhInc, int hhVeh, int hhReg) {
+    private HouseholdType determineHouseholdType(int hhSze, int hhWrk, int hhInc, int hhVeh, int hhReg, boolean count) {
 
         hhSze = Math.min(hhSze, 7);
         hhWrk = Math.min(hhWrk, 4);
@@ -141,7 +152,7 @@ public class HouseholdTypeManager {
         }
 
         for (HouseholdType type : householdTypes) {
-            if (type.applies(hhSze, hhWrk, hhInc, hhAut, hhReg)) {
+            if (count ? type.applies(hhSze, hhWrk, hhInc, hhAut, hhReg) : type.matches(hhSze, hhWrk, hhInc, hhAut, hhReg)) {
                 return type;
             }
         }
@@ -158,14 +169,9 @@ public class HouseholdTypeManager {
         return autoMode;
     }
 
-    private void cancelOutInsufficientRecords(Map<Integer, HouseholdType> householdTypeBySample) {
-        for (Map.Entry<Integer, HouseholdType> entry : householdTypeBySample.entrySet()) {
-            if (entry.getValue().getNumberOfRecords() < 30) {
-                householdTypeBySample.remove(entry.getKey());// marker that this hhTypeDef is not worth analyzing
-                logger.info("HouseholdType " +  entry.getValue().getId() + "_" + purpose + " does not meet min requirement of 30 records. " +
-                        "Will not consider this type when creating trips.");
-            }
-        }
+    void logInsufficientRecords(HouseholdType type) {
+        logger.info("HouseholdType " +  type.getId() + "_" + purpose + " does not meet min requirement of " + MIN_RECORDS
+                + " records. Will not consider this type when creating trips.");
     }
 
     private int translateIncomeIntoCategory(int hhIncome) {
@@ -1,12 +1,24 @@
 package de.tum.bgu.msm.modules.tripGeneration;
 
 import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.MitoTrip;
 import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.util.MitoUtil;
-import de.tum.bgu.msm.util.concurrent.ConcurrentFunctionExecutor;
+import de.tum.bgu.msm.util.RandomStreams;
+import de.tum.bgu.msm.util.concurrent.ModuleExecutor;
+import de.tum.bgu.msm.util.metrics.ModuleProgress;
+import de.tum.bgu.msm.util.metrics.ProgressMetrics;
+import de.tum.bgu.msm.util.profiling.MitoEvents;
+import de.tum.bgu.msm.util.profiling.ProfilingEvent;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static de.tum.bgu.msm.resources.Purpose.*;
@@ -18,15 +30,22 @@ public class RawTripGenerator {
 
     private static final Logger logger = Logger.getLogger(RawTripGenerator.class);
 
-    static final AtomicInteger counterDroppedTripsAtBorder = new AtomicInteger();
-    static final AtomicInteger currentTripId = new AtomicInteger();
+    final AtomicInteger counterDroppedTripsAtBorder = new AtomicInteger();
+    private int currentTripId = 0;
 
     private final DataSet dataSet;
 
     private final EnumSet<Purpose> PURPOSES = EnumSet.of(HBW, HBE, HBS, HBO, NHBW, NHBO);
 
-    public RawTripGenerator(DataSet dataSet) {
+    private final List<MitoHousehold> households;
+
+    public RawTripGenerator(DataSet dataSet, Collection<MitoHousehold> households) {
         this.dataSet = dataSet;
+        this.households = new ArrayList<>(households);
+        // continue after the trips of previous runs, which are kept in incremental runs
+        for (Integer tripId : dataSet.getTrips().keySet()) {
+            currentTripId = Math.max(currentTripId, tripId);
+        }
     }
 
     public void run () {
@@ -35,11 +54,46 @@ public class RawTripGenerator {
     }
 
     private void generateByPurposeMultiThreaded() {
-        ConcurrentFunctionExecutor executor = new ConcurrentFunctionExecutor();
+        ModuleExecutor executor = new ModuleExecutor("Trip generation");
+        ModuleProgress progress = ProgressMetrics.startModule("tripGeneration", "households", (long) households.size() * PURPOSES.size());
+        TripFrequencyModel tripFrequencyModel = TripFrequencyModel.getOrBuild(dataSet);
+        Map<Purpose, TripsByPurposeGenerator> generators = new EnumMap<>(Purpose.class);
         for(Purpose purpose: PURPOSES) {
-            executor.addFunction(new TripsByPurposeGenerator(dataSet, purpose));
+            TripsByPurposeGenerator generator = new TripsByPurposeGenerator(dataSet, purpose, households, this,
+                    tripFrequencyModel, progress);
+            generators.put(purpose, generator);
+            executor.addTask(purpose.toString(), generator);
         }
         executor.execute();
+        int firstTripId = currentTripId;
+        ProfilingEvent event = MitoEvents.beginPhase("tripGeneration", "createTrips");
+        try {
+            createTrips(generators);
+        } finally {
+            event.commit();
+        }
+        progress.count("trips_generated", currentTripId - firstTripId);
+        progress.finish();
+    }
+
+    /**
+     * Creates the drawn trips household by household, so trip ids do not depend on which purpose
+     * finished first. The random streams of a trip are keyed by its household and its position
+     * among the household's trips of the purpose, which do not depend on the order at all.
+     */
+    private void createTrips(Map<Purpose, TripsByPurposeGenerator> generators) {
+        for (int i = 0; i < households.size(); i++) {
+            MitoHousehold household = households.get(i);
+            for (Map.Entry<Purpose, TripsByPurposeGenerator> entry : generators.entrySet()) {
+                int numberOfTrips = entry.getValue().getNumberOfTrips(i);
+                for (int j = 0; j < numberOfTrips; j++) {
+                    MitoTrip trip = new MitoTrip(++currentTripId, entry.getKey(),
+                            RandomStreams.householdEntityId(household.getHhId(), j));
+                    dataSet.addTrip(trip);
+                    household.addTrip(trip);
+                }
+            }
+        }
     }
 
     private void logTripGeneration() {
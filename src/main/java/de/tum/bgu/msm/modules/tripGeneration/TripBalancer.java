@@ -1,23 +1,20 @@
 package de.tum.bgu.msm.modules.tripGeneration;
 
 import de.tum.bgu.msm.data.DataSet;
-import de.tum.bgu.msm.data.Zone;
 import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.util.concurrent.ModuleExecutor;
 import org.apache.log4j.Logger;
 
-import java.util.EnumMap;
-import java.util.Map;
-
 public class TripBalancer {
 
     private static final Logger logger = Logger.getLogger(TripBalancer.class);
 
     private final DataSet dataSet;
-    private final Map<Integer, EnumMap<Purpose, Float>> tripAttractionByZoneAndPurpose;
+    private final float[][] tripAttractionByPurposeAndZone;
 
-    public TripBalancer(DataSet dataSet, Map<Integer, EnumMap<Purpose, Float>> tripAttractionByZoneAndPurpose) {
+    public TripBalancer(DataSet dataSet, float[][] tripAttractionByPurposeAndZone) {
         this.dataSet = dataSet;
-        this.tripAttractionByZoneAndPurpose = tripAttractionByZoneAndPurpose;
+        this.tripAttractionByPurposeAndZone = tripAttractionByPurposeAndZone;
     }
 
     public void run() {
@@ -28,21 +25,28 @@ public class TripBalancer {
 
         logger.info("  Balancing trip production and attractions");
 
-        for (Purpose purpose: Purpose.values()) {
-            long tripsByPurp = dataSet.getHouseholds().values().stream().mapToInt(household -> household.getTripsForPurpose(purpose).size()).sum();
-            float attrSum = 0;
-            for (Zone zone : dataSet.getZones().values()) {
-                attrSum += tripAttractionByZoneAndPurpose.get(zone.getZoneId()).get(purpose);
-            }
-            if (attrSum == 0) {
-                logger.warn("No trips for purpose " + purpose + " were generated.");
-                continue;
-            }
-            // adjust attractions (or productions for NHBW and NHBO)
-            for (Zone zone : dataSet.getZones().values()) {
-                final float attrSumFinal = attrSum;
-                tripAttractionByZoneAndPurpose.get(zone.getZoneId()).replaceAll((k, v) -> v * tripsByPurp / attrSumFinal);
-            }
+        ModuleExecutor executor = new ModuleExecutor("Trip balancing");
+        for (Purpose purpose : Purpose.values()) {
+            executor.addTask(purpose.toString(), () -> balancePurpose(purpose));
+        }
+        executor.execute();
+    }
+
+    private void balancePurpose(Purpose purpose) {
+        float[] attractions = tripAttractionByPurposeAndZone[purpose.ordinal()];
+        long tripsByPurp = dataSet.getNumberOfTripsForPurpose(purpose);
+        float attrSum = 0;
+        for (float attraction : attractions) {
+            attrSum += attraction;
+        }
+        if (attrSum == 0) {
+            logger.warn("No trips for purpose " + purpose + " were generated.");
+            return;
+        }
+        // adjust attractions (or productions for NHBW and NHBO)
+        float factor = tripsByPurp / attrSum;
+        for (int zone = 0; zone < attractions.length; zone++) {
+            attractions[zone] *= factor;
         }
     }
 }
@@ -0,0 +1,215 @@
+package de.tum.bgu.msm.modules.tripGeneration;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.survey.SurveyRecord;
+import de.tum.bgu.msm.data.survey.TravelSurvey;
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.util.concurrent.ModuleExecutor;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frequencies of the number of trips per household type and purpose, as observed in the household
+ * travel survey. The model is built in one pass over all survey records for all purposes and does
+ * not change afterwards, so it is shared by all trip generation tasks and can be written to a
+ * cache file that replaces the survey in later runs.
+ */
+public final class TripFrequencyModel implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = Logger.getLogger(TripFrequencyModel.class);
+
+    /**
+     * Largest number of trips of one purpose a survey household may report.
+     */
+    private static final int MAX_TRIPS = 30;
+
+    private final String key;
+    private final Map<Purpose, HouseholdTypeManager> householdTypes = new EnumMap<>(Purpose.class);
+    /**
+     * Trip frequencies by purpose and household type id, null for types with too few records.
+     */
+    private final Map<Purpose, int[][]> frequencies = new EnumMap<>(Purpose.class);
+
+    private TripFrequencyModel(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Builds the model from the survey, classifying the survey records in parallel chunks.
+     */
+    public static TripFrequencyModel build(TravelSurvey<? extends SurveyRecord> survey) {
+        long startTime = System.currentTimeMillis();
+        TripFrequencyModel model = new TripFrequencyModel(getDefinitionKey());
+        Purpose[] purposes = Purpose.values();
+        int[] numberOfTypes = new int[purposes.length];
+        for (Purpose purpose : purposes) {
+            HouseholdTypeManager manager = new HouseholdTypeManager(purpose);
+            numberOfTypes[purpose.ordinal()] = manager.createHouseHoldTypeDefinitions().size();
+            model.householdTypes.put(purpose, manager);
+        }
+
+        List<SurveyRecord> records = new ArrayList<>(survey.getRecords().values());
+        int[][][] counts = new int[purposes.length][][];
+        for (Purpose purpose : purposes) {
+            counts[purpose.ordinal()] = new int[numberOfTypes[purpose.ordinal()]][MAX_TRIPS + 2];
+        }
+        ModuleExecutor executor = new ModuleExecutor("Survey preprocessing");
+        executor.addChunks("survey records", records.size(), 0, (from, to) -> {
+            // last slot of every type counts its records
+            int[][][] chunkCounts = new int[purposes.length][][];
+            for (Purpose purpose : purposes) {
+                chunkCounts[purpose.ordinal()] = new int[numberOfTypes[purpose.ordinal()]][MAX_TRIPS + 2];
+            }
+            for (int i = from; i < to; i++) {
+                SurveyRecord record = records.get(i);
+                for (Purpose purpose : purposes) {
+                    HouseholdType type = model.householdTypes.get(purpose).findHouseholdType(record);
+                    if (type == null) {
+                        continue;
+                    }
+                    int trips = record.getTripsForPurpose(purpose);
+                    if (trips > MAX_TRIPS) {
+                        throw new IllegalArgumentException("Survey record " + record.getId() + " has " + trips + " "
+                                + purpose + " trips, at most " + MAX_TRIPS + " are supported.");
+                    }
+                    int[] typeCounts = chunkCounts[purpose.ordinal()][type.getId()];
+                    typeCounts[trips]++;
+                    typeCounts[MAX_TRIPS + 1]++;
+                }
+            }
+            synchronized (counts) {
+                for (int p = 0; p < counts.length; p++) {
+                    for (int t = 0; t < counts[p].length; t++) {
+                        for (int j = 0; j < MAX_TRIPS + 2; j++) {
+                            counts[p][t][j] += chunkCounts[p][t][j];
+                        }
+                    }
+                }
+            }
+        });
+        executor.execute();
+
+        for (Purpose purpose : purposes) {
+            HouseholdTypeManager manager = model.householdTypes.get(purpose);
+            int[][] purposeCounts = counts[purpose.ordinal()];
+            int[][] purposeFrequencies = new int[purposeCounts.length][];
+            for (HouseholdType type : manager.getHouseholdTypes()) {
+                int numberOfRecords = purposeCounts[type.getId()][MAX_TRIPS + 1];
+                if (numberOfRecords >= HouseholdTypeManager.MIN_RECORDS) {
+                    purposeFrequencies[type.getId()] = Arrays.copyOf(purposeCounts[type.getId()], MAX_TRIPS + 1);
+                } else if (numberOfRecords > 0) {
+                    manager.logInsufficientRecords(type);
+                }
+            }
+            model.frequencies.put(purpose, purposeFrequencies);
+        }
+        logger.info("  Built trip frequencies of " + records.size() + " survey records in "
+                + (System.currentTimeMillis() - startTime) / 1000. + " seconds.");
+        return model;
+    }
+
+    /**
+     * Returns the model of the data set, building it from the survey if there is none yet or if
+     * it was built for other household type definitions.
+     */
+    public static TripFrequencyModel getOrBuild(DataSet dataSet) {
+        TripFrequencyModel model = dataSet.getTripFrequencyModel();
+        if (model != null && model.isBuiltFor(getDefinitionKey())) {
+            return model;
+        }
+        if (dataSet.getSurvey() == null) {
+            throw new IllegalStateException("Trip frequencies do not match the household type definitions and no travel survey was read.");
+        }
+        model = build(dataSet.getSurvey());
+        dataSet.setTripFrequencyModel(model);
+        return model;
+    }
+
+    /**
+     * Returns the household type of the household for the given purpose, or null if none applies.
+     */
+    public HouseholdType getHouseholdType(Purpose purpose, MitoHousehold household) {
+        return householdTypes.get(purpose).findHouseholdType(household);
+    }
+
+    /**
+     * Returns how many survey households of the type reported 0, 1, 2, ... trips of the purpose, or
+     * null if the type has too few survey records. The array must not be modified.
+     */
+    public int[] getTripFrequencies(Purpose purpose, HouseholdType type) {
+        return frequencies.get(purpose)[type.getId()];
+    }
+
+    /**
+     * Returns whether the model was built for the given household type definitions, optionally
+     * followed by the survey files, see {@link #getDefinitionKey()}.
+     */
+    public boolean isBuiltFor(String key) {
+        return this.key.startsWith(key);
+    }
+
+    /**
+     * Returns a key of the household type definitions of all purposes in the current properties.
+     */
+    public static String getDefinitionKey() {
+        StringBuilder builder = new StringBuilder();
+        for (Purpose purpose : Purpose.values()) {
+            builder.append(purpose).append('=').append(String.join(",", Resources.INSTANCE.getArray("hh.type." + purpose))).append(';');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns a copy of this model that is keyed by the given survey files as well, for the cache.
+     */
+    TripFrequencyModel withSurveyFiles(String surveyKey) {
+        TripFrequencyModel model = new TripFrequencyModel(key + surveyKey);
+        model.householdTypes.putAll(householdTypes);
+        model.frequencies.putAll(frequencies);
+        return model;
+    }
+
+    /**
+     * Reads a cached model. Returns null if the file does not exist, cannot be read or was built
+     * for other survey files or household type definitions.
+     */
+    public static TripFrequencyModel readCache(String fileName, String surveyKey) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            TripFrequencyModel model = (TripFrequencyModel) in.readObject();
+            if (model.key.equals(getDefinitionKey() + surveyKey)) {
+                logger.info("  Read trip frequencies from " + fileName);
+                return model;
+            }
+            logger.info("  Survey or household types changed since " + fileName + " was written. Ignoring it.");
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warn("  Could not read trip frequencies from " + fileName + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Writes the model, keyed by the given survey files, to the cache file.
+     */
+    public void writeCache(String fileName, String surveyKey) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeObject(withSurveyFiles(surveyKey));
+            logger.info("  Wrote trip frequencies to " + fileName);
+        } catch (IOException e) {
+            logger.warn("  Could not write trip frequencies to " + fileName + ": " + e.getMessage());
+        }
+    }
+}
@@ -2,12 +2,11 @@ package de.tum.bgu.msm.modules.tripGeneration;
 
 import de.tum.bgu.msm.TravelDemandGenerator;
 import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.MitoHousehold;
 import de.tum.bgu.msm.modules.Module;
-import de.tum.bgu.msm.resources.Purpose;
 import org.apache.log4j.Logger;
 
-import java.util.EnumMap;
-import java.util.Map;
+import java.util.Collection;
 
 /**
  * Runs trip generation for the Transport in Microsimulation Orchestrator (MITO)
@@ -20,7 +19,7 @@ public class TripGeneration extends Module {
 
     private static final Logger logger = Logger.getLogger(TravelDemandGenerator.class);
 
-    private Map<Integer, EnumMap<Purpose, Float>> tripAttr;
+    private float[][] tripAttr;
 
     public TripGeneration(DataSet dataSet) {
         super(dataSet);
@@ -36,7 +35,11 @@ public class TripGeneration extends Module {
     }
 
     private void generateRawTrips() {
-        RawTripGenerator rawTripGenerator = new RawTripGenerator(dataSet);
+        Collection<MitoHousehold> households = dataSet.getHouseholdsToUpdate(false);
+        if (dataSet.isIncrementalRun(false)) {
+            logger.info("  Generating trips for " + households.size() + " added or changed households.");
+        }
+        RawTripGenerator rawTripGenerator = new RawTripGenerator(dataSet, households);
         rawTripGenerator.run();
     }
 
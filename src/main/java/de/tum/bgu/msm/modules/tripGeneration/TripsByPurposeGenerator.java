@@ -1,118 +1,103 @@
 package de.tum.bgu.msm.modules.tripGeneration;
 
 import de.tum.bgu.msm.data.*;
-import de.tum.bgu.msm.data.survey.SurveyRecord;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.resources.Purpose;
 import de.tum.bgu.msm.resources.Resources;
 import de.tum.bgu.msm.util.MitoUtil;
-import de.tum.bgu.msm.util.concurrent.RandomizableConcurrentFunction;
+import de.tum.bgu.msm.util.RandomStreams;
+import de.tum.bgu.msm.util.concurrent.ConcurrentFunction;
+import de.tum.bgu.msm.util.metrics.ModuleProgress;
+import de.tum.bgu.msm.util.profiling.MitoEvents;
+import de.tum.bgu.msm.util.profiling.ProfilingEvent;
 import org.apache.log4j.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
-import static de.tum.bgu.msm.modules.tripGeneration.RawTripGenerator.counterDroppedTripsAtBorder;
-import static de.tum.bgu.msm.modules.tripGeneration.RawTripGenerator.currentTripId;
-
-class TripsByPurposeGenerator extends RandomizableConcurrentFunction {
+/**
+ * Draws the number of trips of one purpose for every household. Every household draws from its own
+ * random stream, so the result does not depend on the number of threads. The trips themselves are
+ * created by {@link RawTripGenerator} in a fixed order.
+ */
+class TripsByPurposeGenerator implements ConcurrentFunction {
 
     private static final Logger logger = Logger.getLogger(TripsByPurposeGenerator.class);
 
     private final DataSet dataSet;
     private final Purpose purpose;
+    private final List<MitoHousehold> households;
+    private final int[] numberOfTrips;
+    private final RawTripGenerator rawTripGenerator;
 
-    private final HouseholdTypeManager householdTypeManager;
-
-    private final HashMap<String, Integer[]> tripsByHhType = new HashMap<>();
+    private final TripFrequencyModel tripFrequencyModel;
+    private final ModuleProgress progress;
 
-    public TripsByPurposeGenerator(DataSet dataSet, Purpose purpose) {
+    public TripsByPurposeGenerator(DataSet dataSet, Purpose purpose, List<MitoHousehold> households,
+                                   RawTripGenerator rawTripGenerator, TripFrequencyModel tripFrequencyModel,
+                                   ModuleProgress progress) {
         this.dataSet = dataSet;
         this.purpose = purpose;
-        householdTypeManager = new HouseholdTypeManager(dataSet, purpose);
+        this.households = households;
+        this.numberOfTrips = new int[households.size()];
+        this.rawTripGenerator = rawTripGenerator;
+        this.tripFrequencyModel = tripFrequencyModel;
+        this.progress = progress;
     }
 
     @Override
     public void execute() {
         logger.info("  Generating trips with purpose " + purpose + " (multi-threaded)");
-        defineTripFrequenciesForHouseHoldTypes();
-        for (MitoHousehold hh : dataSet.getHouseholds().values()) {
-            generateTripsForHousehold(hh);
+        ProfilingEvent event = MitoEvents.beginPhase("tripGeneration", purpose.name());
+        try {
+            for (int i = 0; i < households.size(); i++) {
+                numberOfTrips[i] = generateTripsForHousehold(households.get(i));
+                progress.increment();
+            }
+        } finally {
+            event.commit();
         }
     }
 
-    private void defineTripFrequenciesForHouseHoldTypes() {
-        householdTypeManager.createHouseHoldTypeDefinitions();
-        Map<Integer, HouseholdType> householdTypeBySampleId = householdTypeManager.assignHouseholdTypeOfEachSurveyRecord(dataSet.getSurvey());
-        collectTripFrequencyDistribution(householdTypeBySampleId);
+    /**
+     * Returns the number of trips drawn for the household at the given position, after trips
+     * dropped at the study area border have been removed.
+     */
+    int getNumberOfTrips(int householdPosition) {
+        return numberOfTrips[householdPosition];
     }
 
-    private void generateTripsForHousehold(MitoHousehold hh) {
-        HouseholdType hhType = householdTypeManager.determineHouseholdType(hh);
+    private int generateTripsForHousehold(MitoHousehold hh) {
+        HouseholdType hhType = tripFrequencyModel.getHouseholdType(purpose, hh);
         if (hhType == null) {
             logger.error("Could not create trips for Household " + hh.getHhId() + " with Purpose " + purpose + ": No Household Type applicable");
-            return;
+            return 0;
         }
         String token = hhType.getId() + "_" + purpose;
-        Integer[] tripFrequencies = tripsByHhType.get(token);
+        int[] tripFrequencies = tripFrequencyModel.getTripFrequencies(purpose, hhType);
         if (tripFrequencies == null) {
             logger.error("Could not find trip frequencies for this hhType/Purpose: " + token);
-            return;
+            return 0;
         }
-        if (MitoUtil.getSum(tripFrequencies) == 0) {
+        if (Arrays.stream(tripFrequencies).sum() == 0) {
             logger.info("No trips for this hhType/Purpose: " + token);
-            return;
+            return 0;
         }
-        int numTrips = selectNumberOfTrips(tripFrequencies);
+        Random random = RandomStreams.getRandom("tripGeneration", hh.getHhId(), purpose);
+        int numTrips = selectNumberOfTrips(tripFrequencies, random);
+        int keptTrips = 0;
         for (int i = 0; i < numTrips; i++) {
-            createTrip(hh);
-        }
-    }
-
-    private void collectTripFrequencyDistribution(Map<Integer, HouseholdType> householdTypeBySampleId) {
-        // Summarize frequency of number of trips for each household type by each trip purpose
-        //
-        // Storage Structure
-        //   HashMap<String, Integer> tripsByHhTypeAndPurpose: Token is hhType_TripPurpose
-        //   |
-        //   contains -> Integer[] tripFrequencyList: Frequency of 0, 1, 2, 3, ... trips
-        initializeFrequencyArrays(householdTypeBySampleId);
-        fillFrequencyArrays(householdTypeBySampleId);
-    }
-
-    private void fillFrequencyArrays(Map<Integer, HouseholdType> householdTypeBySampleId) {
-
-
-        for(SurveyRecord record: dataSet.getSurvey().getRecords().values()) {
-            int householdTripsForPurpose = record.getTripsForPurpose(purpose);
-            HouseholdType type = householdTypeBySampleId.get(record.getId());
-            if(type == null) {
-                logger.info("Trips for travel survey record " + record.getId() + " and purpose " + purpose + " " +
-                        "ignored, as no household type is applicable.");
-                continue;
+            if (reduceTripGenAtStudyAreaBorder(hh.getHomeZone(), random)) {
+                rawTripGenerator.counterDroppedTripsAtBorder.incrementAndGet();
+            } else {
+                keptTrips++;
             }
-            addTripFrequencyForHouseholdType(householdTripsForPurpose, type);
         }
+        return keptTrips;
     }
 
-    private void addTripFrequencyForHouseholdType(int tripsOfThisHouseholdForGivenPurpose, HouseholdType type) {
-        String token = type.getId() + "_" + purpose;
-        Integer[] tripsOfThisHouseholdType = tripsByHhType.get(token);
-        tripsOfThisHouseholdType[tripsOfThisHouseholdForGivenPurpose]++;
-        tripsByHhType.put(token, tripsOfThisHouseholdType);
-    }
-
-
-    private void initializeFrequencyArrays(Map<Integer, HouseholdType> householdTypeBySampleId) {
-        for (HouseholdType type : householdTypeBySampleId.values()) {
-            String token = type.getId() + "_" + purpose;
-            // fill Storage structure from bottom       0                  10                  20                  30
-            Integer[] tripFrequencyList = new Integer[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};  // space for up to 30 trips
-            tripsByHhType.put(token, tripFrequencyList);
-        }
-    }
-
-    private int selectNumberOfTrips(Integer[] tripFrequencies) {
+    private int selectNumberOfTrips(int[] tripFrequencies, Random random) {
         // select number of trips
         double[] probabilities = new double[tripFrequencies.length];
         for (int i = 0; i < tripFrequencies.length; i++) {
@@ -121,19 +106,7 @@ class TripsByPurposeGenerator extends RandomizableConcurrentFunction {
         return MitoUtil.select(probabilities, random);
     }
 
-    private void createTrip(MitoHousehold hh) {
-        Zone tripOrigin = hh.getHomeZone();
-        boolean dropThisTrip = reduceTripGenAtStudyAreaBorder(tripOrigin);
-        if (dropThisTrip) {
-            counterDroppedTripsAtBorder.incrementAndGet();
-            return;
-        }
-        MitoTrip trip = new MitoTrip(currentTripId.incrementAndGet(), purpose);
-        dataSet.addTrip(trip);
-        hh.addTrip(trip);
-    }
-
-    private boolean reduceTripGenAtStudyAreaBorder(Zone tripOrigin) {
+    private boolean reduceTripGenAtStudyAreaBorder(Zone tripOrigin, Random random) {
         if (!Resources.INSTANCE.getBoolean(Properties.REMOVE_TRIPS_AT_BORDER)) {
             return false;
         }
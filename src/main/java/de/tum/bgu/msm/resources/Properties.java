@@ -11,6 +11,7 @@ public class Properties {
     public static final String JOBS = "job.file.ascii";
     public static final String HOUSEHOLDS = "household.file.ascii";
     public static final String PERSONS = "person.file.ascii";
+    public static final String ZONAL_ATTRIBUTE_FILES = "zonal.attribute.files";
     public static final String REGIONS = "household.travel.survey.reg";
     public static final String REDUCTION_NEAR_BORDER_DAMPERS = "reduction.near.outer.border";
     public static final String SCHOOL_ENROLLMENT = "school.enrollment.data";
@@ -19,10 +20,13 @@ public class Properties {
 
     public static final String TRAVEL_SURVEY_HOUSEHOLDS = "household.travel.survey.hh";
     public static final String TRAVEL_SURVEY_TRIPS = "household.travel.survey.trips";
+    public static final String TRIP_FREQUENCY_CACHE = "trip.frequency.cache";
 
     public static final String TRIP_ATTRACTION_RATES = "trip.attraction.rates";
     public static final String TRIP_PRODUCTION_OUTPUT = "trip.production.output";
     public static final String TRIP_ATTRACTION_OUTPUT = "trip.attraction.output";
+    public static final String TRIP_MATRIX_OUTPUT = "trip.matrix.output";
+    public static final String DESTINATION_CHOICE_LOGSUM_OUTPUT = "destination.choice.logsum.output";
 
     public static final String BASE_DIRECTORY = "base.directory";
 
@@ -30,4 +34,34 @@ public class Properties {
     public static final String ACCESSIBILITY_BETA = "accessibility.beta";
 
     public static final String TRAVEL_TIME_BUDGET_JS = "ttb.js";
+
+    public static final String CHOICE_SET_MAX_TRAVEL_TIME = "choice.set.max.travel.time";
+    public static final String TRIP_DISTRIBUTION_HIERARCHICAL = "trip.distribution.hierarchical";
+    public static final String TRIP_DISTRIBUTION_HIERARCHICAL_VALIDATION = "trip.distribution.hierarchical.validation";
+    public static final String TRIP_DISTRIBUTION_BATCH = "trip.distribution.batch";
+    public static final String TRIP_DISTRIBUTION_BUDGET_BUCKET = "trip.distribution.budget.bucket";
+    public static final String TRIP_DISTRIBUTION_ORDER_BY_ZONE = "trip.distribution.order.by.zone";
+    public static final String LOGIT_FAST_EXP = "logit.fast.exp";
+
+    public static final String NUMBER_OF_THREADS = "number.of.threads";
+    public static final String SKIMS_BACKGROUND = "skims.read.in.background";
+    public static final String ADDITIONAL_SKIM_MODES = "skims.additional.modes";
+    public static final String SKIMS_LAZY = "skims.lazy";
+    public static final String SKIMS_PRECISION = "skims.quantized.precision";
+    public static final String SKIMS_SYMMETRIC = "skims.quantized.symmetric";
+
+    public static final String DISTRIBUTED_SHARDS = "distributed.shards";
+    public static final String DISTRIBUTED_HOST = "distributed.host";
+    public static final String DISTRIBUTED_PORT = "distributed.port";
+    public static final String DISTRIBUTED_LOCAL_WORKERS = "distributed.local.workers";
+    public static final String DISTRIBUTED_TIMEOUT = "distributed.timeout.seconds";
+
+    public static final String TRACE_HOUSEHOLDS = "trace.households";
+    public static final String TRACE_ZONES = "trace.zones";
+    public static final String TRACE_PURPOSES = "trace.purposes";
+    public static final String TRACE_FILE = "trace.file";
+
+    public static final String METRICS_PORT = "metrics.port";
+    public static final String METRICS_HOST = "metrics.host";
+    public static final String JFR_SAMPLE_INTERVAL = "jfr.sample.interval";
 }
@@ -3,7 +3,6 @@ package de.tum.bgu.msm.resources;
 import com.pb.common.calculator2.UtilityExpressionCalculator;
 import com.pb.common.calculator2.VariableTable;
 import com.pb.common.util.ResourceUtil;
-import de.tum.bgu.msm.modules.personTripAssignment.DefaultTripAssignmentFactory;
 import de.tum.bgu.msm.modules.personTripAssignment.TripAssignmentFactory;
 
 import java.io.File;
@@ -16,42 +15,65 @@ public enum Resources {
 
     INSTANCE;
 
-    private ResourceBundle resources;
-    private TripAssignmentFactory tripAssignmentFactory = new DefaultTripAssignmentFactory();
-
     Resources() {
 
     }
 
+    /**
+     * Sets the configuration of the current scenario, see {@link ScenarioContext}.
+     */
     public void setResources(ResourceBundle resources) {
-        this.resources = resources;
+        ScenarioContext.current().setResources(resources);
+    }
+
+    private ResourceBundle resources() {
+        return ScenarioContext.current().getResources();
     }
 
     public synchronized int getInt(String key) {
-        return ResourceUtil.getIntegerProperty(resources, key);
+        return ResourceUtil.getIntegerProperty(resources(), key);
+    }
+
+    public synchronized int getInt(String key, int defaultValue) {
+        return ResourceUtil.getIntegerProperty(resources(), key, defaultValue);
     }
 
     public synchronized String getString(String key) {
-        return ResourceUtil.getProperty(resources, key);
+        return ResourceUtil.getProperty(resources(), key);
+    }
+
+    public synchronized String getString(String key, String defaultValue) {
+        return ResourceUtil.getProperty(resources(), key, defaultValue);
     }
 
     public synchronized String[] getArray(String key) {
-        return ResourceUtil.getArray(resources, key);
+        return ResourceUtil.getArray(resources(), key);
     }
 
     public synchronized  boolean getBoolean(String key) {
-        return ResourceUtil.getBooleanProperty(resources, key);
+        return ResourceUtil.getBooleanProperty(resources(), key);
+    }
+
+    public synchronized boolean getBoolean(String key, boolean defaultValue) {
+        return ResourceUtil.getBooleanProperty(resources(), key, defaultValue);
     }
 
     public synchronized double getDouble(String key) {
-        return ResourceUtil.getDoubleProperty(resources, key);
+        return ResourceUtil.getDoubleProperty(resources(), key);
+    }
+
+    public synchronized double getDouble(String key, double defaultValue) {
+        return ResourceUtil.getDoubleProperty(resources(), key, defaultValue);
     }
 
+    /**
+     * Returns the trip assignment factory of the current scenario, see {@link ScenarioContext}.
+     */
     public TripAssignmentFactory getTripAssignmentFactory() {
-        return tripAssignmentFactory;
+        return ScenarioContext.current().getTripAssignmentFactory();
     }
 
     public void setTripAssignmentFactory(TripAssignmentFactory tripAssignmentFactory) {
-        this.tripAssignmentFactory = tripAssignmentFactory;
+        ScenarioContext.current().setTripAssignmentFactory(tripAssignmentFactory);
     }
 }
@@ -0,0 +1,120 @@
+package de.tum.bgu.msm.resources;
+
+import de.tum.bgu.msm.modules.personTripAssignment.DefaultTripAssignmentFactory;
+import de.tum.bgu.msm.modules.personTripAssignment.TripAssignmentFactory;
+
+import java.util.Random;
+import java.util.ResourceBundle;
+
+/**
+ * Holds the state of one model scenario: its configuration, random number generator, base
+ * directory, scenario name and trip assignment factory. Each thread works in the context that was set for it, or that
+ * was active in the thread that created it; threads without a context share a global default.
+ * This allows several scenarios to run in one JVM while {@link Resources#INSTANCE} and the
+ * random number methods of MitoUtil keep their static signatures.
+ */
+public final class ScenarioContext {
+
+    private static final ScenarioContext DEFAULT = new ScenarioContext(null);
+    private static final InheritableThreadLocal<ScenarioContext> CURRENT = new InheritableThreadLocal<>();
+
+    private volatile ResourceBundle resources;
+    private volatile Random random;
+    private volatile long seed;
+    private volatile String baseDirectory = "";
+    private volatile String scenarioName;
+    private volatile TripAssignmentFactory tripAssignmentFactory = new DefaultTripAssignmentFactory();
+
+    public ScenarioContext(ResourceBundle resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * Returns the context of the current thread, or the global default context.
+     */
+    public static ScenarioContext current() {
+        ScenarioContext context = CURRENT.get();
+        return context == null ? DEFAULT : context;
+    }
+
+    /**
+     * Makes the given context the context of the current thread and returns the previous one,
+     * which may be null. Passing null returns the thread to the global default context.
+     */
+    public static ScenarioContext set(ScenarioContext context) {
+        ScenarioContext previous = CURRENT.get();
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+        return previous;
+    }
+
+    /**
+     * Returns a runnable that executes the given task within the context that is current when
+     * this method is called, e.g. to hand work over to a shared thread pool.
+     */
+    public static Runnable wrap(Runnable task) {
+        ScenarioContext context = current();
+        return () -> {
+            ScenarioContext previous = set(context);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    public ResourceBundle getResources() {
+        return resources;
+    }
+
+    public void setResources(ResourceBundle resources) {
+        this.resources = resources;
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Returns the seed from which the deterministic random streams of this scenario are derived.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public String getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    public void setBaseDirectory(String baseDirectory) {
+        this.baseDirectory = baseDirectory;
+    }
+
+    public String getScenarioName() {
+        return scenarioName;
+    }
+
+    public void setScenarioName(String scenarioName) {
+        this.scenarioName = scenarioName;
+    }
+
+    public TripAssignmentFactory getTripAssignmentFactory() {
+        return tripAssignmentFactory;
+    }
+
+    public void setTripAssignmentFactory(TripAssignmentFactory tripAssignmentFactory) {
+        this.tripAssignmentFactory = tripAssignmentFactory;
+    }
+}
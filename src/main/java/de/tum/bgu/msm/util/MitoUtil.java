@@ -3,10 +3,12 @@ package de.tum.bgu.msm.util;
 import com.pb.common.matrix.Matrix;
 import com.pb.common.util.ResourceUtil;
 import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.MitoPerson;
 import de.tum.bgu.msm.resources.Gender;
 import de.tum.bgu.msm.resources.Occupation;
 import de.tum.bgu.msm.resources.Properties;
 import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.resources.ScenarioContext;
 import omx.OmxMatrix;
 import omx.hdf5.OmxHdf5Datatype;
 import org.apache.log4j.Logger;
@@ -14,9 +16,11 @@ import org.apache.log4j.Logger;
 import java.io.*;
 import java.text.DecimalFormat;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.ResourceBundle;
+import java.util.function.Predicate;
 
 /**
  * Utilities for the Transport in Microsimulation Orchestrator (TIMO)
@@ -28,35 +32,35 @@ import java.util.ResourceBundle;
 public class MitoUtil {
 
     private static final Logger logger = Logger.getLogger(MitoUtil.class);
-    private static Random rand;
-    private static String baseDirectory = "";
 
 
     public static void initializeRandomNumber() {
         // initialize random number generator
         int seed = Resources.INSTANCE.getInt(Properties.RANDOM_SEED);
         if (seed == -1)
-            rand = new Random();
+            initializeRandomNumber(new Random());
         else
-            rand = new Random(seed);
+            initializeRandomNumber(new Random(seed));
     }
 
 
     public static void initializeRandomNumber(Random randSetting) {
-        rand = randSetting;
+        // the first draw seeds the random streams of the model steps, see RandomStreams
+        ScenarioContext.current().setSeed(randSetting.nextLong());
+        ScenarioContext.current().setRandom(randSetting);
     }
 
     public static float getRandomFloat() {
-        return rand.nextFloat();
+        return ScenarioContext.current().getRandom().nextFloat();
     }
 
 
     public static String getBaseDirectory() {
-        return baseDirectory;
+        return ScenarioContext.current().getBaseDirectory();
     }
 
     public static void setBaseDirectory(String baseDirectoryInput) {
-        baseDirectory = baseDirectoryInput;
+        ScenarioContext.current().setBaseDirectory(baseDirectoryInput);
     }
 
     public static float rounder(float value, int digits) {
@@ -158,7 +162,7 @@ public class MitoUtil {
     }
 
     public static int select(double[] probabilities) {
-        return select(probabilities, rand);
+        return select(probabilities, getRandomObject());
     }
 
     public static int select(double[] probabilities, Random random) {
@@ -179,8 +183,12 @@ public class MitoUtil {
         return select(mappedProbabilities, getSum(mappedProbabilities.values()));
     }
 
+    public static <T> T select(Map<T, Double> mappedProbabilities, Random random) {
+        return select(mappedProbabilities, random, getSum(mappedProbabilities.values()));
+    }
+
     public static <T> T select(Map<T, Double> mappedProbabilities, double sum) {
-        return select(mappedProbabilities, rand, sum);
+        return select(mappedProbabilities, getRandomObject(), sum);
     }
 
     public static <T> T select(Map<T, Double> probabilities, Random random, double sum) {
@@ -252,6 +260,19 @@ public class MitoUtil {
     }
 
 
+    /**
+     * Returns the path of an output file in the output directory of the current scenario, so that
+     * scenarios running side by side do not overwrite each other's results. Without a scenario
+     * name, the file name is returned unchanged.
+     */
+    public static String getScenarioOutputFileName(String fileName) {
+        String scenarioName = ScenarioContext.current().getScenarioName();
+        if (scenarioName == null) {
+            return fileName;
+        }
+        return "scenOutput/" + scenarioName + "/" + new File(fileName).getName();
+    }
+
     public static PrintWriter openFileForSequentialWriting(String fileName, boolean appendFile) {
         // open file and return PrintWriter object
 
@@ -272,76 +293,96 @@ public class MitoUtil {
     }
 
 
+    /**
+     * Converts an OMX matrix into a java matrix. This reads the data from the OMX file, so the
+     * caller has to make sure that no other thread accesses an OMX file at the same time.
+     */
     public static Matrix convertOmxToMatrix(OmxMatrix omxMatrix) {
-        // convert OMX matrix into java matrix
+        return convertOmxToMatrix(omxMatrix.getName(), omxMatrix.getOmxJavaType(), omxMatrix.getShape(), omxMatrix.getData());
+    }
 
-        OmxHdf5Datatype.OmxJavaType type = omxMatrix.getOmxJavaType();
-        String name = omxMatrix.getName();
-        int[] dimensions = omxMatrix.getShape();
+    /**
+     * Converts the data of an OMX matrix, as read from the file, into a java matrix. Float data are
+     * used as they are, other numeric types are converted row by row into float rows. No file is
+     * accessed, so matrices can be converted concurrently.
+     */
+    public static Matrix convertOmxToMatrix(String name, OmxHdf5Datatype.OmxJavaType type, int[] dimensions, Object data) {
+        float[][] values;
         if (type.equals(OmxHdf5Datatype.OmxJavaType.FLOAT)) {
-            float[][] fArray = (float[][]) omxMatrix.getData();
-            Matrix mat = new Matrix(name, name, dimensions[0], dimensions[1]);
+            values = (float[][]) data;
+        } else {
+            values = new float[dimensions[0]][dimensions[1]];
             for (int i = 0; i < dimensions[0]; i++) {
-                for (int j = 0; j < dimensions[1]; j++) {
-                    mat.setValueAt(i + 1, j + 1, fArray[i][j]);
-                }
+                convertRow(type, data, i, values[i]);
             }
-            return mat;
-        } else if (type.equals(OmxHdf5Datatype.OmxJavaType.DOUBLE)) {
-            double[][] dArray = (double[][]) omxMatrix.getData();
-            Matrix mat = new Matrix(name, name, dimensions[0], dimensions[1]);
-            for (int i = 0; i < dimensions[0]; i++) {
-                for (int j = 0; j < dimensions[1]; j++) {
-                    mat.setValueAt(i + 1, j + 1, (float) dArray[i][j]);
-                }
+        }
+        return new Matrix(name, name, values);
+    }
+
+    private static void convertRow(OmxHdf5Datatype.OmxJavaType type, Object data, int row, float[] target) {
+        if (type.equals(OmxHdf5Datatype.OmxJavaType.DOUBLE)) {
+            double[] source = ((double[][]) data)[row];
+            for (int j = 0; j < target.length; j++) {
+                target[j] = (float) source[j];
+            }
+        } else if (type.equals(OmxHdf5Datatype.OmxJavaType.INT)) {
+            int[] source = ((int[][]) data)[row];
+            for (int j = 0; j < target.length; j++) {
+                target[j] = source[j];
+            }
+        } else if (type.equals(OmxHdf5Datatype.OmxJavaType.SHORT)) {
+            short[] source = ((short[][]) data)[row];
+            for (int j = 0; j < target.length; j++) {
+                target[j] = source[j];
             }
-            return mat;
         } else {
-            logger.info("OMX Matrix type " + type.toString() + " not yet implemented. Program exits.");
-            System.exit(1);
-            return null;
+            throw new IllegalArgumentException("OMX Matrix type " + type + " is not supported.");
         }
     }
 
     public static int getFemalesForHousehold(MitoHousehold household) {
-        return (int) household.getPersons().values().stream().filter(person ->
-                person.getGender().equals(Gender.FEMALE)).count();
+        return countPersons(household, person -> person.getGender().equals(Gender.FEMALE));
     }
 
     public static int getChildrenForHousehold(MitoHousehold household) {
-        return (int) household.getPersons().values().stream().filter(person ->
-                person.getAge() < 18).count();
+        return countPersons(household, person -> person.getAge() < 18);
     }
 
     public static int getYoungAdultsForHousehold(MitoHousehold household) {
-        return (int) household.getPersons().values().stream().filter(person ->
-                person.getAge() >= 18 && person.getAge() <= 25).count();
-
+        return countPersons(household, person -> person.getAge() >= 18 && person.getAge() <= 25);
     }
 
     public static int getRetireesForHousehold(MitoHousehold household) {
-        return (int) household.getPersons().values().stream().filter(person ->
-                person.getAge() > 65).count();
+        return countPersons(household, person -> person.getAge() > 65);
     }
 
     public static int getNumberOfWorkersForHousehold(MitoHousehold household) {
-        return (int) household.getPersons().values().stream().filter(person ->
-                person.getOccupation() == Occupation.WORKER).count();
-
+        return countPersons(household, person -> person.getOccupation() == Occupation.WORKER);
     }
 
     public static int getStudentsForHousehold(MitoHousehold household) {
-        return (int) household.getPersons().values().stream().filter(person ->
-                person.getOccupation() == Occupation.STUDENT).count();
-
+        return countPersons(household, person -> person.getOccupation() == Occupation.STUDENT);
     }
 
     public static int getLicenseHoldersForHousehold(MitoHousehold household) {
-        return (int) household.getPersons().values().stream().filter(person ->
-                person.hasDriversLicense()).count();
+        return countPersons(household, person -> person.hasDriversLicense());
+    }
+
+    /**
+     * Counts the members of the household that match the given condition without allocating.
+     */
+    private static int countPersons(MitoHousehold household, Predicate<MitoPerson> condition) {
+        List<MitoPerson> persons = household.getPersonList();
+        int count = 0;
+        for (int i = 0; i < persons.size(); i++) {
+            if (condition.test(persons.get(i))) {
+                count++;
+            }
+        }
+        return count;
     }
 
     public static Random getRandomObject() {
-        return rand;
+        return ScenarioContext.current().getRandom();
     }
 }
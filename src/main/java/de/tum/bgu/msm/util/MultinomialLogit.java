@@ -0,0 +1,111 @@
+package de.tum.bgu.msm.util;
+
+/**
+ * Multinomial logit kernel working on plain utility arrays. All exponentials are taken after
+ * shifting the utilities by their maximum, so large utilities do not overflow and small ones do
+ * not all underflow to zero. Alternatives with a utility of NaN or negative infinity are treated
+ * as unavailable.
+ */
+public final class MultinomialLogit {
+
+    private static final double LOG2_E = 1.4426950408889634;
+
+    private MultinomialLogit() {
+    }
+
+    /**
+     * Returns the logsum ln(sum(exp(u))) of the first {@code length} utilities, or negative
+     * infinity if no alternative is available. The utilities are not modified.
+     */
+    public static double logsum(double[] utilities, int length) {
+        double max = max(utilities, length);
+        if (max == Double.NEGATIVE_INFINITY) {
+            return max;
+        }
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            if (isAvailable(utilities[i])) {
+                sum += Math.exp(utilities[i] - max);
+            }
+        }
+        return max + Math.log(sum);
+    }
+
+    /**
+     * Converts the first {@code length} utilities in place into a cumulative distribution of
+     * (unnormalized) choice weights exp(u - max), ready to be used by {@link #select}. Unavailable
+     * alternatives get a weight of zero. Returns the logsum, or negative infinity if no
+     * alternative is available.
+     */
+    public static double toCumulativeDistribution(double[] utilities, int length, boolean fastExp) {
+        double max = max(utilities, length);
+        if (max == Double.NEGATIVE_INFINITY) {
+            for (int i = 0; i < length; i++) {
+                utilities[i] = 0;
+            }
+            return max;
+        }
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double utility = utilities[i];
+            if (isAvailable(utility)) {
+                sum += fastExp ? fastExp(utility - max) : Math.exp(utility - max);
+            }
+            utilities[i] = sum;
+        }
+        return max + Math.log(sum);
+    }
+
+    /**
+     * Selects an alternative from a cumulative distribution by binary search. The random number
+     * is expected to be uniform in [0,1).
+     */
+    public static int select(double[] cumulative, int length, double randomNumber) {
+        double selectedWeight = randomNumber * cumulative[length - 1];
+        int low = 0;
+        int high = length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > selectedWeight) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Approximates exp(x) as 2^k * 2^f with a polynomial for the fractional part. The relative
+     * error is below 1e-7, which is far below the sampling noise of the choice models.
+     */
+    public static double fastExp(double x) {
+        if (x < -708) {
+            return 0;
+        }
+        if (x > 709) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double t = x * LOG2_E;
+        double k = Math.floor(t);
+        double f = t - k;
+        double p = 1 + f * (0.6931471805599453 + f * (0.2402265069591007 + f * (0.0555041086648216
+                + f * (0.0096181291076285 + f * (0.0013333558146428 + f * (0.0001540353039338
+                + f * (0.0000152527338040 + f * 0.0000013215486790)))))));
+        return p * Double.longBitsToDouble(((long) k + 1023) << 52);
+    }
+
+    private static double max(double[] utilities, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            if (utilities[i] > max) {
+                max = utilities[i];
+            }
+        }
+        return max;
+    }
+
+    private static boolean isAvailable(double utility) {
+        return utility > Double.NEGATIVE_INFINITY;
+    }
+}
@@ -0,0 +1,71 @@
+package de.tum.bgu.msm.util;
+
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.resources.ScenarioContext;
+
+import java.util.Random;
+
+/**
+ * Random number streams that depend only on the scenario seed and on what they are used for,
+ * i.e. the model step, the entity (household, trip) and the purpose. A decision therefore draws
+ * the same random numbers no matter which thread makes it or in which order entities are
+ * processed, and parallel and serial runs produce identical results.
+ * <p>
+ * Entity ids must be stable, i.e. must not come from counters that depend on the processing
+ * order. Trips are identified by their household and their position among the household's trips
+ * of the same purpose, see {@link #householdEntityId}.
+ * <p>
+ * Stream keys are derived by SplitMix64 hashing. {@link #uniform} gives counter-based draws
+ * without any allocation, {@link #getRandom} a {@link Random} for code that expects one.
+ */
+public final class RandomStreams {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private RandomStreams() {
+    }
+
+    /**
+     * Returns the entity id of the given ordinal entity (e.g. the n-th trip of a purpose) of the
+     * given household.
+     */
+    public static long householdEntityId(int householdId, int ordinal) {
+        return ((long) householdId << 32) | (ordinal & 0xffffffffL);
+    }
+
+    /**
+     * Returns the stream key for the given model step, entity and purpose (which may be null)
+     * under the seed of the current scenario.
+     */
+    public static long key(String module, long entityId, Purpose purpose) {
+        return key(ScenarioContext.current().getSeed(), module, entityId, purpose);
+    }
+
+    /**
+     * Like {@link #key(String, long, Purpose)}, but under the given seed instead of the scenario's.
+     */
+    public static long key(long seed, String module, long entityId, Purpose purpose) {
+        long key = mix(seed + GOLDEN_GAMMA);
+        key = mix(key ^ module.hashCode());
+        key = mix(key ^ entityId);
+        return mix(key ^ (purpose == null ? -1 : purpose.ordinal()));
+    }
+
+    /**
+     * Returns the random number with the given counter in the stream with the given key,
+     * uniform in [0,1).
+     */
+    public static double uniform(long key, long counter) {
+        return (mix(key + (counter + 1) * GOLDEN_GAMMA) >>> 11) * 0x1.0p-53;
+    }
+
+    public static Random getRandom(String module, long entityId, Purpose purpose) {
+        return new Random(key(module, entityId, purpose));
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
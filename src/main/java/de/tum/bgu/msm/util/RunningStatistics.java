@@ -0,0 +1,93 @@
+package de.tum.bgu.msm.util;
+
+/**
+ * Running mean and variance of a vector of values over a growing number of observations,
+ * updated with Welford's algorithm so that individual observations need not be kept.
+ */
+public class RunningStatistics {
+
+    private final double[] mean;
+    private final double[] sumOfSquaredDeviations;
+    private int count = 0;
+
+    private double lastConfidenceLevel = Double.NaN;
+    private int lastDegreesOfFreedom;
+    private double lastTQuantile;
+
+    public RunningStatistics(int size) {
+        mean = new double[size];
+        sumOfSquaredDeviations = new double[size];
+    }
+
+    public synchronized void add(double[] values) {
+        if (values.length != mean.length) {
+            throw new IllegalArgumentException("Expected " + mean.length + " values, got " + values.length);
+        }
+        count++;
+        for (int i = 0; i < values.length; i++) {
+            double delta = values[i] - mean[i];
+            mean[i] += delta / count;
+            sumOfSquaredDeviations[i] += delta * (values[i] - mean[i]);
+        }
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized double getMean(int i) {
+        return mean[i];
+    }
+
+    /**
+     * Returns the sample variance, or NaN with less than two observations.
+     */
+    public synchronized double getVariance(int i) {
+        return count < 2 ? Double.NaN : sumOfSquaredDeviations[i] / (count - 1);
+    }
+
+    public double getStandardDeviation(int i) {
+        return Math.sqrt(getVariance(i));
+    }
+
+    /**
+     * Returns the half width of the confidence interval of the mean for the given confidence
+     * level, e.g. 0.95, based on Student's t distribution with count - 1 degrees of freedom, or
+     * NaN with less than two observations.
+     */
+    public synchronized double getConfidenceHalfWidth(int i, double confidenceLevel) {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        return getTQuantile(confidenceLevel, count - 1) * Math.sqrt(getVariance(i) / count);
+    }
+
+    /**
+     * Returns the number of observations needed for the confidence interval of the mean at the
+     * given confidence level to be within the given share of the mean, e.g. 0.01 for +/-1%,
+     * assuming that the standard deviation estimated so far holds. The t quantile is taken at the
+     * current degrees of freedom, so the count is slightly conservative when it lies above the
+     * current one.
+     */
+    public synchronized int getRequiredCount(int i, double confidenceLevel, double relativeError) {
+        double tolerance = relativeError * Math.abs(mean[i]);
+        if (count < 2 || tolerance == 0) {
+            return count;
+        }
+        double required = Math.pow(getTQuantile(confidenceLevel, count - 1) * getStandardDeviation(i) / tolerance, 2);
+        return (int) Math.ceil(required);
+    }
+
+    private double getTQuantile(double confidenceLevel, int degreesOfFreedom) {
+        if (!(confidenceLevel > 0 && confidenceLevel < 1)) {
+            throw new IllegalArgumentException("Confidence level has to be in (0, 1), got " + confidenceLevel);
+        }
+        // the quantile is the same for all values of a vector, so it is computed once per count
+        if (confidenceLevel != lastConfidenceLevel || degreesOfFreedom != lastDegreesOfFreedom) {
+            lastTQuantile = StudentT.quantile(1 - (1 - confidenceLevel) / 2, degreesOfFreedom);
+            lastConfidenceLevel = confidenceLevel;
+            lastDegreesOfFreedom = degreesOfFreedom;
+        }
+        return lastTQuantile;
+    }
+}
@@ -0,0 +1,140 @@
+package de.tum.bgu.msm.util;
+
+/**
+ * Distribution function and quantiles of Student's t distribution, which confidence intervals of
+ * a mean estimated from few observations have to be based on instead of the normal distribution.
+ */
+public final class StudentT {
+
+    private static final int MAX_ITERATIONS = 200;
+    private static final double EPSILON = 1e-14;
+
+    private StudentT() {
+    }
+
+    /**
+     * Returns the probability that a t-distributed variable with the given degrees of freedom is
+     * at most t.
+     */
+    public static double cumulativeProbability(double t, int degreesOfFreedom) {
+        checkDegreesOfFreedom(degreesOfFreedom);
+        double x = degreesOfFreedom / (degreesOfFreedom + t * t);
+        double tail = 0.5 * regularizedIncompleteBeta(x, degreesOfFreedom / 2., 0.5);
+        return t > 0 ? 1 - tail : tail;
+    }
+
+    /**
+     * Returns the value t for which the distribution function with the given degrees of freedom
+     * equals p, e.g. about 2.365 for p = 0.975 and 7 degrees of freedom. Uses Newton steps that
+     * fall back to bisection whenever they leave the bracket of the root.
+     */
+    public static double quantile(double p, int degreesOfFreedom) {
+        checkDegreesOfFreedom(degreesOfFreedom);
+        if (!(p > 0 && p < 1)) {
+            throw new IllegalArgumentException("Probability has to be in (0, 1), got " + p);
+        }
+        if (p < 0.5) {
+            return -quantile(1 - p, degreesOfFreedom);
+        }
+        if (p == 0.5) {
+            return 0;
+        }
+        double lower = 0;
+        double upper = 2;
+        while (cumulativeProbability(upper, degreesOfFreedom) < p) {
+            lower = upper;
+            upper *= 2;
+        }
+        double t = (lower + upper) / 2;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double difference = cumulativeProbability(t, degreesOfFreedom) - p;
+            if (difference < 0) {
+                lower = t;
+            } else {
+                upper = t;
+            }
+            double next = t - difference / density(t, degreesOfFreedom);
+            if (!(next > lower && next < upper)) {
+                next = (lower + upper) / 2;
+            }
+            if (Math.abs(next - t) <= EPSILON * Math.max(1, t)) {
+                return next;
+            }
+            t = next;
+        }
+        return t;
+    }
+
+    private static double density(double t, int degreesOfFreedom) {
+        double n = degreesOfFreedom;
+        return Math.exp(logGamma((n + 1) / 2) - logGamma(n / 2) - 0.5 * Math.log(n * Math.PI)
+                - (n + 1) / 2 * Math.log1p(t * t / n));
+    }
+
+    private static void checkDegreesOfFreedom(int degreesOfFreedom) {
+        if (degreesOfFreedom < 1) {
+            throw new IllegalArgumentException("Degrees of freedom have to be positive, got " + degreesOfFreedom);
+        }
+    }
+
+    /**
+     * Regularized incomplete beta function I_x(a, b), evaluated by its continued fraction.
+     */
+    private static double regularizedIncompleteBeta(double x, double a, double b) {
+        if (x <= 0) {
+            return 0;
+        }
+        if (x >= 1) {
+            return 1;
+        }
+        double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log1p(-x));
+        if (x < (a + 1) / (a + b + 2)) {
+            return front * continuedFraction(x, a, b) / a;
+        }
+        return 1 - front * continuedFraction(1 - x, b, a) / b;
+    }
+
+    private static double continuedFraction(double x, double a, double b) {
+        double tiny = 1e-300;
+        double c = 1;
+        double d = 1 - (a + b) * x / (a + 1);
+        d = 1 / (Math.abs(d) < tiny ? tiny : d);
+        double result = d;
+        for (int m = 1; m <= MAX_ITERATIONS; m++) {
+            int m2 = 2 * m;
+            double coefficient = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+            d = 1 + coefficient * d;
+            d = 1 / (Math.abs(d) < tiny ? tiny : d);
+            c = 1 + coefficient / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            result *= d * c;
+            coefficient = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+            d = 1 + coefficient * d;
+            d = 1 / (Math.abs(d) < tiny ? tiny : d);
+            c = 1 + coefficient / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            double delta = d * c;
+            result *= delta;
+            if (Math.abs(delta - 1) < EPSILON) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Natural logarithm of the gamma function for positive arguments (Lanczos approximation).
+     */
+    private static double logGamma(double x) {
+        double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+                -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
@@ -1,14 +1,12 @@
 package de.tum.bgu.msm.util.concurrent;
 
-import com.pb.sawdust.calculator.Function1;
-import com.pb.sawdust.util.concurrent.ForkJoinPoolFactory;
-import com.pb.sawdust.util.concurrent.IteratorAction;
-
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Runs a list of functions in parallel. Kept for programs that hand their own functions to MITO,
+ * new code should use {@link ModuleExecutor} directly.
+ */
 public class ConcurrentFunctionExecutor {
 
     private final List<ConcurrentFunction> functions = new ArrayList<>();
@@ -18,16 +16,10 @@ public class ConcurrentFunctionExecutor {
     }
 
     public void execute() {
-        // Multi-threading code
-        Function1<ConcurrentFunction, Void> threadableFunction = function -> {
-            function.execute();
-            return null;
-        };
-
-        Iterator<ConcurrentFunction> incomeChangeIterator = functions.listIterator();
-        IteratorAction<ConcurrentFunction> itTask = new IteratorAction<>(incomeChangeIterator, threadableFunction);
-        ForkJoinPool pool = ForkJoinPoolFactory.getForkJoinPool();
-        pool.execute(itTask);
-        itTask.waitForCompletion();
+        ModuleExecutor executor = new ModuleExecutor(ConcurrentFunctionExecutor.class.getSimpleName());
+        for (int i = 0; i < functions.size(); i++) {
+            executor.addTask("function " + i, functions.get(i));
+        }
+        executor.execute();
     }
 }
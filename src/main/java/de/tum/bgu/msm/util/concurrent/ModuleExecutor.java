@@ -0,0 +1,198 @@
+package de.tum.bgu.msm.util.concurrent;
+
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.resources.ScenarioContext;
+import de.tum.bgu.msm.util.metrics.ProgressMetrics;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the tasks of a model step in parallel on a fork-join pool of platform threads. The pool
+ * only lives for one call of {@link #execute()}, which returns when every task is done, so
+ * no task outlives the step that started it.
+ * <p>
+ * The first task that fails cancels all tasks that have not started yet, and its exception is
+ * rethrown by {@link #execute()}. Progress is logged while the tasks complete, and the run time
+ * of every task is kept for {@link #getTaskTimes()}. Tasks run in the scenario context of the
+ * caller.
+ */
+public final class ModuleExecutor {
+
+    private static final Logger logger = Logger.getLogger(ModuleExecutor.class);
+
+    private final String name;
+    private final int parallelism;
+    private final List<Task> tasks = new ArrayList<>();
+
+    private volatile boolean cancelled = false;
+
+    public ModuleExecutor(String name) {
+        this(name, getDefaultParallelism());
+    }
+
+    public ModuleExecutor(String name, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism has to be positive, got " + parallelism);
+        }
+        this.name = name;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of threads set by the property {@link Properties#NUMBER_OF_THREADS}, or the
+     * number of available processors if it is not set.
+     */
+    public static int getDefaultParallelism() {
+        int threads = Resources.INSTANCE.getInt(Properties.NUMBER_OF_THREADS, -1);
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public void addTask(String taskName, ConcurrentFunction task) {
+        tasks.add(new Task(taskName, task));
+    }
+
+    /**
+     * Splits the index range [0, size) into chunks of the given size and adds one task per chunk.
+     * With a chunk size of zero or less, the range is split into about four chunks per thread.
+     */
+    public void addChunks(String taskName, int size, int chunkSize, RangeFunction function) {
+        if (chunkSize <= 0) {
+            chunkSize = Math.max(1, (size + 4 * parallelism - 1) / (4 * parallelism));
+        }
+        for (int from = 0; from < size; from += chunkSize) {
+            int start = from;
+            int end = Math.min(size, from + chunkSize);
+            addTask(taskName + " [" + start + "," + end + ")", () -> function.execute(start, end));
+        }
+    }
+
+    /**
+     * Cancels all tasks that have not started yet. Running tasks are completed.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Runs all added tasks and waits for them. Rethrows the exception of the first failed task.
+     */
+    public void execute() {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        ScenarioContext context = ScenarioContext.current();
+        AtomicInteger completedTasks = new AtomicInteger();
+        AtomicReference<Task> failedTask = new AtomicReference<>();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasks.size()));
+        ProgressMetrics.executorStarted(pool.getParallelism());
+        try {
+            List<ForkJoinTask<?>> futures = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                futures.add(pool.submit(() -> run(task, context, completedTasks, failedTask)));
+            }
+            for (ForkJoinTask<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // the failure is kept in failedTask
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(name + ": interrupted while waiting for tasks.", e);
+        } finally {
+            pool.shutdownNow();
+            ProgressMetrics.executorFinished(pool.getParallelism());
+        }
+        Task failed = failedTask.get();
+        if (failed != null) {
+            throw new RuntimeException(name + ": task " + failed.name + " failed.", failed.failure);
+        }
+        if (cancelled) {
+            logger.warn("  " + name + " was cancelled after " + completedTasks.get() + " of " + tasks.size() + " tasks.");
+        } else {
+            logger.info("  " + name + " completed " + tasks.size() + " tasks on " + pool.getParallelism()
+                    + " threads in " + (System.currentTimeMillis() - startTime) / 1000. + " seconds.");
+        }
+    }
+
+    /**
+     * Returns the run time in milliseconds of every task that has completed, in the order in which
+     * the tasks were added.
+     */
+    public Map<String, Long> getTaskTimes() {
+        Map<String, Long> times = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            if (task.duration >= 0) {
+                times.put(task.name, task.duration / 1000000);
+            }
+        }
+        return times;
+    }
+
+    private void run(Task task, ScenarioContext context, AtomicInteger completedTasks, AtomicReference<Task> failedTask) {
+        if (cancelled) {
+            return;
+        }
+        ScenarioContext previous = ScenarioContext.set(context);
+        long start = System.nanoTime();
+        ProgressMetrics.taskStarted();
+        try {
+            task.function.execute();
+        } catch (RuntimeException | Error e) {
+            task.failure = e;
+            failedTask.compareAndSet(null, task);
+            cancel();
+            return;
+        } finally {
+            ProgressMetrics.taskFinished();
+            ScenarioContext.set(previous);
+        }
+        task.duration = System.nanoTime() - start;
+        logger.debug("  " + name + ": " + task.name + " took " + task.duration / 1000000 + " ms.");
+        reportProgress(completedTasks.incrementAndGet());
+    }
+
+    private void reportProgress(int completed) {
+        int total = tasks.size();
+        if (total >= 10 && completed * 10 / total != (completed - 1) * 10 / total) {
+            logger.info("  " + name + ": " + completed + " of " + total + " tasks done.");
+        }
+    }
+
+    /**
+     * Work on the index range [from, to) of a chunked task.
+     */
+    public interface RangeFunction {
+        void execute(int from, int to);
+    }
+
+    private static final class Task {
+
+        private final String name;
+        private final ConcurrentFunction function;
+        private volatile long duration = -1;
+        private volatile Throwable failure;
+
+        private Task(String name, ConcurrentFunction function) {
+            this.name = name;
+            this.function = function;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package de.tum.bgu.msm.util.concurrent;
+
+import de.tum.bgu.msm.resources.ScenarioContext;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs tasks that depend on each other. Every task starts as soon as all tasks it depends on are
+ * done, so independent tasks run in parallel. Like {@link ModuleExecutor}, the pool only lives for
+ * one call of {@link #execute()}, the first failure cancels all tasks that have not started yet
+ * and is rethrown, and tasks run in the scenario context of the caller.
+ */
+public final class TaskGraph {
+
+    private static final Logger logger = Logger.getLogger(TaskGraph.class);
+
+    private final String name;
+    private final int parallelism;
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final AtomicReference<Node> failedNode = new AtomicReference<>();
+    private volatile boolean cancelled = false;
+
+    public TaskGraph(String name) {
+        this(name, ModuleExecutor.getDefaultParallelism());
+    }
+
+    public TaskGraph(String name, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism has to be positive, got " + parallelism);
+        }
+        this.name = name;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Adds a task that starts after the given tasks are done. Dependencies that are null are
+     * ignored, which allows optional steps.
+     */
+    public Node add(String taskName, ConcurrentFunction function, Node... dependencies) {
+        List<Node> dependsOn = new ArrayList<>();
+        for (Node dependency : dependencies) {
+            if (dependency != null) {
+                if (!nodes.contains(dependency)) {
+                    throw new IllegalArgumentException("Task " + dependency.name + " is not part of " + name);
+                }
+                dependsOn.add(dependency);
+            }
+        }
+        Node node = new Node(taskName, function, dependsOn);
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Runs all tasks and waits for them. Rethrows the exception of the first failed task.
+     */
+    public void execute() {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        ScenarioContext context = ScenarioContext.current();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, nodes.size()));
+        try {
+            // tasks can only depend on tasks added before them, so this order is topological
+            for (Node node : nodes) {
+                CompletableFuture<?>[] dependencies = new CompletableFuture<?>[node.dependencies.size()];
+                for (int i = 0; i < dependencies.length; i++) {
+                    dependencies[i] = node.dependencies.get(i).future;
+                }
+                node.future = CompletableFuture.allOf(dependencies).thenRunAsync(() -> run(node, context), pool);
+            }
+            for (Node node : nodes) {
+                try {
+                    node.future.join();
+                } catch (RuntimeException e) {
+                    // the failure is kept in failedNode, dependent tasks fail with it
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Node failed = failedNode.get();
+        if (failed != null) {
+            throw new RuntimeException(name + ": task " + failed.name + " failed.", failed.failure);
+        }
+        logger.info("  " + name + " completed " + nodes.size() + " tasks in "
+                + (System.currentTimeMillis() - startTime) / 1000. + " seconds.");
+    }
+
+    private void run(Node node, ScenarioContext context) {
+        if (cancelled) {
+            return;
+        }
+        ScenarioContext previous = ScenarioContext.set(context);
+        long start = System.currentTimeMillis();
+        try {
+            node.function.execute();
+        } catch (RuntimeException | Error e) {
+            node.failure = e;
+            failedNode.compareAndSet(null, node);
+            cancelled = true;
+            throw e;
+        } finally {
+            ScenarioContext.set(previous);
+        }
+        logger.debug("  " + name + ": " + node.name + " took " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    public static final class Node {
+
+        private final String name;
+        private final ConcurrentFunction function;
+        private final List<Node> dependencies;
+        private CompletableFuture<Void> future;
+        private volatile Throwable failure;
+
+        private Node(String name, ConcurrentFunction function, List<Node> dependencies) {
+            this.name = name;
+            this.function = function;
+            this.dependencies = dependencies;
+        }
+    }
+}
@@ -16,14 +16,33 @@ public abstract class JavaScriptCalculator<T> {
 
     private CompiledScript compiledScript;
     protected LoggableBindings bindings = new LoggableBindings();
-
+    protected final UtilityTracer tracer;
+    private boolean tracing = false;
 
     protected JavaScriptCalculator(Reader reader) {
+        this(reader, UtilityTracer.disabled());
+    }
+
+    protected JavaScriptCalculator(Reader reader, UtilityTracer tracer) {
+        this.tracer = tracer;
         logger.debug("Reading script...");
         String script = readScript(reader);
         logger.debug("Compiling script: " + script);
         compileScript(script);
         bindings.put("logger", logger);
+        bindings.put("tracer", tracer);
+        bindings.put("trace", false);
+    }
+
+    /**
+     * Switches tracing of the following calculations on or off. Scripts only write to the tracer
+     * if the binding "trace" is true, so calculations that are not traced do not build any strings.
+     */
+    protected void setTracing(boolean tracing) {
+        if (this.tracing != tracing) {
+            this.tracing = tracing;
+            bindings.put("trace", tracing);
+        }
     }
 
     private String readScript(Reader reader) {
@@ -54,7 +73,9 @@ public abstract class JavaScriptCalculator<T> {
 
     public T calculate() {
         try {
-            bindings.logValues();
+            if (tracing) {
+                bindings.logValues(tracer);
+            }
             return (T) compiledScript.eval(bindings);
         } catch (ScriptException e) {
             e.printStackTrace();
@@ -14,4 +14,11 @@ public class LoggableBindings extends SimpleBindings {
             logger.debug(entry.getKey() + " = " + entry.getValue());
         }
     }
+
+    public void logValues(UtilityTracer tracer) {
+        tracer.trace("Bound values: ");
+        for(Entry<String, Object> entry: this.entrySet()) {
+            tracer.trace(entry.getKey() + " = " + entry.getValue());
+        }
+    }
 }
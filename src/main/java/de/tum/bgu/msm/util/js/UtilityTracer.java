@@ -0,0 +1,120 @@
+package de.tum.bgu.msm.util.js;
+
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.resources.ScenarioContext;
+import de.tum.bgu.msm.util.MitoUtil;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes the utility calculations of selected households, zones and purposes to a dedicated trace
+ * file. Households, zones and purposes are selected by the properties
+ * {@link Properties#TRACE_HOUSEHOLDS}, {@link Properties#TRACE_ZONES} and
+ * {@link Properties#TRACE_PURPOSES}. A calculation is traced if it matches every selection that
+ * is given, e.g. household 4711 to zone 123. Without any selection, tracing is off and scripts
+ * skip all trace output. A tracer belongs to one model run, which closes it at its end, see
+ * {@link de.tum.bgu.msm.TravelDemandGenerator#runModules()}.
+ */
+public final class UtilityTracer {
+
+    private static final UtilityTracer DISABLED = new UtilityTracer(Collections.emptySet(), Collections.emptySet(),
+            Collections.emptySet(), null);
+
+    private final Set<Integer> households;
+    private final Set<Integer> zones;
+    private final Set<String> purposes;
+    private final String fileName;
+    private final boolean enabled;
+    private PrintWriter writer;
+
+    private UtilityTracer(Set<Integer> households, Set<Integer> zones, Set<String> purposes, String fileName) {
+        this.households = households;
+        this.zones = zones;
+        this.purposes = purposes;
+        this.fileName = fileName;
+        this.enabled = !households.isEmpty() || !zones.isEmpty() || !purposes.isEmpty();
+    }
+
+    /**
+     * Returns a tracer that traces nothing.
+     */
+    public static UtilityTracer disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns a new tracer configured by the properties of the current scenario.
+     */
+    public static UtilityTracer fromProperties() {
+        if (ScenarioContext.current().getResources() == null) {
+            return DISABLED;
+        }
+        Set<Integer> households = parseIds(Resources.INSTANCE.getString(Properties.TRACE_HOUSEHOLDS, ""));
+        Set<Integer> zones = parseIds(Resources.INSTANCE.getString(Properties.TRACE_ZONES, ""));
+        Set<String> purposes = new HashSet<>();
+        for (String purpose : Resources.INSTANCE.getString(Properties.TRACE_PURPOSES, "").split(",")) {
+            if (!purpose.trim().isEmpty()) {
+                purposes.add(purpose.trim());
+            }
+        }
+        String fileName = MitoUtil.getScenarioOutputFileName(Resources.INSTANCE.getString(Properties.TRACE_FILE, "trace.log"));
+        return new UtilityTracer(households, zones, purposes, fileName);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns whether calculations for the given household may be traced, i.e. whether it is
+     * selected or no households are selected.
+     */
+    public boolean isTracedHousehold(int householdId) {
+        return enabled && (households.isEmpty() || households.contains(householdId));
+    }
+
+    /**
+     * Returns whether the calculation for the given household, origin and destination zone and
+     * purpose is traced. Unknown households or zones are passed as -1.
+     */
+    public boolean isTraced(int householdId, int originZoneId, int destinationZoneId, String purpose) {
+        return enabled
+                && (households.isEmpty() || households.contains(householdId))
+                && (zones.isEmpty() || zones.contains(originZoneId) || zones.contains(destinationZoneId))
+                && (purposes.isEmpty() || purposes.contains(purpose));
+    }
+
+    /**
+     * Writes a line to the trace file. Called from the scripts, only while tracing.
+     */
+    public synchronized void trace(String line) {
+        if (writer == null) {
+            writer = MitoUtil.openFileForSequentialWriting(fileName, false);
+        }
+        writer.println(line);
+    }
+
+    /**
+     * Flushes and closes the trace file, if anything has been traced.
+     */
+    public synchronized void close() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private static Set<Integer> parseIds(String ids) {
+        Set<Integer> parsed = new HashSet<>();
+        for (String id : ids.split(",")) {
+            if (!id.trim().isEmpty()) {
+                parsed.add(Integer.parseInt(id.trim()));
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,112 @@
+package de.tum.bgu.msm.util.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Resources;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the {@link ProgressMetrics} in the Prometheus text format at /metrics, so that long runs
+ * can be watched or scraped while they are running. The server answers on one daemon thread and
+ * does not keep the JVM alive.
+ */
+public final class MetricsServer implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(MetricsServer.class);
+
+    private static MetricsServer instance;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Starts serving on the given port of the loopback interface, or on any free port if it is 0.
+     */
+    public MetricsServer(int port) throws IOException {
+        this(null, port);
+    }
+
+    /**
+     * Starts serving on the given host and port, or on the loopback interface if the host is null.
+     * Use "0.0.0.0" to serve on all interfaces.
+     */
+    public MetricsServer(String host, int port) throws IOException {
+        InetAddress address = host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host);
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext("/metrics", this::handle);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mito-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Starts the metrics server of this JVM on the port set by {@link Properties#METRICS_PORT},
+     * unless it is not set or the server is already running. The server only answers on the
+     * loopback interface unless {@link Properties#METRICS_HOST} is set. A port that cannot be bound
+     * is logged and does not stop the model run.
+     */
+    public static synchronized void startIfConfigured() {
+        int port = Resources.INSTANCE.getInt(Properties.METRICS_PORT, -1);
+        if (port < 0 || instance != null) {
+            return;
+        }
+        String host = Resources.INSTANCE.getString(Properties.METRICS_HOST, null);
+        try {
+            instance = new MetricsServer(host, port);
+            logger.info("  Serving progress metrics at http://" + instance.getAddress().getHostString() + ":"
+                    + instance.getPort() + "/metrics");
+        } catch (IOException e) {
+            logger.warn("Could not serve progress metrics on " + (host == null ? "" : host + ":") + port + ": " + e.getMessage());
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = ProgressMetrics.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,113 @@
+package de.tum.bgu.msm.util.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one model step of one scenario: the units of work (e.g. households) processed so
+ * far out of a known total, and named counts such as generated or failed trips. All methods may be
+ * called from several threads.
+ */
+public final class ModuleProgress {
+
+    private final String scenario;
+    private final String module;
+    private final String unit;
+    private final long total;
+    private final long startTime = System.nanoTime();
+
+    private final AtomicLong processed = new AtomicLong();
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private volatile long endTime = -1;
+
+    ModuleProgress(String scenario, String module, String unit, long total) {
+        this.scenario = scenario;
+        this.module = module;
+        this.unit = unit;
+        this.total = total;
+    }
+
+    public void increment() {
+        processed.incrementAndGet();
+    }
+
+    public void setProcessed(long value) {
+        processed.set(value);
+    }
+
+    /**
+     * Adds the given number to the count with the given name, e.g. "trips_generated".
+     */
+    public void count(String name, long delta) {
+        counts.computeIfAbsent(name, k -> new AtomicLong()).addAndGet(delta);
+    }
+
+    public void setCount(String name, long value) {
+        counts.computeIfAbsent(name, k -> new AtomicLong()).set(value);
+    }
+
+    public void finish() {
+        endTime = System.nanoTime();
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getCount(String name) {
+        AtomicLong count = counts.get(name);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Returns the counts sorted by name.
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> sorted = new TreeMap<>();
+        counts.forEach((name, count) -> sorted.put(name, count.get()));
+        return sorted;
+    }
+
+    public boolean isRunning() {
+        return endTime < 0;
+    }
+
+    public double getElapsedSeconds() {
+        long end = endTime < 0 ? System.nanoTime() : endTime;
+        return (end - startTime) / 1e9;
+    }
+
+    /**
+     * Returns the estimated seconds until the step is done, extrapolated from the rate at which
+     * units have been processed so far, 0 once the step has finished, or NaN as long as nothing
+     * has been processed.
+     */
+    public double getEtaSeconds() {
+        if (!isRunning()) {
+            return 0;
+        }
+        long done = processed.get();
+        if (done <= 0 || total <= 0) {
+            return Double.NaN;
+        }
+        return getElapsedSeconds() * Math.max(0, total - done) / done;
+    }
+}
@@ -0,0 +1,192 @@
+package de.tum.bgu.msm.util.metrics;
+
+import de.tum.bgu.msm.resources.ScenarioContext;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the progress of the model steps of all scenarios of this JVM and the utilization of the
+ * threads of the module executors, and renders them together with heap, garbage collection and
+ * thread statistics of the JVM in the Prometheus text format, see {@link MetricsServer}. The
+ * latest progress of every step and scenario is kept, so a finished step reports its final counts.
+ */
+public final class ProgressMetrics {
+
+    private static final Map<String, ModuleProgress> modules = new LinkedHashMap<>();
+    private static final AtomicInteger executorThreads = new AtomicInteger();
+    private static final AtomicInteger busyThreads = new AtomicInteger();
+
+    private ProgressMetrics() {
+    }
+
+    /**
+     * Starts tracking the given model step in the current scenario, replacing the progress of a
+     * previous run of the step.
+     *
+     * @param unit  the unit of work that is counted, e.g. "households"
+     * @param total the number of units the step has to process
+     */
+    public static ModuleProgress startModule(String module, String unit, long total) {
+        String scenario = ScenarioContext.current().getScenarioName();
+        ModuleProgress progress = new ModuleProgress(scenario == null ? "" : scenario, module, unit, total);
+        synchronized (modules) {
+            modules.remove(progress.getScenario() + "\n" + module);
+            modules.put(progress.getScenario() + "\n" + module, progress);
+        }
+        return progress;
+    }
+
+    public static List<ModuleProgress> getModules() {
+        synchronized (modules) {
+            return new ArrayList<>(modules.values());
+        }
+    }
+
+    /**
+     * Forgets the progress of all model steps.
+     */
+    public static void clear() {
+        synchronized (modules) {
+            modules.clear();
+        }
+    }
+
+    public static void executorStarted(int threads) {
+        executorThreads.addAndGet(threads);
+    }
+
+    public static void executorFinished(int threads) {
+        executorThreads.addAndGet(-threads);
+    }
+
+    public static void taskStarted() {
+        busyThreads.incrementAndGet();
+    }
+
+    public static void taskFinished() {
+        busyThreads.decrementAndGet();
+    }
+
+    /**
+     * Returns all metrics in the Prometheus text exposition format.
+     */
+    public static String render() {
+        StringBuilder out = new StringBuilder();
+        List<ModuleProgress> progresses = getModules();
+
+        family(out, "mito_module_processed", "gauge", "Units of work processed by the model step.");
+        for (ModuleProgress progress : progresses) {
+            sample(out, "mito_module_processed", moduleLabels(progress, true), progress.getProcessed());
+        }
+        family(out, "mito_module_total", "gauge", "Units of work the model step has to process.");
+        for (ModuleProgress progress : progresses) {
+            sample(out, "mito_module_total", moduleLabels(progress, true), progress.getTotal());
+        }
+        family(out, "mito_module_running", "gauge", "1 while the model step is running, 0 once it has finished.");
+        for (ModuleProgress progress : progresses) {
+            sample(out, "mito_module_running", moduleLabels(progress, false), progress.isRunning() ? 1 : 0);
+        }
+        family(out, "mito_module_elapsed_seconds", "gauge", "Run time of the model step so far.");
+        for (ModuleProgress progress : progresses) {
+            sample(out, "mito_module_elapsed_seconds", moduleLabels(progress, false), progress.getElapsedSeconds());
+        }
+        family(out, "mito_module_eta_seconds", "gauge", "Estimated time until the model step is done.");
+        for (ModuleProgress progress : progresses) {
+            sample(out, "mito_module_eta_seconds", moduleLabels(progress, false), progress.getEtaSeconds());
+        }
+        Set<String> countNames = new TreeSet<>();
+        for (ModuleProgress progress : progresses) {
+            countNames.addAll(progress.getCounts().keySet());
+        }
+        for (String countName : countNames) {
+            String metric = "mito_" + countName;
+            family(out, metric, "gauge", "Count of " + countName.replace('_', ' ') + " by model step.");
+            for (ModuleProgress progress : progresses) {
+                Long count = progress.getCounts().get(countName);
+                if (count != null) {
+                    sample(out, metric, moduleLabels(progress, false), count);
+                }
+            }
+        }
+
+        family(out, "mito_executor_threads", "gauge", "Threads of the running module executors.");
+        sample(out, "mito_executor_threads", "", executorThreads.get());
+        family(out, "mito_executor_busy_threads", "gauge", "Threads of the module executors that are running a task.");
+        sample(out, "mito_executor_busy_threads", "", busyThreads.get());
+
+        renderJvm(out);
+        return out.toString();
+    }
+
+    private static void renderJvm(StringBuilder out) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        family(out, "jvm_memory_heap_used_bytes", "gauge", "Used heap memory.");
+        sample(out, "jvm_memory_heap_used_bytes", "", heap.getUsed());
+        family(out, "jvm_memory_heap_committed_bytes", "gauge", "Committed heap memory.");
+        sample(out, "jvm_memory_heap_committed_bytes", "", heap.getCommitted());
+        family(out, "jvm_memory_heap_max_bytes", "gauge", "Maximum heap memory, -1 if undefined.");
+        sample(out, "jvm_memory_heap_max_bytes", "", heap.getMax());
+        family(out, "jvm_memory_nonheap_used_bytes", "gauge", "Used non-heap memory.");
+        sample(out, "jvm_memory_nonheap_used_bytes", "", memory.getNonHeapMemoryUsage().getUsed());
+
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        family(out, "jvm_gc_collections_total", "counter", "Garbage collections by collector.");
+        for (GarbageCollectorMXBean collector : collectors) {
+            sample(out, "jvm_gc_collections_total", label("gc", collector.getName()), collector.getCollectionCount());
+        }
+        family(out, "jvm_gc_collection_seconds_total", "counter", "Time spent in garbage collections by collector.");
+        for (GarbageCollectorMXBean collector : collectors) {
+            sample(out, "jvm_gc_collection_seconds_total", label("gc", collector.getName()), collector.getCollectionTime() / 1000.);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        family(out, "jvm_threads_live", "gauge", "Live threads.");
+        sample(out, "jvm_threads_live", "", threads.getThreadCount());
+        family(out, "jvm_threads_daemon", "gauge", "Live daemon threads.");
+        sample(out, "jvm_threads_daemon", "", threads.getDaemonThreadCount());
+        family(out, "jvm_threads_peak", "gauge", "Peak number of live threads.");
+        sample(out, "jvm_threads_peak", "", threads.getPeakThreadCount());
+
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        family(out, "process_available_processors", "gauge", "Processors available to the JVM.");
+        sample(out, "process_available_processors", "", os.getAvailableProcessors());
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean process = (com.sun.management.OperatingSystemMXBean) os;
+            family(out, "process_cpu_seconds_total", "counter", "CPU time used by the JVM.");
+            sample(out, "process_cpu_seconds_total", "", process.getProcessCpuTime() / 1e9);
+            family(out, "process_cpu_load", "gauge", "Recent CPU load of the JVM between 0 and 1, negative if unavailable.");
+            sample(out, "process_cpu_load", "", process.getProcessCpuLoad());
+        }
+    }
+
+    private static String moduleLabels(ModuleProgress progress, boolean withUnit) {
+        String labels = label("scenario", progress.getScenario()) + "," + label("module", progress.getModule());
+        return withUnit ? labels + "," + label("unit", progress.getUnit()) : labels;
+    }
+
+    private static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    private static void family(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+}
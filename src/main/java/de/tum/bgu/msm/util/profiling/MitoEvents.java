@@ -0,0 +1,48 @@
+package de.tum.bgu.msm.util.profiling;
+
+/**
+ * The flight recorder events of MITO, in the category "MITO" of a recording. Record them e.g. with
+ * -XX:StartFlightRecording=filename=mito.jfr; they cost next to nothing while no recording runs.
+ */
+public final class MitoEvents {
+
+    /**
+     * Run of a model step, with the field "module".
+     */
+    public static final ProfilingEventType MODULE = new ProfilingEventType("mito.Module", "Module",
+            "Run of a model step", new String[]{"module"}, new Class<?>[]{String.class});
+
+    /**
+     * Phase of a model step, e.g. one purpose, with the fields "module" and "phase".
+     */
+    public static final ProfilingEventType PHASE = new ProfilingEventType("mito.Phase", "Module Phase",
+            "Phase of a model step, e.g. one purpose", new String[]{"module", "phase"},
+            new Class<?>[]{String.class, String.class});
+
+    /**
+     * Reading of one skim matrix, with the fields "file", "matrix", "rows", "columns" and "bytes".
+     */
+    public static final ProfilingEventType SKIM_LOAD = new ProfilingEventType("mito.SkimLoad", "Skim Load",
+            "Reading and conversion of one skim matrix", new String[]{"file", "matrix", "rows", "columns", "bytes"},
+            new Class<?>[]{String.class, String.class, int.class, int.class, long.class});
+
+    /**
+     * Evaluation of the destination utilities of one base zone, sampled every
+     * {@link de.tum.bgu.msm.resources.Properties#JFR_SAMPLE_INTERVAL} evaluations, with the fields
+     * "purpose", "originZone" and "zonesEvaluated".
+     */
+    public static final ProfilingEventType DESTINATION_CHOICE = new ProfilingEventType("mito.DestinationChoice",
+            "Destination Choice", "Sampled evaluation of the destination utilities of one base zone",
+            new String[]{"purpose", "originZone", "zonesEvaluated"}, new Class<?>[]{String.class, int.class, int.class});
+
+    private MitoEvents() {
+    }
+
+    public static ProfilingEvent beginModule(String module) {
+        return MODULE.begin().set(0, module);
+    }
+
+    public static ProfilingEvent beginPhase(String module, String phase) {
+        return PHASE.begin().set(0, module).set(1, phase);
+    }
+}
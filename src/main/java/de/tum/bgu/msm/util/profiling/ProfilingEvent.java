@@ -0,0 +1,52 @@
+package de.tum.bgu.msm.util.profiling;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * One flight recorder event of a {@link ProfilingEventType}, timed from
+ * {@link ProfilingEventType#begin()} until {@link #commit()}. Events of disabled types do nothing.
+ */
+public final class ProfilingEvent {
+
+    static final ProfilingEvent DISABLED = new ProfilingEvent(null);
+
+    private final Object event;
+
+    ProfilingEvent(Object event) {
+        this.event = event;
+    }
+
+    public boolean isEnabled() {
+        return event != null;
+    }
+
+    /**
+     * Sets the field at the given position in the field names of the event type.
+     */
+    public ProfilingEvent set(int field, Object value) {
+        if (event != null) {
+            invoke(ProfilingEventType.Jfr.set, field, value);
+        }
+        return this;
+    }
+
+    /**
+     * Ends the event and writes it to the running recordings.
+     */
+    public void commit() {
+        if (event != null) {
+            invoke(ProfilingEventType.Jfr.commit);
+        }
+    }
+
+    private void invoke(Method method, Object... arguments) {
+        try {
+            method.invoke(event, arguments);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not access flight recorder event.", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Could not record flight recorder event.", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package de.tum.bgu.msm.util.profiling;
+
+import org.apache.log4j.Logger;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A custom Java Flight Recorder event type. MITO is compiled for Java 8, whose API has no jdk.jfr,
+ * so the event type is created at runtime with jdk.jfr.EventFactory if the JVM has a flight
+ * recorder (Java 8u262 or later). Otherwise, and while no recording has the event enabled,
+ * {@link #begin()} returns an event that does nothing.
+ */
+public final class ProfilingEventType {
+
+    private static final Logger logger = Logger.getLogger(ProfilingEventType.class);
+
+    private final String name;
+    private final List<String> fieldNames;
+    private final Object eventFactory;
+    private final Object eventType;
+
+    /**
+     * Defines the event type with the given name and fields. Field types may be primitive types
+     * or String. Stack traces are not recorded.
+     */
+    public ProfilingEventType(String name, String label, String description, String[] fieldNames, Class<?>[] fieldTypes) {
+        this(name, label, description, fieldNames, fieldTypes, true);
+    }
+
+    /**
+     * Defines an event type that, unless it is enabled by default, is only recorded by recordings
+     * that enable it by name.
+     */
+    ProfilingEventType(String name, String label, String description, String[] fieldNames, Class<?>[] fieldTypes,
+                       boolean enabledByDefault) {
+        if (fieldNames.length != fieldTypes.length) {
+            throw new IllegalArgumentException("Every field of event " + name + " needs a type.");
+        }
+        this.name = name;
+        this.fieldNames = Collections.unmodifiableList(Arrays.asList(fieldNames.clone()));
+        Object factory = null;
+        Object type = null;
+        if (Jfr.AVAILABLE) {
+            try {
+                factory = Jfr.createFactory(name, label, description, fieldNames, fieldTypes, enabledByDefault);
+                type = Jfr.getEventType.invoke(factory);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.warn("Could not define flight recorder event " + name + ": " + e);
+                factory = null;
+                type = null;
+            }
+        }
+        this.eventFactory = factory;
+        this.eventType = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * Returns whether a running recording has this event enabled.
+     */
+    public boolean isEnabled() {
+        if (eventType == null) {
+            return false;
+        }
+        try {
+            return (Boolean) Jfr.isEnabled.invoke(eventType);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts timing a new event, which is recorded when it is committed.
+     */
+    public ProfilingEvent begin() {
+        if (!isEnabled()) {
+            return ProfilingEvent.DISABLED;
+        }
+        try {
+            Object event = Jfr.newEvent.invoke(eventFactory);
+            Jfr.begin.invoke(event);
+            return new ProfilingEvent(event);
+        } catch (ReflectiveOperationException e) {
+            return ProfilingEvent.DISABLED;
+        }
+    }
+
+    /**
+     * Bindings to the flight recorder API of the running JVM, if it has one.
+     */
+    static final class Jfr {
+
+        static final boolean AVAILABLE;
+
+        private static Method createFactory;
+        private static Constructor<?> annotationElement;
+        private static Constructor<?> valueDescriptor;
+        private static Class<? extends Annotation> nameAnnotation;
+        private static Class<? extends Annotation> labelAnnotation;
+        private static Class<? extends Annotation> descriptionAnnotation;
+        private static Class<? extends Annotation> categoryAnnotation;
+        private static Class<? extends Annotation> stackTraceAnnotation;
+        private static Class<? extends Annotation> enabledAnnotation;
+        private static Method getEventType;
+        private static Method isEnabled;
+        private static Method newEvent;
+        private static Method begin;
+        static Method set;
+        static Method commit;
+
+        static {
+            boolean available;
+            try {
+                Class<?> factory = Class.forName("jdk.jfr.EventFactory");
+                Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+                Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> event = Class.forName("jdk.jfr.Event");
+                createFactory = factory.getMethod("create", List.class, List.class);
+                annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+                valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class);
+                nameAnnotation = annotation("jdk.jfr.Name");
+                labelAnnotation = annotation("jdk.jfr.Label");
+                descriptionAnnotation = annotation("jdk.jfr.Description");
+                categoryAnnotation = annotation("jdk.jfr.Category");
+                stackTraceAnnotation = annotation("jdk.jfr.StackTrace");
+                enabledAnnotation = annotation("jdk.jfr.Enabled");
+                getEventType = factory.getMethod("getEventType");
+                isEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+                newEvent = factory.getMethod("newEvent");
+                begin = event.getMethod("begin");
+                set = event.getMethod("set", int.class, Object.class);
+                commit = event.getMethod("commit");
+                available = true;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                available = false;
+            }
+            AVAILABLE = available;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<? extends Annotation> annotation(String className) throws ClassNotFoundException {
+            return (Class<? extends Annotation>) Class.forName(className);
+        }
+
+        private static Object createFactory(String name, String label, String description, String[] fieldNames,
+                                            Class<?>[] fieldTypes, boolean enabledByDefault)
+                throws ReflectiveOperationException {
+            List<Object> annotations = new ArrayList<>();
+            annotations.add(annotationElement.newInstance(nameAnnotation, name));
+            annotations.add(annotationElement.newInstance(labelAnnotation, label));
+            annotations.add(annotationElement.newInstance(descriptionAnnotation, description));
+            annotations.add(annotationElement.newInstance(categoryAnnotation, new String[]{"MITO"}));
+            annotations.add(annotationElement.newInstance(stackTraceAnnotation, Boolean.FALSE));
+            if (!enabledByDefault) {
+                annotations.add(annotationElement.newInstance(enabledAnnotation, Boolean.FALSE));
+            }
+            List<Object> fields = new ArrayList<>();
+            for (int i = 0; i < fieldNames.length; i++) {
+                fields.add(valueDescriptor.newInstance(fieldTypes[i], fieldNames[i]));
+            }
+            return createFactory.invoke(null, annotations, fields);
+        }
+    }
+}
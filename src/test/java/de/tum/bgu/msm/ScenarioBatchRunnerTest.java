@@ -0,0 +1,115 @@
+package de.tum.bgu.msm;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.modules.personTripAssignment.SimpleTripAssignmentFactory;
+import de.tum.bgu.msm.modules.personTripAssignment.TripAssignmentFactory;
+import de.tum.bgu.msm.resources.Resources;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Map;
+import java.util.PropertyResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ScenarioBatchRunnerTest {
+
+    @Test
+    public void testConcurrentVariantsDoNotInterfere() throws IOException {
+        DataSet baseDataSet = new DataSet();
+        for (int zoneId = 1; zoneId <= 4; zoneId++) {
+            Zone zone = new Zone(zoneId, 1);
+            baseDataSet.addZone(zone);
+            baseDataSet.setZoneAttribute("parking", zone, zoneId);
+            baseDataSet.addHousehold(new MitoHousehold(zoneId, 1000, 1, zone));
+        }
+        baseDataSet.removeZone(2);
+
+        ScenarioBatchRunner runner = new ScenarioBatchRunner(
+                new PropertyResourceBundle(new StringReader("random.seed = 1\ntest.value = 0")), "./");
+        runner.addScenario("a", Collections.singletonMap("test.value", "1"));
+        runner.addScenario("b", Collections.singletonMap("test.value", "2"));
+
+        TripAssignmentFactory baseFactory = Resources.INSTANCE.getTripAssignmentFactory();
+        Map<String, TripAssignmentFactory> factories = new ConcurrentHashMap<>();
+        Map<String, DataSet> results = new ConcurrentHashMap<>();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        runner.runVariants(baseDataSet, 2, dataSet -> {
+            int value = Resources.INSTANCE.getInt("test.value");
+            TripAssignmentFactory factory = new SimpleTripAssignmentFactory();
+            await(barrier);
+            Resources.INSTANCE.setTripAssignmentFactory(factory);
+            for (Zone zone : dataSet.getZones().values()) {
+                zone.setAutoAccessibilityRetail(value);
+                dataSet.setZoneAttribute("parking", zone, value);
+            }
+            if (value == 2) {
+                dataSet.removeZone(3);
+            }
+            await(barrier);
+            assertEquals(value, Resources.INSTANCE.getInt("test.value"));
+            factories.put(value == 1 ? "a" : "b", Resources.INSTANCE.getTripAssignmentFactory());
+            assertSame(factory, Resources.INSTANCE.getTripAssignmentFactory());
+        }, results::put);
+
+        assertEquals(2, results.size());
+        assertNotSame(factories.get("a"), factories.get("b"));
+        assertSame(baseFactory, Resources.INSTANCE.getTripAssignmentFactory());
+
+        for (Map.Entry<String, DataSet> result : results.entrySet()) {
+            DataSet dataSet = result.getValue();
+            float value = result.getKey().equals("a") ? 1 : 2;
+            assertEquals(value == 1 ? 3 : 2, dataSet.getNumberOfZones());
+            for (Zone zone : dataSet.getZones().values()) {
+                Zone baseZone = baseDataSet.getZones().get(zone.getZoneId());
+                assertNotSame(baseZone, zone);
+                assertEquals(baseZone.getIndex(), zone.getIndex());
+                assertEquals(value, zone.getAutoAccessibilityRetail(), 0);
+                assertEquals(value, dataSet.getZoneAttribute("parking", zone), 0);
+            }
+            for (MitoHousehold household : dataSet.getHouseholds().values()) {
+                Zone homeZone = household.getHomeZone();
+                if (homeZone != null && homeZone.getIndex() >= 0) {
+                    assertSame(dataSet.getZones().get(homeZone.getZoneId()), homeZone);
+                }
+            }
+        }
+
+        assertEquals(3, baseDataSet.getNumberOfZones());
+        for (Zone zone : baseDataSet.getZones().values()) {
+            assertEquals(0, zone.getAutoAccessibilityRetail(), 0);
+            assertEquals(zone.getZoneId(), baseDataSet.getZoneAttribute("parking", zone), 0);
+        }
+        assertEquals(2, baseDataSet.getZones().get(3).getIndex());
+    }
+
+    @Test
+    public void testZoneCannotBeSharedBetweenDataSets() {
+        Zone zone = new Zone(1, 1);
+        new DataSet().addZone(zone);
+        try {
+            new DataSet().addZone(zone);
+            fail("A zone of one data set must not be added to another one.");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(0, zone.getIndex());
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package de.tum.bgu.msm.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DataSetTest {
+
+    @Test
+    public void testHouseholdsToUpdate() {
+        DataSet dataSet = new DataSet();
+        Zone zone = new Zone(1);
+        dataSet.addZone(zone);
+        dataSet.addHousehold(new MitoHousehold(1, 0, 0, zone));
+        dataSet.addHousehold(new MitoHousehold(2, 0, 0, zone));
+        assertEquals(2, dataSet.getHouseholdsToUpdate(false).size());
+        assertFalse(dataSet.isIncrementalRun(false));
+
+        dataSet.completeRun();
+        dataSet.addHousehold(new MitoHousehold(3, 0, 0, zone));
+        dataSet.removeHousehold(1);
+        assertTrue(dataSet.isIncrementalRun(true));
+        assertEquals(1, dataSet.getHouseholdsToUpdate(false).size());
+        assertEquals(3, dataSet.getHouseholdsToUpdate(false).iterator().next().getHhId());
+
+        dataSet.markZonesChanged();
+        assertEquals(1, dataSet.getHouseholdsToUpdate(false).size());
+        assertEquals(2, dataSet.getHouseholdsToUpdate(true).size());
+    }
+
+    @Test
+    public void testZoneIndicesAreStable() {
+        DataSet dataSet = new DataSet();
+        for (int zoneId = 1; zoneId <= 3; zoneId++) {
+            dataSet.addZone(new Zone(zoneId));
+        }
+        Zone third = dataSet.getZones().get(3);
+        assertEquals(2, third.getIndex());
+
+        dataSet.removeZone(2);
+        assertEquals(2, third.getIndex());
+        assertEquals(2, dataSet.getNumberOfZones());
+        assertEquals(3, dataSet.getZoneIndexBound());
+        assertNull(dataSet.getZoneByIndex(1));
+        assertEquals(-1, dataSet.getZoneIndex(2));
+
+        // removed indices are not reused
+        Zone added = new Zone(4);
+        dataSet.addZone(added);
+        assertEquals(3, added.getIndex());
+        assertEquals(4, dataSet.getZoneIndexBound());
+        assertSame(third, dataSet.getZoneByIndex(2));
+    }
+}
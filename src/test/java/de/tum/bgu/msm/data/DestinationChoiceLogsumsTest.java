@@ -0,0 +1,38 @@
+package de.tum.bgu.msm.data;
+
+import de.tum.bgu.msm.resources.Purpose;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DestinationChoiceLogsumsTest {
+
+    @Test
+    public void testStoredLogsumIsMeanOverTrips() {
+        DataSet dataSet = new DataSet();
+        Zone zone = new Zone(1);
+        dataSet.addZone(zone);
+        DestinationChoiceLogsums logsums = new DestinationChoiceLogsums(dataSet.getNumberOfZones());
+        logsums.add(Purpose.HBS, zone, 1, 1);
+        logsums.add(Purpose.HBS, zone, 4, 3);
+        assertEquals(3.25, logsums.getLogsum(Purpose.HBS, zone), 1e-9);
+        assertEquals(4, logsums.getNumberOfTrips(Purpose.HBS, zone));
+    }
+
+    @Test
+    public void testMissingLogsumsAreNaN() {
+        DataSet dataSet = new DataSet();
+        Zone zone = new Zone(1);
+        dataSet.addZone(zone);
+        DestinationChoiceLogsums logsums = new DestinationChoiceLogsums(dataSet.getNumberOfZones());
+        // choices without available destination are not recorded
+        logsums.add(Purpose.HBO, zone, Double.NEGATIVE_INFINITY, 1);
+        assertTrue(Double.isNaN(logsums.getLogsum(Purpose.HBO, zone)));
+        assertEquals(0, logsums.getNumberOfTrips(Purpose.HBO, zone));
+        // zones that were not part of the data set when the logsums were created
+        Zone added = new Zone(2);
+        dataSet.addZone(added);
+        assertTrue(Double.isNaN(logsums.getLogsum(Purpose.HBO, added)));
+    }
+}
@@ -0,0 +1,70 @@
+package de.tum.bgu.msm.data.travelTimes;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.Zone;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyTravelTimesTest {
+
+    @Test
+    public void testLoadsOnFirstLookupOnly() {
+        AtomicInteger loads = new AtomicInteger();
+        LazyTravelTimes travelTimes = new LazyTravelTimes("walk", () -> {
+            loads.incrementAndGet();
+            return (origin, destination) -> origin.getZoneId() + destination.getZoneId();
+        });
+        assertFalse(travelTimes.isLoaded());
+        assertEquals(0, loads.get());
+
+        assertEquals(3, travelTimes.getTravelTimeFromTo(new Zone(1), new Zone(2)), 0);
+        assertEquals(7, travelTimes.getTravelTimeFromTo(new Zone(3), new Zone(4)), 0);
+        assertTrue(travelTimes.isLoaded());
+        assertEquals(1, loads.get());
+        assertEquals(1, travelTimes.getLoadCount());
+    }
+
+    @Test
+    public void testHeldTravelTimesAreNotLoadedAgain() {
+        AtomicInteger loads = new AtomicInteger();
+        LazyTravelTimes travelTimes = new LazyTravelTimes("walk", () -> {
+            loads.incrementAndGet();
+            return (origin, destination) -> 5;
+        });
+        travelTimes.hold();
+        assertEquals(5, travelTimes.getTravelTimeFromTo(new Zone(1), new Zone(2)), 0);
+        travelTimes.evict();
+        assertEquals(5, travelTimes.getTravelTimeFromTo(new Zone(1), new Zone(2)), 0);
+        assertEquals(1, loads.get());
+
+        travelTimes.release();
+        travelTimes.evict();
+        assertEquals(5, travelTimes.getTravelTimeFromTo(new Zone(1), new Zone(2)), 0);
+        assertEquals(2, loads.get());
+        assertEquals(2, travelTimes.getLoadCount());
+    }
+
+    @Test
+    public void testDataSetReleasesReplacedTravelTimes() {
+        DataSet dataSet = new DataSet();
+        AtomicInteger loads = new AtomicInteger();
+        dataSet.addTravelTimeProviderForMode("walk", () -> {
+            loads.incrementAndGet();
+            return (origin, destination) -> 5;
+        });
+        LazyTravelTimes held = (LazyTravelTimes) dataSet.getTravelTimes("walk");
+        dataSet.holdTravelTimes();
+        dataSet.addTravelTimeProviderForMode("walk", () -> (origin, destination) -> 6);
+        dataSet.releaseTravelTimes();
+
+        held.getTravelTimeFromTo(new Zone(1), new Zone(2));
+        held.evict();
+        held.getTravelTimeFromTo(new Zone(1), new Zone(2));
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,74 @@
+package de.tum.bgu.msm.data.travelTimes;
+
+import com.pb.common.matrix.Matrix;
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.Zone;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QuantizedTravelTimesTest {
+
+    private DataSet dataSet;
+    private Matrix matrix;
+
+    @Before
+    public void setup() {
+        dataSet = new DataSet();
+        for (int i = 1; i <= 4; i++) {
+            dataSet.addZone(new Zone(i * 10));
+        }
+        matrix = new Matrix("test", "test", new float[4][4]) {
+            @Override
+            public float getValueAt(int origin, int destination) {
+                return origin + destination / 100.f + (origin > destination ? 1 : 0);
+            }
+        };
+    }
+
+    @Test
+    public void testFullLayout() {
+        QuantizedTravelTimes travelTimes = new QuantizedTravelTimes("test", matrix, dataSet, 0.1, false);
+        for (Zone origin : dataSet.getZones().values()) {
+            for (Zone destination : dataSet.getZones().values()) {
+                double expected = matrix.getValueAt(origin.getZoneId(), destination.getZoneId());
+                assertEquals(expected, travelTimes.getTravelTimeFromTo(origin, destination), 0.05 + 1e-6);
+            }
+        }
+        assertTrue(travelTimes.getMaxError() <= 0.1 / 2 + 1e-6);
+    }
+
+    @Test
+    public void testLayoutAfterZoneRemoval() {
+        dataSet.removeZone(20);
+        QuantizedTravelTimes travelTimes = new QuantizedTravelTimes("test", matrix, dataSet, 0.1, false);
+        for (Zone origin : dataSet.getZones().values()) {
+            for (Zone destination : dataSet.getZones().values()) {
+                double expected = matrix.getValueAt(origin.getZoneId(), destination.getZoneId());
+                assertEquals(expected, travelTimes.getTravelTimeFromTo(origin, destination), 0.05 + 1e-6);
+            }
+        }
+        try {
+            travelTimes.getTravelTimeFromTo(dataSet.getZones().get(10), new Zone(20));
+            fail("A zone outside the data set has no travel times.");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testSymmetricLayout() {
+        QuantizedTravelTimes travelTimes = new QuantizedTravelTimes("test", matrix, dataSet, 0.1, true);
+        for (Zone origin : dataSet.getZones().values()) {
+            for (Zone destination : dataSet.getZones().values()) {
+                double mean = (matrix.getValueAt(origin.getZoneId(), destination.getZoneId())
+                        + matrix.getValueAt(destination.getZoneId(), origin.getZoneId())) / 2;
+                assertEquals(mean, travelTimes.getTravelTimeFromTo(origin, destination), 0.05 + 1e-6);
+                assertEquals(travelTimes.getTravelTimeFromTo(origin, destination),
+                        travelTimes.getTravelTimeFromTo(destination, origin), 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package de.tum.bgu.msm.data.travelTimes;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.Zone;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SparseChoiceSetTest {
+
+    private List<Zone> zones;
+    private TravelTimes travelTimes;
+
+    @Before
+    public void setup() {
+        DataSet dataSet = new DataSet();
+        for (int i = 1; i <= 5; i++) {
+            dataSet.addZone(new Zone(i));
+        }
+        zones = new ArrayList<>(dataSet.getZones().values());
+        travelTimes = (origin, destination) -> 10 * Math.abs(origin.getZoneId() - destination.getZoneId()) + 5;
+    }
+
+    @Test
+    public void testCutoff() {
+        SparseChoiceSet choiceSet = SparseChoiceSet.build(zones, travelTimes, 15);
+        List<Zone> candidates = choiceSet.getCandidates(zones.get(0));
+        assertEquals(2, candidates.size());
+        assertEquals(1, candidates.get(0).getZoneId());
+        assertEquals(2, candidates.get(1).getZoneId());
+
+        candidates = choiceSet.getCandidates(zones.get(2));
+        assertEquals(3, candidates.size());
+        for (Zone zone : candidates) {
+            assertTrue(travelTimes.getTravelTimeFromTo(zones.get(2), zone) <= 15);
+        }
+    }
+
+    @Test
+    public void testDisabledCutoff() {
+        SparseChoiceSet choiceSet = SparseChoiceSet.build(zones, travelTimes, -1);
+        for (Zone zone : zones) {
+            assertEquals(zones.size(), choiceSet.getNumberOfCandidates(zone));
+        }
+    }
+
+    @Test
+    public void testOriginWithoutCandidatesKeepsAllZones() {
+        SparseChoiceSet choiceSet = SparseChoiceSet.build(zones, travelTimes, 1);
+        assertEquals(zones.size(), choiceSet.getNumberOfCandidates(zones.get(3)));
+    }
+
+    @Test
+    public void testChoiceSetAfterZoneRemoval() {
+        DataSet dataSet = new DataSet();
+        for (int i = 1; i <= 5; i++) {
+            dataSet.addZone(new Zone(i));
+        }
+        dataSet.removeZone(2);
+        List<Zone> remaining = new ArrayList<>(dataSet.getZones().values());
+        SparseChoiceSet choiceSet = SparseChoiceSet.build(remaining, travelTimes, 15);
+        List<Zone> candidates = choiceSet.getCandidates(dataSet.getZones().get(3));
+        assertEquals(2, candidates.size());
+        assertEquals(3, candidates.get(0).getZoneId());
+        assertEquals(4, candidates.get(1).getZoneId());
+    }
+}
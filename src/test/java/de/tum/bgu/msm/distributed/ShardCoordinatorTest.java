@@ -0,0 +1,171 @@
+package de.tum.bgu.msm.distributed;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.HouseholdShard;
+import de.tum.bgu.msm.data.MitoTrip;
+import de.tum.bgu.msm.data.TripAggregate;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.resources.Purpose;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShardCoordinatorTest {
+
+    @Test
+    public void testShardsBalanceHouseholds() {
+        DataSet dataSet = new DataSet();
+        int[] households = {10, 10, 10, 10, 40, 10, 10};
+        for (int i = 0; i < households.length; i++) {
+            Zone zone = new Zone(i + 1, 1);
+            zone.setNumberOfHouseholds(households[i]);
+            dataSet.addZone(zone);
+        }
+        List<HouseholdShard> shards = ShardCoordinator.planShards(dataSet, 3);
+        assertEquals(3, shards.size());
+        assertEquals(1, shards.get(0).getFromZoneId());
+        assertEquals(4, shards.get(0).getToZoneId());
+        assertEquals(5, shards.get(1).getFromZoneId());
+        assertEquals(5, shards.get(1).getToZoneId());
+        assertEquals(6, shards.get(2).getFromZoneId());
+        assertEquals(7, shards.get(2).getToZoneId());
+
+        assertEquals(7, ShardCoordinator.planShards(dataSet, 20).size());
+    }
+
+    @Test
+    public void testAggregateWithoutRelations() {
+        DataSet dataSet = new DataSet();
+        MitoTrip trip = new MitoTrip(1, Purpose.HBW);
+        trip.setTripOrigin(new Zone(1, 1));
+        trip.setTripDestination(new Zone(2, 1));
+        dataSet.addTrip(trip);
+        TripAggregate aggregate = TripAggregate.of(dataSet, false);
+        assertEquals(1, aggregate.getProductions(1, Purpose.HBW));
+        assertTrue(aggregate.getTripsByRelation().isEmpty());
+        assertEquals(1, TripAggregate.of(dataSet).getTrips(1, 2, Purpose.HBW));
+    }
+
+    @Test
+    public void testWorkersOnLoopbackAreMerged() throws InterruptedException {
+        List<HouseholdShard> shards = Arrays.asList(new HouseholdShard(0, 1, 1), new HouseholdShard(1, 2, 2),
+                new HouseholdShard(2, 3, 3));
+        try (ShardCoordinator coordinator = new ShardCoordinator(0, 30)) {
+            List<Thread> workers = startWorkers(coordinator.getPort(), shards.size(), shard -> {
+                // every shard produces one HBW trip from its zone to zone 1
+                DataSet dataSet = new DataSet();
+                Zone origin = new Zone(shard.getFromZoneId(), 1);
+                MitoTrip trip = new MitoTrip(1, Purpose.HBW);
+                trip.setTripOrigin(origin);
+                trip.setTripDestination(shard.getFromZoneId() == 1 ? origin : new Zone(1, 1));
+                dataSet.addTrip(trip);
+                return TripAggregate.of(dataSet);
+            });
+            TripAggregate result = coordinator.run(shards);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals(3, result.getNumberOfTrips());
+            assertEquals(0, result.getNumberOfUndistributedTrips());
+            for (int zoneId = 1; zoneId <= 3; zoneId++) {
+                assertEquals(1, result.getProductions(zoneId, Purpose.HBW));
+                assertEquals(1, result.getTrips(zoneId, 1, Purpose.HBW));
+                assertEquals(0, result.getProductions(zoneId, Purpose.HBO));
+            }
+        }
+    }
+
+    @Test
+    public void testFailingWorkerFailsRun() throws InterruptedException {
+        List<HouseholdShard> shards = Arrays.asList(new HouseholdShard(0, 1, 1), new HouseholdShard(1, 2, 2));
+        try (ShardCoordinator coordinator = new ShardCoordinator(0, 30)) {
+            List<Thread> workers = startWorkers(coordinator.getPort(), 1, shard -> {
+                throw new IllegalStateException("broken");
+            });
+            try {
+                coordinator.run(shards);
+                fail("Expected the failure of the worker to be rethrown.");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("shard"));
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+    }
+
+    @Test
+    public void testListensOnLoopbackByDefault() {
+        try (ShardCoordinator coordinator = new ShardCoordinator(0, 30)) {
+            assertTrue(coordinator.getWorkerAddress().isLoopbackAddress());
+        }
+    }
+
+    @Test
+    public void testMessagesAreRead() throws Exception {
+        DataSet dataSet = new DataSet();
+        MitoTrip trip = new MitoTrip(1, Purpose.HBS);
+        trip.setTripOrigin(new Zone(4, 1));
+        trip.setTripDestination(new Zone(5, 1));
+        dataSet.addTrip(trip);
+        TripAggregate aggregate = (TripAggregate) readMessage(TripAggregate.of(dataSet));
+        assertEquals(1, aggregate.getTrips(4, 5, Purpose.HBS));
+
+        HouseholdShard shard = (HouseholdShard) readMessage(new HouseholdShard(2, 10, 20));
+        assertEquals(20, shard.getToZoneId());
+
+        IllegalStateException failure = new IllegalStateException("broken", new IOException("cause"));
+        failure.addSuppressed(new RuntimeException("suppressed"));
+        Throwable answer = (Throwable) readMessage(failure);
+        assertEquals("broken", answer.getMessage());
+        assertEquals("cause", answer.getCause().getMessage());
+        assertEquals(1, answer.getSuppressed().length);
+    }
+
+    @Test
+    public void testOtherClassesAreRejected() throws Exception {
+        for (Object message : new Object[]{new Date(), Collections.singletonList(new HouseholdShard(0, 1, 1)), new Object[0]}) {
+            try {
+                readMessage(message);
+                fail("Expected " + message.getClass() + " to be rejected.");
+            } catch (InvalidClassException expected) {
+                // not allowed in messages
+            }
+        }
+    }
+
+    private static Object readMessage(Object message) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        try (ObjectInputStream in = new ShardObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+
+    private static List<Thread> startWorkers(int port, int numberOfWorkers, ShardWorker.ShardRunner runner) {
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < numberOfWorkers; i++) {
+            Thread worker = new Thread(() -> ShardWorker.work(InetAddress.getLoopbackAddress().getHostAddress(), port, runner));
+            worker.start();
+            workers.add(worker);
+        }
+        return workers;
+    }
+}
@@ -0,0 +1,52 @@
+package de.tum.bgu.msm.io.input;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.MitoPerson;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.data.travelTimes.TravelTimes;
+import de.tum.bgu.msm.resources.Gender;
+import de.tum.bgu.msm.resources.Occupation;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class InputManagerTest {
+
+    @Test
+    public void testZonesCanBeFedIntoSeveralDataSets() {
+        Map<Integer, Zone> zones = new LinkedHashMap<>();
+        for (int zoneId = 1; zoneId <= 3; zoneId++) {
+            zones.put(zoneId, new Zone(zoneId, 1));
+        }
+
+        DataSet first = new DataSet();
+        new InputManager(first).readFromFeed(createFeed(zones, 1));
+        assertSame(zones.get(3), first.getZones().get(3));
+        assertSame(zones.get(3), first.getHouseholds().get(1).getHomeZone());
+
+        // e.g. the next year of a land use model that keeps its zones
+        DataSet second = new DataSet();
+        new InputManager(second).readFromFeed(createFeed(zones, 2));
+        Zone homeZone = second.getZones().get(3);
+        assertNotSame(zones.get(3), homeZone);
+        assertEquals(zones.get(3).getIndex(), homeZone.getIndex());
+        assertSame(homeZone, second.getHouseholds().get(2).getHomeZone());
+        assertSame(second.getZones().get(2), second.getPersons().get(2).getWorkzone());
+        assertSame(zones.get(3), first.getZones().get(3));
+    }
+
+    private static InputFeed createFeed(Map<Integer, Zone> zones, int id) {
+        MitoHousehold household = new MitoHousehold(id, 1, 1, zones.get(3));
+        MitoPerson person = new MitoPerson(id, Occupation.WORKER, 1, 30, Gender.MALE, true);
+        person.setWorkzone(zones.get(2));
+        household.addPerson(person);
+        return new InputFeed(zones, Collections.<String, TravelTimes>emptyMap(), Collections.singletonMap(id, household));
+    }
+}
@@ -0,0 +1,72 @@
+package de.tum.bgu.msm.io.input.readers;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Resources;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.util.PropertyResourceBundle;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZonalAttributesReaderTest {
+
+    @Test
+    public void testAttributesAreStoredAsColumnsByZoneIndex() throws IOException {
+        DataSet dataSet = new DataSet();
+        for (int zoneId = 1; zoneId <= 4; zoneId++) {
+            dataSet.addZone(new Zone(zoneId, 1));
+        }
+        dataSet.removeZone(2);
+
+        File file = File.createTempFile("zonalAttributes", ".csv");
+        file.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println("Zone,parking,density");
+            writer.println("4,2.5,40");
+            writer.println("1,1.5,10");
+            writer.println("2,9,90");
+            writer.println("7,9,90");
+        }
+        Resources.INSTANCE.setResources(new PropertyResourceBundle(new StringReader(
+                Properties.ZONAL_ATTRIBUTE_FILES + " = " + file.getPath().replace("\\", "/"))));
+
+        new ZonalAttributesReader(dataSet).read();
+
+        assertEquals(2, dataSet.getZoneAttributeNames().size());
+        assertTrue(dataSet.getZoneAttributeNames().contains("parking"));
+        Zone zone1 = dataSet.getZones().get(1);
+        Zone zone3 = dataSet.getZones().get(3);
+        Zone zone4 = dataSet.getZones().get(4);
+        assertEquals(1.5f, dataSet.getZoneAttribute("parking", zone1), 0);
+        assertEquals(40f, dataSet.getZoneAttribute("density", zone4), 0);
+        assertTrue(Float.isNaN(dataSet.getZoneAttribute("parking", zone3)));
+        assertTrue(Float.isNaN(dataSet.getZoneAttribute("unknown", zone1)));
+
+        // the removed zone 2 keeps its slot, so zone 4 stays at index 3
+        assertArrayEquals(new float[]{1.5f, Float.NaN, Float.NaN, 2.5f},
+                dataSet.getZoneAttributeColumn("parking"), 0);
+    }
+
+    @Test
+    public void testZonesAddedLaterHaveNoValue() {
+        DataSet dataSet = new DataSet();
+        Zone zone1 = new Zone(1, 1);
+        dataSet.addZone(zone1);
+        dataSet.setZoneAttribute("parking", zone1, 3);
+        Zone zone2 = new Zone(2, 1);
+        dataSet.addZone(zone2);
+
+        assertTrue(Float.isNaN(dataSet.getZoneAttribute("parking", zone2)));
+        dataSet.setZoneAttribute("parking", zone2, 4);
+        assertEquals(3f, dataSet.getZoneAttribute("parking", zone1), 0);
+        assertEquals(4f, dataSet.getZoneAttribute("parking", zone2), 0);
+    }
+}
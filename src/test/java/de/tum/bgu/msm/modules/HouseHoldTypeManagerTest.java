@@ -1,6 +1,5 @@
 package de.tum.bgu.msm.modules;
 
-import de.tum.bgu.msm.data.DataSet;
 import de.tum.bgu.msm.data.MitoHousehold;
 import de.tum.bgu.msm.data.MitoPerson;
 import de.tum.bgu.msm.data.Zone;
@@ -36,8 +35,7 @@ public class HouseHoldTypeManagerTest {
     @Test
     public final void test() {
 
-        DataSet dataSet = new DataSet();
-        HouseholdTypeManager manager = new HouseholdTypeManager(dataSet, Purpose.HBW);
+        HouseholdTypeManager manager = new HouseholdTypeManager(Purpose.HBW);
         List<HouseholdType> types = manager.createHouseHoldTypeDefinitions();
         Assert.assertEquals(24, types.size());
         for(HouseholdType type: types) {
@@ -0,0 +1,73 @@
+package de.tum.bgu.msm.modules.tripDistribution;
+
+import de.tum.bgu.msm.data.Zone;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DestinationSamplerTest {
+
+    @Test
+    public void testBatchDrawsEqualSingleDraws() {
+        DestinationSampler sampler = createSampler();
+        Random random = new Random(42);
+        double[] randomNumbers = new double[1000];
+        for (int i = 0; i < randomNumbers.length; i++) {
+            randomNumbers[i] = random.nextDouble();
+        }
+        // equal random numbers have to select equal zones as well
+        randomNumbers[10] = randomNumbers[20];
+        randomNumbers[30] = 0;
+        Zone[] zones = sampler.sample(randomNumbers);
+        for (int i = 0; i < randomNumbers.length; i++) {
+            assertSame(sampler.sample(randomNumbers[i]), zones[i]);
+        }
+    }
+
+    @Test
+    public void testBatchDrawsMatchProbabilities() {
+        DestinationSampler sampler = createSampler();
+        Random random = new Random(42);
+        double[] randomNumbers = new double[160000];
+        for (int i = 0; i < randomNumbers.length; i++) {
+            randomNumbers[i] = random.nextDouble();
+        }
+        Map<Integer, Integer> batchCounts = new HashMap<>();
+        for (Zone zone : sampler.sample(randomNumbers)) {
+            batchCounts.merge(zone.getZoneId(), 1, Integer::sum);
+        }
+        Map<Integer, Integer> singleCounts = new HashMap<>();
+        for (int i = 0; i < randomNumbers.length; i++) {
+            singleCounts.merge(sampler.sample(random).getZoneId(), 1, Integer::sum);
+        }
+        // weights 1, 2, 0, 5 and 8
+        double[] expected = {1. / 16, 2. / 16, 0, 5. / 16, 8. / 16};
+        for (int zoneId = 1; zoneId <= expected.length; zoneId++) {
+            assertEquals(expected[zoneId - 1], batchCounts.getOrDefault(zoneId, 0) / (double) randomNumbers.length, 0.005);
+            assertEquals(expected[zoneId - 1], singleCounts.getOrDefault(zoneId, 0) / (double) randomNumbers.length, 0.005);
+        }
+    }
+
+    @Test
+    public void testArraysAreCopied() {
+        Zone[] zones = {new Zone(1), new Zone(2)};
+        double[] cumulative = {1, 2};
+        DestinationSampler sampler = new DestinationSampler(zones, cumulative, 2, 0);
+        zones[0] = new Zone(3);
+        cumulative[0] = 0;
+        assertEquals(1, sampler.sample(0.25).getZoneId());
+    }
+
+    private static DestinationSampler createSampler() {
+        Zone[] zones = new Zone[5];
+        for (int i = 0; i < zones.length; i++) {
+            zones[i] = new Zone(i + 1);
+        }
+        return new DestinationSampler(zones, new double[]{1, 3, 3, 8, 16}, zones.length, 0);
+    }
+}
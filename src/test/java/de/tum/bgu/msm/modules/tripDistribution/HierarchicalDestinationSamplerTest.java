@@ -0,0 +1,103 @@
+package de.tum.bgu.msm.modules.tripDistribution;
+
+import de.tum.bgu.msm.data.Zone;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HierarchicalDestinationSamplerTest {
+
+    @Test
+    public void testExactRegionUtilitiesMatchFlatProbabilities() {
+        // zones 1 to 6 with weight i in regions 0 and 1, so the exact region utility is the log of the summed weights
+        Zone[][] zonesByRegion = new Zone[2][3];
+        for (int i = 1; i <= 6; i++) {
+            Zone zone = new Zone(i);
+            zone.setRegion(i % 2);
+            zonesByRegion[i % 2][(i - 1) / 2] = zone;
+        }
+        double[] regionUtilities = {Math.log(2 + 4 + 6), Math.log(1 + 3 + 5)};
+        HierarchicalDestinationSampler sampler = new HierarchicalDestinationSampler(new int[]{0, 1}, zonesByRegion,
+                regionUtilities, HierarchicalDestinationSamplerTest::logOfZoneId, false);
+        assertEquals(2, sampler.getNumberOfRegions());
+        assertEquals(12. / 21., sampler.getRegionProbability(0), 1e-9);
+        assertEquals(9. / 21., sampler.getRegionProbability(1), 1e-9);
+        assertEquals(Math.log(21), sampler.getLogsum(), 1e-9);
+
+        Random random = new Random(42);
+        Map<Integer, Integer> counts = new HashMap<>();
+        int draws = 210000;
+        for (int i = 0; i < draws; i++) {
+            counts.merge(sampler.sample(random).getZoneId(), 1, Integer::sum);
+        }
+        for (int zoneId = 1; zoneId <= 6; zoneId++) {
+            assertEquals(zoneId / 21., counts.get(zoneId) / (double) draws, 0.005);
+        }
+    }
+
+    @Test
+    public void testOnlyDrawnRegionsAreEvaluated() {
+        Zone[][] zonesByRegion = {{new Zone(1), new Zone(2)}, {new Zone(3), new Zone(4)}};
+        List<Zone> evaluated = new ArrayList<>();
+        HierarchicalDestinationSampler sampler = new HierarchicalDestinationSampler(new int[]{1, 2}, zonesByRegion,
+                new double[]{0, Double.NEGATIVE_INFINITY}, (zones, utilities) -> {
+                    for (int i = 0; i < zones.length; i++) {
+                        evaluated.add(zones[i]);
+                        utilities[i] = 0;
+                    }
+                }, false);
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sampler.sample(random).getZoneId() <= 2);
+        }
+        // the zones of the drawn region are evaluated once, the zones of the other region never
+        assertEquals(2, evaluated.size());
+    }
+
+    @Test
+    public void testZeroWeightsAreNeverSampled() {
+        HierarchicalDestinationSampler sampler = new HierarchicalDestinationSampler(new int[]{1}, new Zone[][]{{new Zone(1)}},
+                new double[]{Double.NEGATIVE_INFINITY}, HierarchicalDestinationSamplerTest::logOfZoneId, false);
+        assertTrue(sampler.isEmpty());
+        assertNull(sampler.sample(new Random(42)));
+    }
+
+    @Test
+    public void testRegionWithoutPositiveZoneWeightsSamplesNull() {
+        // region 2 has a positive weight as a whole, but all of its zones have zero weight
+        Zone[][] zonesByRegion = {{new Zone(1)}, {new Zone(2), new Zone(3)}};
+        HierarchicalDestinationSampler sampler = new HierarchicalDestinationSampler(new int[]{1, 2}, zonesByRegion,
+                new double[]{0, 0}, (zones, utilities) -> {
+                    for (int i = 0; i < zones.length; i++) {
+                        utilities[i] = zones[i].getZoneId() == 1 ? 0 : Double.NEGATIVE_INFINITY;
+                    }
+                }, false);
+        assertFalse(sampler.isEmpty());
+        Random random = new Random(42);
+        int nulls = 0;
+        for (int i = 0; i < 100; i++) {
+            Zone zone = sampler.sample(random);
+            if (zone == null) {
+                nulls++;
+            } else {
+                assertEquals(1, zone.getZoneId());
+            }
+        }
+        assertTrue(nulls > 0 && nulls < 100);
+    }
+
+    private static void logOfZoneId(Zone[] zones, double[] utilities) {
+        for (int i = 0; i < zones.length; i++) {
+            utilities[i] = Math.log(zones[i].getZoneId());
+        }
+    }
+}
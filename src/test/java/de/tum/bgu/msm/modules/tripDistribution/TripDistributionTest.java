@@ -0,0 +1,202 @@
+package de.tum.bgu.msm.modules.tripDistribution;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.DestinationChoiceLogsums;
+import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.io.input.InputDelta;
+import de.tum.bgu.msm.io.input.InputManager;
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.util.js.UtilityTracer;
+import de.tum.bgu.msm.util.metrics.ModuleProgress;
+import de.tum.bgu.msm.util.metrics.ProgressMetrics;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TripDistributionTest {
+
+    @After
+    public void resetResources() {
+        Resources.INSTANCE.setResources(TripDistributionTestData.properties());
+    }
+
+    @Test
+    public void testOrderByZoneDoesNotChangeDestinations() {
+        Map<Long, String> unordered = distribute(100);
+        assertFalse(unordered.containsValue("-1--1"));
+        assertEquals(unordered, distribute(100, Properties.TRIP_DISTRIBUTION_ORDER_BY_ZONE, "true"));
+        assertEquals(distribute(100, Properties.TRIP_DISTRIBUTION_BATCH, "true"),
+                distribute(100, Properties.TRIP_DISTRIBUTION_BATCH, "true", Properties.TRIP_DISTRIBUTION_ORDER_BY_ZONE, "true"));
+    }
+
+    @Test
+    public void testBatchesDrawLikeSingleTrips() {
+        // without budget buckets, the trips of a batch have the probabilities of the single trips
+        assertEquals(distribute(100), distribute(100, Properties.TRIP_DISTRIBUTION_BATCH, "true",
+                Properties.TRIP_DISTRIBUTION_BUDGET_BUCKET, "0"));
+    }
+
+    @Test
+    public void testEveryTripRecordsOneLogsum() {
+        for (String batch : new String[]{"false", "true"}) {
+            DataSet dataSet = TripDistributionTestData.createDataSet(100);
+            distribute(dataSet, Properties.TRIP_DISTRIBUTION_BATCH, batch);
+            DestinationChoiceLogsums logsums = dataSet.getDestinationChoiceLogsums();
+            int trips = 0;
+            for (Zone zone : dataSet.getZones().values()) {
+                for (Purpose purpose : Purpose.values()) {
+                    trips += logsums.getNumberOfTrips(purpose, zone);
+                    if (logsums.getNumberOfTrips(purpose, zone) > 0) {
+                        assertFalse(Double.isNaN(logsums.getLogsum(purpose, zone)));
+                    }
+                }
+            }
+            // non-home-based trips without base zone draw a base zone first, which records no logsum
+            assertEquals(dataSet.getTrips().size(), trips);
+        }
+    }
+
+    @Test
+    public void testShardsDrawLikeSingleRun() {
+        Map<Long, String> shards = new HashMap<>();
+        // trip ids restart in every shard
+        shards.putAll(distribute(TripDistributionTestData.createDataSet(100, zoneId -> zoneId <= 8)));
+        shards.putAll(distribute(TripDistributionTestData.createDataSet(100, zoneId -> zoneId > 8)));
+        assertEquals(distribute(100), shards);
+    }
+
+    @Test
+    public void testHierarchicalSamplingIsValidatedAgainstFlatModel() throws IOException {
+        File validation = File.createTempFile("validation", ".csv");
+        validation.deleteOnExit();
+        Map<Long, String> destinations = distribute(400, Properties.TRIP_DISTRIBUTION_HIERARCHICAL, "true",
+                Properties.TRIP_DISTRIBUTION_HIERARCHICAL_VALIDATION, validation.getAbsolutePath());
+        assertFalse(destinations.values().stream().anyMatch(relation -> relation.startsWith("-1-") || relation.endsWith("--1")));
+        Map<String, double[]> tripsByPurpose = new HashMap<>();
+        List<String> lines = Files.readAllLines(validation.toPath());
+        for (String line : lines.subList(1, lines.size())) {
+            String[] values = line.split(",");
+            double[] trips = tripsByPurpose.computeIfAbsent(values[0], k -> new double[3]);
+            trips[0] += Double.parseDouble(values[3]);
+            trips[1] += Double.parseDouble(values[4]);
+            trips[2] += Math.abs(Double.parseDouble(values[5]));
+        }
+        for (Map.Entry<String, double[]> entry : tripsByPurpose.entrySet()) {
+            double[] trips = entry.getValue();
+            // every trip adds the flat probabilities of all regions, which sum up to one
+            assertEquals(entry.getKey(), trips[1], trips[0], 1e-6);
+            assertTrue(entry.getKey() + " deviates by " + trips[2] / (2 * trips[1]), trips[2] / (2 * trips[1]) < 0.1);
+        }
+    }
+
+    @Test
+    public void testIncrementalRunAfterDeltaMatchesFullRun() {
+        for (String maxTravelTime : new String[]{"-1", "15"}) {
+            for (boolean moveHousehold : new boolean[]{false, true}) {
+                String[] properties = {Properties.CHOICE_SET_MAX_TRAVEL_TIME, maxTravelTime};
+                DataSet incremental = TripDistributionTestData.createDataSet(40);
+                distribute(incremental, properties);
+                incremental.completeRun();
+                applyDelta(incremental, moveHousehold);
+                assertTrue(incremental.isIncrementalRun(true));
+                Map<Long, String> incrementalDestinations = distribute(incremental, properties);
+                long redistributedTrips = getDistributionProgress().getTotal();
+
+                DataSet full = TripDistributionTestData.createDataSet(40);
+                applyDelta(full, moveHousehold);
+                assertEquals(distribute(full, properties), incrementalDestinations);
+                if (!moveHousehold) {
+                    // only the trips of the changed and the added household
+                    assertEquals(14, redistributedTrips);
+                } else if (maxTravelTime.equals("-1")) {
+                    // the moved household changes the destination utilities of all trips
+                    assertEquals(full.getTrips().size(), redistributedTrips);
+                } else {
+                    // only trips that can reach the old or the new home zone of the moved household
+                    assertTrue(redistributedTrips > 14 && redistributedTrips < full.getTrips().size());
+                }
+
+                DestinationChoiceLogsums fullLogsums = full.getDestinationChoiceLogsums();
+                DestinationChoiceLogsums incrementalLogsums = incremental.getDestinationChoiceLogsums();
+                for (Zone zone : full.getZones().values()) {
+                    for (Purpose purpose : Purpose.values()) {
+                        assertEquals(fullLogsums.getNumberOfTrips(purpose, zone), incrementalLogsums.getNumberOfTrips(purpose, zone));
+                        assertEquals(fullLogsums.getLogsum(purpose, zone), incrementalLogsums.getLogsum(purpose, zone), 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    private static ModuleProgress getDistributionProgress() {
+        ModuleProgress result = null;
+        for (ModuleProgress progress : ProgressMetrics.getModules()) {
+            if (progress.getModule().equals("tripDistribution")) {
+                result = progress;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testBatchesTraceSelectedHouseholds() throws IOException {
+        File file = File.createTempFile("trace", ".log");
+        file.deleteOnExit();
+        DataSet dataSet = TripDistributionTestData.createDataSet(40);
+        Resources.INSTANCE.setResources(TripDistributionTestData.properties(Properties.TRACE_HOUSEHOLDS, "3",
+                Properties.TRACE_PURPOSES, "HBS", Properties.TRACE_FILE, file.getPath().replace("\\", "/")));
+        UtilityTracer tracer = UtilityTracer.fromProperties();
+        dataSet.setUtilityTracer(tracer);
+        distribute(dataSet, Properties.TRIP_DISTRIBUTION_BATCH, "true", Properties.TRACE_HOUSEHOLDS, "3",
+                Properties.TRACE_PURPOSES, "HBS");
+        tracer.close();
+
+        String homeZone = "base zone " + dataSet.getHouseholds().get(3).getHomeZone().getZoneId() + " ";
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(TripDistributionTestData.NUMBER_OF_ZONES, lines.stream().filter(line -> line.startsWith("Calculating Utility")).count());
+        assertTrue(lines.stream().filter(line -> line.startsWith("Calculating Utility")).allMatch(
+                line -> line.contains(homeZone) && line.endsWith("purpose HBS")));
+    }
+
+    /**
+     * Changes the travel time budgets of household 3, optionally moving it to another zone, and
+     * replaces household 8 by household 41 in the same home zone.
+     */
+    private static void applyDelta(DataSet dataSet, boolean moveHousehold) {
+        Zone homeZone = dataSet.getHouseholds().get(3).getHomeZone();
+        MitoHousehold changed = TripDistributionTestData.createHousehold(3,
+                moveHousehold ? dataSet.getZones().get(homeZone.getZoneId() % TripDistributionTestData.NUMBER_OF_ZONES + 1) : homeZone);
+        for (Purpose purpose : Purpose.values()) {
+            changed.setTravelTimeBudgetByPurpose(purpose, 40);
+        }
+        MitoHousehold added = TripDistributionTestData.createHousehold(41, dataSet.getHouseholds().get(8).getHomeZone());
+        new InputManager(dataSet).applyDelta(new InputDelta(Collections.singletonMap(41, added),
+                Collections.singletonMap(3, changed), Collections.singleton(8), null, null));
+        int tripId = TripDistributionTestData.addTrips(dataSet, changed, 10000);
+        TripDistributionTestData.addTrips(dataSet, added, tripId);
+    }
+
+    static Map<Long, String> distribute(int numberOfHouseholds, String... properties) {
+        return distribute(TripDistributionTestData.createDataSet(numberOfHouseholds), properties);
+    }
+
+    static Map<Long, String> distribute(DataSet dataSet, String... properties) {
+        Resources.INSTANCE.setResources(TripDistributionTestData.properties(properties));
+        new TripDistribution(dataSet).run();
+        return TripDistributionTestData.getOriginsAndDestinations(dataSet);
+    }
+}
@@ -0,0 +1,150 @@
+package de.tum.bgu.msm.modules.tripDistribution;
+
+import de.tum.bgu.msm.data.DataSet;
+import de.tum.bgu.msm.data.MitoHousehold;
+import de.tum.bgu.msm.data.MitoPerson;
+import de.tum.bgu.msm.data.MitoTrip;
+import de.tum.bgu.msm.data.Zone;
+import de.tum.bgu.msm.resources.Gender;
+import de.tum.bgu.msm.resources.Occupation;
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.util.RandomStreams;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.function.IntPredicate;
+
+/**
+ * Builds a small synthetic population with trips but without destinations, and the configuration
+ * to distribute it.
+ */
+final class TripDistributionTestData {
+
+    static final int NUMBER_OF_ZONES = 20;
+
+    private static final Purpose[] TRIPS = {Purpose.HBW, Purpose.HBS, Purpose.HBS, Purpose.HBO,
+            Purpose.NHBW, Purpose.NHBO, Purpose.NHBO};
+
+    private TripDistributionTestData() {
+    }
+
+    /**
+     * Returns the test configuration with the given properties (key, value, key, value, ...) set.
+     */
+    static ResourceBundle properties(String... keysAndValues) {
+        try {
+            Properties properties = new Properties();
+            try (FileInputStream in = new FileInputStream("./testInput/test.properties")) {
+                properties.load(in);
+            }
+            for (int i = 0; i < keysAndValues.length; i += 2) {
+                properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+            }
+            StringWriter writer = new StringWriter();
+            properties.store(writer, null);
+            return new PropertyResourceBundle(new StringReader(writer.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates the population of the households with ids from 1 to the given number. Every fifth
+     * household has no home-based trips, so its non-home-based trips have no base zone.
+     */
+    static DataSet createDataSet(int numberOfHouseholds) {
+        return createDataSet(numberOfHouseholds, zoneId -> true);
+    }
+
+    /**
+     * Creates the population of the households with the given home zones among the households with
+     * ids from 1 to the given number, like a household shard. Trips are numbered from 1 in the
+     * order of creation.
+     */
+    static DataSet createDataSet(int numberOfHouseholds, IntPredicate homeZoneFilter) {
+        DataSet dataSet = new DataSet();
+        for (int zoneId = 1; zoneId <= NUMBER_OF_ZONES; zoneId++) {
+            Zone zone = new Zone(zoneId, 1);
+            zone.setRegion((zoneId - 1) / 5 + 1);
+            zone.setTotalEmpl(10 + zoneId * 7 % 30);
+            zone.setRetailEmpl(zoneId % 4 == 0 ? 0 : 5 + zoneId * 3 % 11);
+            zone.setOtherEmpl(3 + zoneId % 9);
+            zone.setSchoolEnrollment(1 + zoneId % 5);
+            zone.setNumberOfHouseholds(20 + zoneId % 7);
+            dataSet.addZone(zone);
+        }
+        dataSet.addTravelTimeForMode("car", (origin, destination) ->
+                origin == destination ? 2 : 5 + 3 * Math.abs(origin.getZoneId() - destination.getZoneId()));
+        int tripId = 1;
+        for (int householdId = 1; householdId <= numberOfHouseholds; householdId++) {
+            Zone homeZone = dataSet.getZones().get(NUMBER_OF_ZONES - householdId * 7 % NUMBER_OF_ZONES);
+            if (!homeZoneFilter.test(homeZone.getZoneId())) {
+                continue;
+            }
+            MitoHousehold household = createHousehold(householdId, homeZone);
+            dataSet.addHousehold(household);
+            dataSet.addPerson(household.getPersonList().get(0));
+            tripId = addTrips(dataSet, household, tripId);
+        }
+        return dataSet;
+    }
+
+    /**
+     * Creates a household with one person and travel time budgets, but without trips, that has not
+     * been added to any data set yet.
+     */
+    static MitoHousehold createHousehold(int householdId, Zone homeZone) {
+        MitoHousehold household = new MitoHousehold(householdId, 2000, 1, homeZone);
+        household.addPerson(new MitoPerson(householdId, Occupation.UNEMPLOYED, -1, 40, Gender.FEMALE, true));
+        for (Purpose purpose : Purpose.values()) {
+            household.setTravelTimeBudgetByPurpose(purpose, 10 + householdId % 3 * 5 + purpose.ordinal());
+        }
+        return household;
+    }
+
+    /**
+     * Adds the trips of the given household, numbered from the given trip id, to the household, its
+     * person and the data set. Returns the next free trip id.
+     */
+    static int addTrips(DataSet dataSet, MitoHousehold household, int firstTripId) {
+        int householdId = household.getHhId();
+        MitoPerson person = household.getPersonList().get(0);
+        Map<Purpose, Integer> ordinals = new LinkedHashMap<>();
+        int tripId = firstTripId;
+        for (Purpose purpose : TRIPS) {
+            if (householdId % 5 == 0 && (purpose == Purpose.HBW || purpose == Purpose.HBS || purpose == Purpose.HBO)) {
+                continue;
+            }
+            int ordinal = ordinals.merge(purpose, 1, Integer::sum) - 1;
+            MitoTrip trip = new MitoTrip(tripId++, purpose, RandomStreams.householdEntityId(householdId, ordinal));
+            trip.setPerson(person);
+            person.addTrip(trip);
+            household.addTrip(trip);
+            dataSet.addTrip(trip);
+        }
+        return tripId;
+    }
+
+    /**
+     * Returns the origin and destination zone ids of every trip by the random stream id of the trip.
+     */
+    static Map<Long, String> getOriginsAndDestinations(DataSet dataSet) {
+        Map<Long, String> result = new LinkedHashMap<>();
+        for (MitoTrip trip : dataSet.getTrips().values()) {
+            result.put(trip.getRandomStreamId(), getZoneId(trip.getTripOrigin()) + "-" + getZoneId(trip.getTripDestination()));
+        }
+        return result;
+    }
+
+    private static int getZoneId(Zone zone) {
+        return zone == null ? -1 : zone.getZoneId();
+    }
+}
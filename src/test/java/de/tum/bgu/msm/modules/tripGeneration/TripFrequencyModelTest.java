@@ -0,0 +1,158 @@
+package de.tum.bgu.msm.modules.tripGeneration;
+
+import de.tum.bgu.msm.data.survey.SurveyRecord;
+import de.tum.bgu.msm.resources.Purpose;
+import de.tum.bgu.msm.resources.Resources;
+import de.tum.bgu.msm.scenarios.maryland.MarylandSurveyRecord;
+import de.tum.bgu.msm.scenarios.maryland.MarylandTravelSurvey;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PropertyResourceBundle;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TripFrequencyModelTest {
+
+    private static final String HH_TYPES =
+            "hh.type.HBW  = 3329446,24,1-7,1-1.2-2.3-3.4-5,1-5.6-7.8-8.9-10.11-11.12-12,1-3,1-3\n" +
+            "hh.type.HBS  = 73434,30,1-1.2-2.3-3.4-4.5-7,1-5,1-6.7-12,1-2.3-3.4-4,1-3\n" +
+            "hh.type.HBO  = 45065,30,1-1.2-2.3-3.4-4.5-7,1-5,1-6.7-12,1-2.3-3.4-4,1-3\n" +
+            "hh.type.HBE  = 73434,30,1-1.2-2.3-3.4-4.5-7,1-5,1-6.7-12,1-2.3-3.4-4,1-3\n" +
+            "hh.type.NHBW = 3358727,42,1-7,1-1.2-2.3-5,1-3.4-4.5-5.6-6.7-8.9-10.11-12,1-3,1-1.2-3\n" +
+            "hh.type.NHBO = 309325,18,1-1.2-2.3-7,1-1.2-5,1-12,1-1.2-2.3-4,1-3\n";
+
+    private MarylandTravelSurvey survey;
+    private File cacheFile;
+
+    @Before
+    public void setup() throws IOException {
+        setHouseholdTypes(HH_TYPES);
+        survey = createSurvey(3000, 42);
+        cacheFile = File.createTempFile("tripFrequencies", ".ser");
+        cacheFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        cacheFile.delete();
+    }
+
+    @Test
+    public void testFrequenciesMatchPerPurposeCounts() {
+        TripFrequencyModel model = TripFrequencyModel.build(survey);
+        boolean foundSufficientType = false;
+        boolean foundInsufficientType = false;
+        for (Purpose purpose : Purpose.values()) {
+            HouseholdTypeManager manager = new HouseholdTypeManager(purpose);
+            manager.createHouseHoldTypeDefinitions();
+            Map<Integer, int[]> expected = countTripsPerType(manager, purpose);
+            for (HouseholdType type : manager.getHouseholdTypes()) {
+                int[] frequencies = expected.get(type.getId());
+                if (frequencies != null && Arrays.stream(frequencies).sum() < HouseholdTypeManager.MIN_RECORDS) {
+                    foundInsufficientType = true;
+                    frequencies = null;
+                }
+                foundSufficientType |= frequencies != null;
+                assertArrayEquals("type " + type.getId() + " of " + purpose,
+                        frequencies, model.getTripFrequencies(purpose, type));
+            }
+        }
+        assertTrue(foundSufficientType);
+        assertTrue(foundInsufficientType);
+    }
+
+    @Test
+    public void testCacheRoundTrip() {
+        TripFrequencyModel model = TripFrequencyModel.build(survey);
+        model.writeCache(cacheFile.getPath(), "survey;");
+
+        TripFrequencyModel cached = TripFrequencyModel.readCache(cacheFile.getPath(), "survey;");
+        assertNotNull(cached);
+        assertTrue(cached.isBuiltFor(TripFrequencyModel.getDefinitionKey()));
+        for (Purpose purpose : Purpose.values()) {
+            HouseholdTypeManager manager = new HouseholdTypeManager(purpose);
+            for (HouseholdType type : manager.createHouseHoldTypeDefinitions()) {
+                assertArrayEquals(model.getTripFrequencies(purpose, type), cached.getTripFrequencies(purpose, type));
+            }
+        }
+    }
+
+    @Test
+    public void testCacheIgnoredAfterSurveyChange() {
+        TripFrequencyModel.build(survey).writeCache(cacheFile.getPath(), "survey|100|1;");
+        assertNull(TripFrequencyModel.readCache(cacheFile.getPath(), "survey|101|2;"));
+        assertNotNull(TripFrequencyModel.readCache(cacheFile.getPath(), "survey|100|1;"));
+    }
+
+    @Test
+    public void testCacheIgnoredAfterHouseholdTypeChange() {
+        TripFrequencyModel model = TripFrequencyModel.build(survey);
+        model.writeCache(cacheFile.getPath(), "survey;");
+
+        setHouseholdTypes(HH_TYPES.replace("hh.type.NHBO = 309325,18,1-1.2-2.3-7", "hh.type.NHBO = 309325,18,1-2.3-7"));
+        assertFalse(model.isBuiltFor(TripFrequencyModel.getDefinitionKey()));
+        assertNull(TripFrequencyModel.readCache(cacheFile.getPath(), "survey;"));
+    }
+
+    @Test
+    public void testMissingCache() {
+        assertNull(TripFrequencyModel.readCache(cacheFile.getPath(), "survey;"));
+    }
+
+    /**
+     * Counts the trips of the purpose per household type one record at a time, as trip generation
+     * did for each purpose before the model was shared.
+     */
+    private Map<Integer, int[]> countTripsPerType(HouseholdTypeManager manager, Purpose purpose) {
+        Map<Integer, int[]> tripsByType = new HashMap<>();
+        for (SurveyRecord record : survey.getRecords().values()) {
+            HouseholdType type = manager.findHouseholdType(record);
+            if (type != null) {
+                tripsByType.computeIfAbsent(type.getId(), id -> new int[31])[record.getTripsForPurpose(purpose)]++;
+            }
+        }
+        return tripsByType;
+    }
+
+    private static MarylandTravelSurvey createSurvey(int numberOfRecords, long seed) {
+        Random random = new Random(seed);
+        MarylandTravelSurvey survey = new MarylandTravelSurvey();
+        for (int id = 1; id <= numberOfRecords; id++) {
+            // few large households, so some types have too few records
+            int size = random.nextInt(10) == 0 ? 5 + random.nextInt(3) : 1 + random.nextInt(4);
+            int workers = random.nextInt(Math.min(size, 3) + 1);
+            MarylandSurveyRecord record = new MarylandSurveyRecord(id, size, workers, 1 + random.nextInt(12),
+                    random.nextInt(4), 1 + random.nextInt(3));
+            for (Purpose purpose : Purpose.values()) {
+                int trips = random.nextInt(2 * size + 1);
+                for (int i = 0; i < trips; i++) {
+                    record.addTripForPurpose(purpose);
+                }
+            }
+            survey.addRecord(record);
+        }
+        return survey;
+    }
+
+    private static void setHouseholdTypes(String properties) {
+        try {
+            Resources.INSTANCE.setResources(new PropertyResourceBundle(new StringReader(properties)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package de.tum.bgu.msm.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultinomialLogitTest {
+
+    @Test
+    public void testLargeUtilitiesDoNotOverflow() {
+        double[] utilities = {1000, 1000 + Math.log(3), Double.NEGATIVE_INFINITY, Double.NaN};
+        assertEquals(1000 + Math.log(4), MultinomialLogit.logsum(utilities, 4), 1e-9);
+
+        double logsum = MultinomialLogit.toCumulativeDistribution(utilities, 4, false);
+        assertEquals(1000 + Math.log(4), logsum, 1e-9);
+        assertEquals(1. / 3., utilities[0], 1e-9);
+        assertEquals(4. / 3., utilities[1], 1e-9);
+        assertEquals(utilities[1], utilities[3], 0);
+        assertEquals(0, MultinomialLogit.select(utilities, 4, 0.2));
+        assertEquals(1, MultinomialLogit.select(utilities, 4, 0.3));
+    }
+
+    @Test
+    public void testSmallUtilitiesDoNotUnderflow() {
+        double[] utilities = {-2000, -2000};
+        double logsum = MultinomialLogit.toCumulativeDistribution(utilities, 2, true);
+        assertEquals(-2000 + Math.log(2), logsum, 1e-6);
+        assertEquals(0, MultinomialLogit.select(utilities, 2, 0.49));
+        assertEquals(1, MultinomialLogit.select(utilities, 2, 0.51));
+    }
+
+    @Test
+    public void testNoAvailableAlternative() {
+        double[] utilities = {Double.NEGATIVE_INFINITY, Double.NaN};
+        assertEquals(Double.NEGATIVE_INFINITY, MultinomialLogit.toCumulativeDistribution(utilities, 2, false), 0);
+        assertEquals(0, utilities[1], 0);
+    }
+}
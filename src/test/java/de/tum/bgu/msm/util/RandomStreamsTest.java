@@ -0,0 +1,41 @@
+package de.tum.bgu.msm.util;
+
+import de.tum.bgu.msm.resources.Purpose;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RandomStreamsTest {
+
+    @Test
+    public void testKeysDependOnEveryComponent() {
+        long key = RandomStreams.key(42, "tripGeneration", 1, Purpose.HBW);
+        assertEquals(key, RandomStreams.key(42, "tripGeneration", 1, Purpose.HBW));
+        assertTrue(key != RandomStreams.key(43, "tripGeneration", 1, Purpose.HBW));
+        assertTrue(key != RandomStreams.key(42, "tripDistribution", 1, Purpose.HBW));
+        assertTrue(key != RandomStreams.key(42, "tripGeneration", 2, Purpose.HBW));
+        assertTrue(key != RandomStreams.key(42, "tripGeneration", 1, Purpose.HBE));
+    }
+
+    @Test
+    public void testUniform() {
+        long key = RandomStreams.key(42, "test", 7, null);
+        double sum = 0;
+        int n = 100000;
+        for (int i = 0; i < n; i++) {
+            double value = RandomStreams.uniform(key, i);
+            assertTrue(value >= 0 && value < 1);
+            sum += value;
+        }
+        assertEquals(0.5, sum / n, 0.01);
+        assertEquals(RandomStreams.uniform(key, 3), RandomStreams.uniform(key, 3), 0);
+    }
+
+    @Test
+    public void testHouseholdEntityIdsAreDistinct() {
+        assertTrue(RandomStreams.householdEntityId(1, 2) != RandomStreams.householdEntityId(2, 1));
+        assertTrue(RandomStreams.householdEntityId(1, 0) != RandomStreams.householdEntityId(0, 1));
+        assertEquals(RandomStreams.householdEntityId(7, 3), RandomStreams.householdEntityId(7, 3));
+    }
+}
@@ -0,0 +1,43 @@
+package de.tum.bgu.msm.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RunningStatisticsTest {
+
+    @Test
+    public void testMeanAndVariance() {
+        RunningStatistics statistics = new RunningStatistics(2);
+        double[] first = {2, 4, 4, 4, 5, 5, 7, 9};
+        for (double value : first) {
+            statistics.add(new double[]{value, 1e9 + value});
+        }
+        assertEquals(8, statistics.getCount());
+        assertEquals(5, statistics.getMean(0), 1e-12);
+        assertEquals(32. / 7., statistics.getVariance(0), 1e-12);
+        assertEquals(32. / 7., statistics.getVariance(1), 1e-6);
+        // t quantile for a 95% interval with 7 degrees of freedom
+        double t = 2.364624;
+        assertEquals(t * Math.sqrt(32. / 7. / 8), statistics.getConfidenceHalfWidth(0, 0.95), 1e-5);
+        assertEquals((int) Math.ceil(Math.pow(t * Math.sqrt(32. / 7.) / 0.5, 2)), statistics.getRequiredCount(0, 0.95, 0.1));
+    }
+
+    @Test
+    public void testStudentTQuantiles() {
+        assertEquals(12.706205, StudentT.quantile(0.975, 1), 1e-5);
+        assertEquals(4.302653, StudentT.quantile(0.975, 2), 1e-5);
+        assertEquals(2.042272, StudentT.quantile(0.975, 30), 1e-5);
+        assertEquals(-2.042272, StudentT.quantile(0.025, 30), 1e-5);
+        assertEquals(1.959964, StudentT.quantile(0.975, 1000000), 1e-5);
+        assertEquals(0.975, StudentT.cumulativeProbability(2.364624, 7), 1e-6);
+    }
+
+    @Test
+    public void testNoIntervalWithSingleObservation() {
+        RunningStatistics statistics = new RunningStatistics(1);
+        statistics.add(new double[]{3});
+        assertTrue(Double.isNaN(statistics.getConfidenceHalfWidth(0, 0.95)));
+    }
+}
@@ -0,0 +1,49 @@
+package de.tum.bgu.msm.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ModuleExecutorTest {
+
+    @Test
+    public void testChunksCoverRangeOnce() {
+        ModuleExecutor executor = new ModuleExecutor("test", 3);
+        AtomicIntegerArray visits = new AtomicIntegerArray(1000);
+        executor.addChunks("chunk", visits.length(), 0, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                visits.incrementAndGet(i);
+            }
+        });
+        executor.execute();
+        for (int i = 0; i < visits.length(); i++) {
+            assertEquals(1, visits.get(i));
+        }
+        assertEquals(12, executor.getTaskTimes().size());
+    }
+
+    @Test
+    public void testFailurePropagatesAndCancelsRemainingTasks() {
+        ModuleExecutor executor = new ModuleExecutor("test", 1);
+        AtomicInteger executed = new AtomicInteger();
+        executor.addTask("first", executed::incrementAndGet);
+        executor.addTask("failing", () -> {
+            throw new IllegalStateException("broken");
+        });
+        executor.addTask("last", executed::incrementAndGet);
+        try {
+            executor.execute();
+            fail("Expected the failure of a task to be rethrown.");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertTrue(e.getMessage().contains("failing"));
+        }
+        assertTrue(executor.isCancelled());
+        assertTrue(executed.get() <= 2);
+    }
+}
@@ -0,0 +1,46 @@
+package de.tum.bgu.msm.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaskGraphTest {
+
+    @Test
+    public void testDependenciesRunFirst() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        TaskGraph graph = new TaskGraph("test", 4);
+        TaskGraph.Node zones = graph.add("zones", () -> order.add("zones"));
+        TaskGraph.Node households = graph.add("households", () -> order.add("households"), zones);
+        graph.add("persons", () -> order.add("persons"), households);
+        graph.add("survey", () -> order.add("survey"));
+        graph.execute();
+        assertEquals(4, order.size());
+        assertTrue(order.indexOf("zones") < order.indexOf("households"));
+        assertTrue(order.indexOf("households") < order.indexOf("persons"));
+    }
+
+    @Test
+    public void testFailureSkipsDependentTasks() {
+        AtomicBoolean dependentRan = new AtomicBoolean();
+        TaskGraph graph = new TaskGraph("test", 2);
+        TaskGraph.Node failing = graph.add("failing", () -> {
+            throw new IllegalStateException("broken");
+        });
+        graph.add("dependent", () -> dependentRan.set(true), failing);
+        try {
+            graph.execute();
+            fail("Expected the failure of a task to be rethrown.");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertFalse(dependentRan.get());
+    }
+}
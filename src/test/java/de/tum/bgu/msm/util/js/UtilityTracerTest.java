@@ -0,0 +1,65 @@
+package de.tum.bgu.msm.util.js;
+
+import de.tum.bgu.msm.resources.Properties;
+import de.tum.bgu.msm.resources.Resources;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.PropertyResourceBundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UtilityTracerTest {
+
+    @Test
+    public void testSelection() throws IOException {
+        UtilityTracer tracer = createTracer(Properties.TRACE_HOUSEHOLDS + " = 3, 4\n"
+                + Properties.TRACE_ZONES + " = 5\n" + Properties.TRACE_PURPOSES + " = HBS");
+        assertTrue(tracer.isEnabled());
+        assertTrue(tracer.isTraced(3, 5, 7, "HBS"));
+        assertTrue(tracer.isTraced(4, 6, 5, "HBS"));
+        assertFalse(tracer.isTraced(2, 5, 7, "HBS"));
+        assertFalse(tracer.isTraced(3, 6, 7, "HBS"));
+        assertFalse(tracer.isTraced(3, 5, 7, "HBO"));
+        assertTrue(tracer.isTracedHousehold(4));
+        assertFalse(tracer.isTracedHousehold(-1));
+
+        UtilityTracer zonesOnly = createTracer(Properties.TRACE_ZONES + " = 5");
+        assertTrue(zonesOnly.isTraced(-1, 5, 7, "HBW"));
+        assertTrue(zonesOnly.isTracedHousehold(-1));
+
+        UtilityTracer disabled = createTracer("");
+        assertFalse(disabled.isEnabled());
+        assertFalse(disabled.isTraced(3, 5, 7, "HBS"));
+    }
+
+    @Test
+    public void testOutputIsWrittenOnClose() throws IOException {
+        File file = File.createTempFile("trace", ".log");
+        file.deleteOnExit();
+        UtilityTracer tracer = createTracer(Properties.TRACE_ZONES + " = 5\n"
+                + Properties.TRACE_FILE + " = " + file.getPath().replace("\\", "/"));
+        tracer.trace("first");
+        tracer.trace("second");
+        tracer.close();
+        assertEquals(Arrays.asList("first", "second"), Files.readAllLines(file.toPath()));
+
+        // a tracer of the next run starts a new file
+        UtilityTracer next = createTracer(Properties.TRACE_ZONES + " = 5\n"
+                + Properties.TRACE_FILE + " = " + file.getPath().replace("\\", "/"));
+        next.trace("third");
+        next.close();
+        assertEquals(Arrays.asList("third"), Files.readAllLines(file.toPath()));
+    }
+
+    private static UtilityTracer createTracer(String properties) throws IOException {
+        Resources.INSTANCE.setResources(new PropertyResourceBundle(new StringReader(properties)));
+        return UtilityTracer.fromProperties();
+    }
+}
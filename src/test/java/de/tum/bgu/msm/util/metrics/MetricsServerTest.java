@@ -0,0 +1,66 @@
+package de.tum.bgu.msm.util.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsServerTest {
+
+    @After
+    public void clear() {
+        ProgressMetrics.clear();
+    }
+
+    @Test
+    public void testProgressAndEta() {
+        ModuleProgress progress = ProgressMetrics.startModule("tripGeneration", "households", 4);
+        assertTrue(Double.isNaN(progress.getEtaSeconds()));
+        progress.increment();
+        progress.increment();
+        progress.count("trips_generated", 3);
+        progress.count("trips_generated", 2);
+        assertEquals(2, progress.getProcessed());
+        assertEquals(5, progress.getCount("trips_generated"));
+        assertTrue(progress.getEtaSeconds() >= 0);
+        progress.finish();
+        assertEquals(0, progress.getEtaSeconds(), 0);
+
+        String metrics = ProgressMetrics.render();
+        assertTrue(metrics.contains("mito_module_processed{scenario=\"\",module=\"tripGeneration\",unit=\"households\"} 2\n"));
+        assertTrue(metrics.contains("mito_module_total{scenario=\"\",module=\"tripGeneration\",unit=\"households\"} 4\n"));
+        assertTrue(metrics.contains("mito_module_running{scenario=\"\",module=\"tripGeneration\"} 0\n"));
+        assertTrue(metrics.contains("# TYPE mito_trips_generated gauge\n"));
+        assertTrue(metrics.contains("mito_trips_generated{scenario=\"\",module=\"tripGeneration\"} 5\n"));
+        assertTrue(metrics.contains("jvm_memory_heap_used_bytes "));
+    }
+
+    @Test
+    public void testServesMetrics() throws IOException {
+        ProgressMetrics.startModule("tripDistribution", "trips", 10).setProcessed(7);
+        try (MetricsServer server = new MetricsServer(0)) {
+            assertTrue(server.getAddress().getAddress().isLoopbackAddress());
+            HttpURLConnection connection = (HttpURLConnection)
+                    new URL("http://127.0.0.1:" + server.getPort() + "/metrics").openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain"));
+            StringBuilder body = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    body.append(line).append('\n');
+                }
+            }
+            assertTrue(body.toString().contains("mito_module_processed{scenario=\"\",module=\"tripDistribution\",unit=\"trips\"} 7\n"));
+        }
+    }
+}
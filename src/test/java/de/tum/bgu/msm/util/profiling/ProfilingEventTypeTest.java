@@ -0,0 +1,89 @@
+package de.tum.bgu.msm.util.profiling;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProfilingEventTypeTest {
+
+    /**
+     * Disabled by default, so that only the recordings of the tests enable it and not a recording
+     * of the whole JVM, e.g. -XX:StartFlightRecording.
+     */
+    private static final ProfilingEventType TEST_EVENT = new ProfilingEventType("mito.Test", "Test",
+            "Event of a unit test", new String[]{"name", "count"}, new Class<?>[]{String.class, int.class}, false);
+
+    @Test
+    public void testDisabledWithoutRecording() throws Exception {
+        assertFalse(TEST_EVENT.isEnabled());
+        ProfilingEvent event = TEST_EVENT.begin();
+        assertFalse(event.isEnabled());
+        event.set(0, "ignored").set(1, 1).commit();
+        if (!ProfilingEventType.Jfr.AVAILABLE) {
+            return;
+        }
+        Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        Object recording = startRecording(recordingClass);
+        try {
+            assertTrue(TEST_EVENT.isEnabled());
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+        }
+        assertFalse(TEST_EVENT.isEnabled());
+    }
+
+    @Test
+    public void testEventIsRecorded() throws Exception {
+        if (!ProfilingEventType.Jfr.AVAILABLE) {
+            // the JVM has no flight recorder, events are disabled as tested above
+            return;
+        }
+        // the flight recorder API is not part of Java 8, so the recording is controlled reflectively
+        Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        Object recording = startRecording(recordingClass);
+        Path file = Files.createTempFile("mito", ".jfr");
+        try {
+            assertTrue(TEST_EVENT.isEnabled());
+            ProfilingEvent event = TEST_EVENT.begin();
+            assertTrue(event.isEnabled());
+            event.set(0, "households").set(1, 42).commit();
+            recordingClass.getMethod("stop").invoke(recording);
+            recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+
+            // a recording of the whole JVM may add its events to the dump as well
+            List<?> allEvents = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class).invoke(null, file);
+            Method getEventType = Class.forName("jdk.jfr.consumer.RecordedEvent").getMethod("getEventType");
+            Method getName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+            List<Object> events = new ArrayList<>();
+            for (Object recorded : allEvents) {
+                if ("mito.Test".equals(getName.invoke(getEventType.invoke(recorded)))) {
+                    events.add(recorded);
+                }
+            }
+            assertEquals(1, events.size());
+            Object recorded = events.get(0);
+            Class<?> recordedObject = Class.forName("jdk.jfr.consumer.RecordedObject");
+            assertEquals("households", recordedObject.getMethod("getString", String.class).invoke(recorded, "name"));
+            assertEquals(42, recordedObject.getMethod("getInt", String.class).invoke(recorded, "count"));
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Object startRecording(Class<?> recordingClass) throws Exception {
+        Object recording = recordingClass.getConstructor().newInstance();
+        recordingClass.getMethod("enable", String.class).invoke(recording, "mito.Test");
+        recordingClass.getMethod("start").invoke(recording);
+        return recording;
+    }
+}